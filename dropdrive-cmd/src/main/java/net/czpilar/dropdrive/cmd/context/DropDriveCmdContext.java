@@ -2,6 +2,7 @@ package net.czpilar.dropdrive.cmd.context;
 
 import net.czpilar.dropdrive.cmd.credential.PropertiesDropDriveCredential;
 import net.czpilar.dropdrive.core.context.DropDriveCoreContext;
+import net.czpilar.dropdrive.core.context.DropDriveJmxContext;
 import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
@@ -13,7 +14,7 @@ import static net.czpilar.dropdrive.cmd.runner.impl.DropDriveCmdRunner.*;
 
 @Configuration
 @ComponentScan(basePackages = "net.czpilar.dropdrive.cmd")
-@Import(DropDriveCoreContext.class)
+@Import({DropDriveCoreContext.class, DropDriveJmxContext.class})
 @PropertySource("classpath:dropdrive-core.properties")
 public class DropDriveCmdContext {
 
@@ -48,6 +49,8 @@ public class DropDriveCmdContext {
                 .addOption(toOptionalOption(OPTION_AUTHORIZATION, "process authorization; waits for code if not provided", "[code]"))
                 .addOption(toUnlimitedOption(toOption(OPTION_FILE, "upload file(s)", "<file>")))
                 .addOption(toOption(OPTION_DIRECTORY, "directory for upload; creates new one if no directory exists; default is dropdrive-uploads", "<dir>"))
+                .addOption(toOption(OPTION_PARALLEL, "number of files uploaded in parallel; default is 1", "<n>"))
+                .addOption(toOption(OPTION_READ_MODE, "mode of reading files; CHANNEL, MAPPED or DIRECT bypassing page cache; default is CHANNEL", "<mode>"))
                 .addOption(toOption(OPTION_PROPERTIES, "path to dropDrive properties file", "<props>"));
     }
 
@@ -8,6 +8,7 @@ import net.czpilar.dropdrive.core.credential.Credential;
 import net.czpilar.dropdrive.core.service.IAuthorizationService;
 import net.czpilar.dropdrive.core.service.IFileService;
 import net.czpilar.dropdrive.core.setting.DropDriveSetting;
+import net.czpilar.dropdrive.core.setting.UploadSetting;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.Options;
@@ -19,6 +20,7 @@ import org.springframework.stereotype.Component;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
 /**
@@ -33,6 +35,8 @@ public class DropDriveCmdRunner implements IDropDriveCmdRunner {
     public static final String OPTION_LINK = "l";
     public static final String OPTION_AUTHORIZATION = "a";
     public static final String OPTION_DIRECTORY = "d";
+    public static final String OPTION_PARALLEL = "j";
+    public static final String OPTION_READ_MODE = "r";
     public static final String OPTION_PROPERTIES = "p";
     public static final String OPTION_HELP = "h";
     public static final String OPTION_VERSION = "v";
@@ -49,6 +53,8 @@ public class DropDriveCmdRunner implements IDropDriveCmdRunner {
 
     private DropDriveSetting dropDriveSetting;
 
+    private UploadSetting uploadSetting;
+
     private PropertiesDropDriveCredential propertiesDropDriveCredential;
 
     private AuthorizationCodeWaiter codeWaiter;
@@ -88,6 +94,11 @@ public class DropDriveCmdRunner implements IDropDriveCmdRunner {
         this.dropDriveSetting = dropDriveSetting;
     }
 
+    @Autowired
+    public void setUploadSetting(UploadSetting uploadSetting) {
+        this.uploadSetting = uploadSetting;
+    }
+
     @Autowired
     public void setPropertiesDropDriveCredential(PropertiesDropDriveCredential propertiesDropDriveCredential) {
         this.propertiesDropDriveCredential = propertiesDropDriveCredential;
@@ -133,8 +144,34 @@ public class DropDriveCmdRunner implements IDropDriveCmdRunner {
         }
     }
 
+    private void doParallelOption(CommandLine cmd) {
+        if (cmd.hasOption(OPTION_PARALLEL)) {
+            try {
+                int fileWorkers = Integer.parseInt(cmd.getOptionValue(OPTION_PARALLEL));
+                if (fileWorkers < 1) {
+                    throw new CommandLineException("Number of parallel uploads must be positive!");
+                }
+                uploadSetting.setFileWorkers(fileWorkers);
+            } catch (NumberFormatException e) {
+                throw new CommandLineException("Invalid number of parallel uploads!", e);
+            }
+        }
+    }
+
+    private void doReadModeOption(CommandLine cmd) {
+        if (cmd.hasOption(OPTION_READ_MODE)) {
+            try {
+                uploadSetting.setReadMode(UploadSetting.ReadMode.valueOf(cmd.getOptionValue(OPTION_READ_MODE).toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new CommandLineException("Invalid read mode!", e);
+            }
+        }
+    }
+
     private void doFileOption(CommandLine cmd) {
         if (cmd.hasOption(OPTION_FILE)) {
+            doParallelOption(cmd);
+            doReadModeOption(cmd);
             String dir = cmd.hasOption(OPTION_DIRECTORY) ? cmd.getOptionValue(OPTION_DIRECTORY) : null;
             List<FileMetadata> files = fileService.uploadFiles(Arrays.asList(cmd.getOptionValues(OPTION_FILE)), dir);
             System.out.println("Uploaded " + files.size() + " file(s)...");
@@ -81,6 +81,8 @@ class DropDriveCmdContextTest {
         assertNotNull(options.getOption(OPTION_AUTHORIZATION));
         assertNotNull(options.getOption(OPTION_FILE));
         assertNotNull(options.getOption(OPTION_DIRECTORY));
+        assertNotNull(options.getOption(OPTION_PARALLEL));
+        assertNotNull(options.getOption(OPTION_READ_MODE));
         assertNotNull(options.getOption(OPTION_PROPERTIES));
     }
 
@@ -88,7 +90,7 @@ class DropDriveCmdContextTest {
     void testOptionsCount() {
         Options options = context.options();
 
-        assertEquals(7, options.getOptions().size());
+        assertEquals(9, options.getOptions().size());
     }
 
     @Test
@@ -144,6 +146,24 @@ class DropDriveCmdContextTest {
         assertEquals("directory for upload; creates new one if no directory exists; default is dropdrive-uploads", option.getDescription());
     }
 
+    @Test
+    void testParallelOption() {
+        Option option = context.options().getOption(OPTION_PARALLEL);
+
+        assertTrue(option.hasArg());
+        assertEquals("<n>", option.getArgName());
+        assertEquals("number of files uploaded in parallel; default is 1", option.getDescription());
+    }
+
+    @Test
+    void testReadModeOption() {
+        Option option = context.options().getOption(OPTION_READ_MODE);
+
+        assertTrue(option.hasArg());
+        assertEquals("<mode>", option.getArgName());
+        assertEquals("mode of reading files; CHANNEL, MAPPED or DIRECT bypassing page cache; default is CHANNEL", option.getDescription());
+    }
+
     @Test
     void testPropertiesOption() {
         Option option = context.options().getOption(OPTION_PROPERTIES);
@@ -6,6 +6,7 @@ import net.czpilar.dropdrive.core.credential.Credential;
 import net.czpilar.dropdrive.core.service.IAuthorizationService;
 import net.czpilar.dropdrive.core.service.IFileService;
 import net.czpilar.dropdrive.core.setting.DropDriveSetting;
+import net.czpilar.dropdrive.core.setting.UploadSetting;
 import org.apache.commons.cli.*;
 import org.apache.commons.cli.help.HelpFormatter;
 import org.junit.jupiter.api.AfterEach;
@@ -40,6 +41,8 @@ class DropDriveCmdRunnerTest {
     @Mock
     private DropDriveSetting dropDriveSetting;
     @Mock
+    private UploadSetting uploadSetting;
+    @Mock
     private PropertiesDropDriveCredential propertiesDropDriveCredential;
     @Mock
     private CommandLine commandLine;
@@ -57,6 +60,7 @@ class DropDriveCmdRunnerTest {
         runner.setAuthorizationService(authorizationService);
         runner.setFileService(fileService);
         runner.setDropDriveSetting(dropDriveSetting);
+        runner.setUploadSetting(uploadSetting);
         runner.setPropertiesDropDriveCredential(propertiesDropDriveCredential);
         runner.setCodeWaiter(codeWaiter);
     }
@@ -521,6 +525,8 @@ class DropDriveCmdRunnerTest {
         when(commandLine.hasOption(DropDriveCmdRunner.OPTION_LINK)).thenReturn(false);
         when(commandLine.hasOption(DropDriveCmdRunner.OPTION_AUTHORIZATION)).thenReturn(false);
         when(commandLine.hasOption(DropDriveCmdRunner.OPTION_FILE)).thenReturn(true);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_PARALLEL)).thenReturn(false);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_READ_MODE)).thenReturn(false);
         when(commandLine.hasOption(DropDriveCmdRunner.OPTION_DIRECTORY)).thenReturn(false);
         when(commandLine.getOptionValue(DropDriveCmdRunner.OPTION_PROPERTIES)).thenReturn(propertiesValue);
         when(commandLine.getOptionValues(DropDriveCmdRunner.OPTION_FILE)).thenReturn(new String[]{optionFile});
@@ -535,6 +541,8 @@ class DropDriveCmdRunnerTest {
         verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_LINK);
         verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_AUTHORIZATION);
         verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_FILE);
+        verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_PARALLEL);
+        verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_READ_MODE);
         verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_DIRECTORY);
         verify(commandLine).getOptionValue(DropDriveCmdRunner.OPTION_PROPERTIES);
         verify(commandLine).getOptionValues(DropDriveCmdRunner.OPTION_FILE);
@@ -572,6 +580,8 @@ class DropDriveCmdRunnerTest {
         when(commandLine.hasOption(DropDriveCmdRunner.OPTION_LINK)).thenReturn(false);
         when(commandLine.hasOption(DropDriveCmdRunner.OPTION_AUTHORIZATION)).thenReturn(false);
         when(commandLine.hasOption(DropDriveCmdRunner.OPTION_FILE)).thenReturn(true);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_PARALLEL)).thenReturn(false);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_READ_MODE)).thenReturn(false);
         when(commandLine.hasOption(DropDriveCmdRunner.OPTION_DIRECTORY)).thenReturn(true);
         when(commandLine.getOptionValue(DropDriveCmdRunner.OPTION_PROPERTIES)).thenReturn(propertiesValue);
         when(commandLine.getOptionValues(DropDriveCmdRunner.OPTION_FILE)).thenReturn(new String[]{optionFile});
@@ -588,6 +598,8 @@ class DropDriveCmdRunnerTest {
         verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_LINK);
         verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_AUTHORIZATION);
         verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_FILE);
+        verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_PARALLEL);
+        verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_READ_MODE);
         verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_DIRECTORY);
         verify(commandLine).getOptionValue(DropDriveCmdRunner.OPTION_PROPERTIES);
         verify(commandLine).getOptionValues(DropDriveCmdRunner.OPTION_FILE);
@@ -612,4 +624,149 @@ class DropDriveCmdRunnerTest {
         verifyNoInteractions(codeWaiter);
     }
 
+    @Test
+    void testRunWhereCommandLineHasPropertiesAndFileAndParallelOptions() throws ParseException {
+        String propertiesValue = "test-properties-value";
+        String optionFile = "test-file-value";
+        List<String> optionFiles = List.of(optionFile);
+        String[] args = {"arg1", "arg2"};
+        Option[] optionList = {Option.builder("p").build(), Option.builder("f").build(), Option.builder("j").build()};
+        when(commandLineParser.parse(any(Options.class), any(String[].class))).thenReturn(commandLine);
+        when(commandLine.getOptions()).thenReturn(optionList);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_PROPERTIES)).thenReturn(true);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_VERSION)).thenReturn(false);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_HELP)).thenReturn(false);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_LINK)).thenReturn(false);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_AUTHORIZATION)).thenReturn(false);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_FILE)).thenReturn(true);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_PARALLEL)).thenReturn(true);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_READ_MODE)).thenReturn(false);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_DIRECTORY)).thenReturn(false);
+        when(commandLine.getOptionValue(DropDriveCmdRunner.OPTION_PROPERTIES)).thenReturn(propertiesValue);
+        when(commandLine.getOptionValue(DropDriveCmdRunner.OPTION_PARALLEL)).thenReturn("4");
+        when(commandLine.getOptionValues(DropDriveCmdRunner.OPTION_FILE)).thenReturn(new String[]{optionFile});
+
+        runner.run(args);
+
+        verify(commandLineParser).parse(options, args);
+        verify(commandLine).getOptions();
+        verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_PROPERTIES);
+        verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_VERSION);
+        verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_HELP);
+        verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_LINK);
+        verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_AUTHORIZATION);
+        verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_FILE);
+        verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_PARALLEL);
+        verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_READ_MODE);
+        verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_DIRECTORY);
+        verify(commandLine).getOptionValue(DropDriveCmdRunner.OPTION_PROPERTIES);
+        verify(commandLine).getOptionValue(DropDriveCmdRunner.OPTION_PARALLEL);
+        verify(commandLine).getOptionValues(DropDriveCmdRunner.OPTION_FILE);
+        verify(propertiesDropDriveCredential).setPropertyFile(propertiesValue);
+        verify(uploadSetting).setFileWorkers(4);
+        verify(fileService).uploadFiles(optionFiles, (String) null);
+
+        verifyNoMoreInteractions(commandLineParser);
+        verifyNoMoreInteractions(helpFormatter);
+        verifyNoMoreInteractions(dropDriveSetting);
+        verifyNoMoreInteractions(commandLine);
+        verifyNoMoreInteractions(propertiesDropDriveCredential);
+        verifyNoMoreInteractions(uploadSetting);
+        verifyNoMoreInteractions(fileService);
+
+        verifyNoInteractions(options);
+        verifyNoInteractions(authorizationService);
+        verifyNoInteractions(codeWaiter);
+    }
+
+    @Test
+    void testRunWhereCommandLineHasInvalidParallelOption() throws ParseException, IOException {
+        String[] args = {"arg1", "arg2"};
+        Option[] optionList = {Option.builder("f").build(), Option.builder("j").build()};
+        when(commandLineParser.parse(any(Options.class), any(String[].class))).thenReturn(commandLine);
+        when(commandLine.getOptions()).thenReturn(optionList);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_FILE)).thenReturn(true);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_PARALLEL)).thenReturn(true);
+        when(commandLine.getOptionValue(DropDriveCmdRunner.OPTION_PARALLEL)).thenReturn("many");
+        when(dropDriveSetting.getApplicationName()).thenReturn("dropdrive");
+
+        runner.run(args);
+
+        verify(helpFormatter).printHelp("dropdrive", null, options, null, true);
+        verify(dropDriveSetting).getApplicationName();
+
+        verifyNoInteractions(uploadSetting);
+        verifyNoInteractions(fileService);
+    }
+
+    @Test
+    void testRunWhereCommandLineHasFileAndReadModeOptions() throws ParseException {
+        String optionFile = "test-file-value";
+        List<String> optionFiles = List.of(optionFile);
+        String[] args = {"arg1", "arg2"};
+        Option[] optionList = {Option.builder("f").build(), Option.builder("r").build()};
+        when(commandLineParser.parse(any(Options.class), any(String[].class))).thenReturn(commandLine);
+        when(commandLine.getOptions()).thenReturn(optionList);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_PROPERTIES)).thenReturn(false);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_VERSION)).thenReturn(false);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_HELP)).thenReturn(false);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_LINK)).thenReturn(false);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_AUTHORIZATION)).thenReturn(false);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_FILE)).thenReturn(true);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_PARALLEL)).thenReturn(false);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_READ_MODE)).thenReturn(true);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_DIRECTORY)).thenReturn(false);
+        when(commandLine.getOptionValue(DropDriveCmdRunner.OPTION_READ_MODE)).thenReturn("direct");
+        when(commandLine.getOptionValues(DropDriveCmdRunner.OPTION_FILE)).thenReturn(new String[]{optionFile});
+
+        runner.run(args);
+
+        verify(commandLineParser).parse(options, args);
+        verify(commandLine).getOptions();
+        verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_PROPERTIES);
+        verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_VERSION);
+        verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_HELP);
+        verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_LINK);
+        verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_AUTHORIZATION);
+        verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_FILE);
+        verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_PARALLEL);
+        verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_READ_MODE);
+        verify(commandLine).hasOption(DropDriveCmdRunner.OPTION_DIRECTORY);
+        verify(commandLine).getOptionValue(DropDriveCmdRunner.OPTION_READ_MODE);
+        verify(commandLine).getOptionValues(DropDriveCmdRunner.OPTION_FILE);
+        verify(uploadSetting).setReadMode(UploadSetting.ReadMode.DIRECT);
+        verify(fileService).uploadFiles(optionFiles, (String) null);
+
+        verifyNoMoreInteractions(commandLineParser);
+        verifyNoMoreInteractions(helpFormatter);
+        verifyNoMoreInteractions(dropDriveSetting);
+        verifyNoMoreInteractions(commandLine);
+        verifyNoMoreInteractions(uploadSetting);
+        verifyNoMoreInteractions(fileService);
+
+        verifyNoInteractions(options);
+        verifyNoInteractions(propertiesDropDriveCredential);
+        verifyNoInteractions(authorizationService);
+        verifyNoInteractions(codeWaiter);
+    }
+
+    @Test
+    void testRunWhereCommandLineHasInvalidReadModeOption() throws ParseException, IOException {
+        String[] args = {"arg1", "arg2"};
+        Option[] optionList = {Option.builder("f").build(), Option.builder("r").build()};
+        when(commandLineParser.parse(any(Options.class), any(String[].class))).thenReturn(commandLine);
+        when(commandLine.getOptions()).thenReturn(optionList);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_FILE)).thenReturn(true);
+        when(commandLine.hasOption(DropDriveCmdRunner.OPTION_READ_MODE)).thenReturn(true);
+        when(commandLine.getOptionValue(DropDriveCmdRunner.OPTION_READ_MODE)).thenReturn("cached");
+        when(dropDriveSetting.getApplicationName()).thenReturn("dropdrive");
+
+        runner.run(args);
+
+        verify(helpFormatter).printHelp("dropdrive", null, options, null, true);
+        verify(dropDriveSetting).getApplicationName();
+
+        verifyNoInteractions(uploadSetting);
+        verifyNoInteractions(fileService);
+    }
 }
@@ -0,0 +1,14 @@
+package net.czpilar.dropdrive.core.context;
+
+import org.springframework.context.annotation.EnableMBeanExport;
+import org.springframework.jmx.support.RegistrationPolicy;
+
+/**
+ * Optional context exporting usage of memory budget, buffer pool and directory cache and bandwidth limit as JMX attributes.
+ * It is not a component, so it is not picked by component scan and must be imported explicitly.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+@EnableMBeanExport(registration = RegistrationPolicy.IGNORE_EXISTING)
+public class DropDriveJmxContext {
+}
@@ -0,0 +1,13 @@
+package net.czpilar.dropdrive.core.exception;
+
+/**
+ * Exception used when requests are not executed because service repeatedly failed.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public class CircuitBreakerOpenException extends DropDriveException {
+
+    public CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package net.czpilar.dropdrive.core.exception;
+
+/**
+ * Exception used when content hash of uploaded file differs from content hash of read content.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public class ContentMismatchException extends DropDriveException {
+
+    public ContentMismatchException(String message) {
+        super(message);
+    }
+}
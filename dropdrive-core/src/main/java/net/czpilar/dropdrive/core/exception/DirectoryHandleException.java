@@ -7,6 +7,10 @@ package net.czpilar.dropdrive.core.exception;
  */
 public class DirectoryHandleException extends DropDriveException {
 
+    public DirectoryHandleException(String message) {
+        super(message);
+    }
+
     public DirectoryHandleException(String message, Throwable cause) {
         super(message, cause);
     }
@@ -0,0 +1,279 @@
+package net.czpilar.dropdrive.core.request;
+
+import com.dropbox.core.DbxApiException;
+import com.dropbox.core.DbxException;
+import com.dropbox.core.v2.DbxClientV2;
+import com.dropbox.core.v2.files.*;
+import net.czpilar.dropdrive.core.exception.DropDriveException;
+import net.czpilar.dropdrive.core.request.IConcurrencyLimiter.Operation;
+import net.czpilar.dropdrive.core.request.impl.AimdConcurrencyLimiter;
+import net.czpilar.dropdrive.core.request.impl.BackoffRetryPolicy;
+import net.czpilar.dropdrive.core.request.impl.TimedInputStream;
+import net.czpilar.dropdrive.core.setting.UploadSetting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Batch file request implementation for uploading many small files with a few requests.
+ * Upload sessions of up to {@link #MAX_BATCH_SIZE} files are started with one request,
+ * content of every file is appended to its own session, up to file workers files at once,
+ * and all sessions are committed with one request.
+ * Result of every file is returned, so a failure of one file does not fail the whole batch.
+ * Appends and commit wait for their own limits of {@link IConcurrencyLimiter}.
+ * Every appended chunk reserves its bytes from {@link IMemoryBudget} when it is set.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public class BatchFileRequest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchFileRequest.class);
+
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    /**
+     * Result of uploading one file of batch.
+     *
+     * @param localFile local file
+     * @param file      uploaded file or null if upload failed
+     * @param error     description of failure or null if upload succeeded
+     */
+    public record Result(File localFile, FileMetadata file, String error) {
+
+        public boolean isSuccess() {
+            return file != null;
+        }
+    }
+
+    private record Item(String remoteFilePath, File localFile, WriteMode writeMode) {
+    }
+
+    public static BatchFileRequest create(DbxClientV2 dbxClient) {
+        return new BatchFileRequest(dbxClient);
+    }
+
+    private final DbxClientV2 dbxClient;
+    private final List<Item> items = new ArrayList<>();
+
+    private UploadSetting uploadSetting;
+    private IBandwidthLimiter bandwidthLimiter;
+    private IMemoryBudget memoryBudget;
+    private ChunkBufferPool chunkBufferPool;
+    private IRetryPolicy retryPolicy = new BackoffRetryPolicy();
+    private IConcurrencyLimiter concurrencyLimiter = new AimdConcurrencyLimiter();
+
+    private BatchFileRequest(DbxClientV2 dbxClient) {
+        this.dbxClient = dbxClient;
+    }
+
+    public void setUploadSetting(UploadSetting uploadSetting) {
+        this.uploadSetting = uploadSetting;
+    }
+
+    public void setBandwidthLimiter(IBandwidthLimiter bandwidthLimiter) {
+        this.bandwidthLimiter = bandwidthLimiter;
+    }
+
+    public void setMemoryBudget(IMemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    public void setChunkBufferPool(ChunkBufferPool chunkBufferPool) {
+        this.chunkBufferPool = chunkBufferPool;
+    }
+
+    public void setRetryPolicy(IRetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    public void setConcurrencyLimiter(IConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    public void addInsert(String remoteFilePath, File localFile) {
+        items.add(new Item(remoteFilePath, localFile, WriteMode.ADD));
+    }
+
+    public void addUpdate(FileMetadata remoteFile, File localFile) {
+        items.add(new Item(remoteFile.getPathDisplay(), localFile, WriteMode.update(remoteFile.getRev())));
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    private int getFileWorkers() {
+        return uploadSetting == null ? 1 : Math.max(1, uploadSetting.getFileWorkers());
+    }
+
+    private int getBatchSize() {
+        int batchSize = uploadSetting == null ? MAX_BATCH_SIZE : uploadSetting.getBatchSize();
+        return Math.clamp(batchSize, 1, MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Uploads all added files and returns their results in the same order as files were added.
+     *
+     * @return results of uploaded files
+     * @throws IOException  when committing of batch fails on I/O error
+     * @throws DbxException when starting or committing of batch fails
+     */
+    public List<Result> execute() throws IOException, DbxException {
+        List<Result> results = new ArrayList<>();
+        int batchSize = getBatchSize();
+        for (int from = 0; from < items.size(); from += batchSize) {
+            results.addAll(execute(items.subList(from, Math.min(items.size(), from + batchSize))));
+        }
+        return results;
+    }
+
+    private List<Result> execute(List<Item> batch) throws IOException, DbxException {
+        LOG.info("Uploading batch of {} file(s)", batch.size());
+        List<String> sessionIds = retryPolicy.execute("starting batch", FileRequest.CHUNK_RETRIES,
+                () -> concurrencyLimiter.execute(Operation.APPEND, () -> dbxClient.files().uploadSessionStartBatch(batch.size()).getSessionIds()));
+
+        Result[] results = new Result[batch.size()];
+        UploadSessionFinishArg[] appended = appendAll(batch, sessionIds, results);
+        List<UploadSessionFinishArg> entries = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < appended.length; i++) {
+            if (appended[i] != null) {
+                entries.add(appended[i]);
+                indexes.add(i);
+            }
+        }
+
+        if (!entries.isEmpty()) {
+            List<UploadSessionFinishBatchResultEntry> finished = retryPolicy.execute("finishing batch", FileRequest.CHUNK_RETRIES,
+                    () -> concurrencyLimiter.execute(Operation.COMMIT, () -> dbxClient.files().uploadSessionFinishBatchV2(entries).getEntries()));
+            for (int i = 0; i < finished.size(); i++) {
+                int index = indexes.get(i);
+                UploadSessionFinishBatchResultEntry entry = finished.get(i);
+                File localFile = batch.get(index).localFile();
+                if (entry.isSuccess()) {
+                    results[index] = new Result(localFile, entry.getSuccessValue(), null);
+                } else {
+                    LOG.warn("Unable to commit file {} in batch, error: {}", localFile.getName(), entry.getFailureValue());
+                    results[index] = new Result(localFile, null, String.valueOf(entry.getFailureValue()));
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Appends content of all files of batch to their sessions, at most file workers files at once.
+     * Files failed to append get their result, the other files get their finish argument.
+     *
+     * @param batch      files of batch
+     * @param sessionIds sessions of files
+     * @param results    results of files filled for failed files
+     * @return finish arguments of appended files, null for failed files
+     */
+    private UploadSessionFinishArg[] appendAll(List<Item> batch, List<String> sessionIds, Result[] results) {
+        UploadSessionFinishArg[] appended = new UploadSessionFinishArg[batch.size()];
+        Semaphore permits = new Semaphore(getFileWorkers());
+        UploadSetting.ReadMode readMode = UploadSetting.getBoundReadMode();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        appended[index] = UploadSetting.callWithReadMode(readMode,
+                                () -> append(batch.get(index), sessionIds.get(index), results, index));
+                    } finally {
+                        permits.release();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    executor.shutdownNow();
+                    Thread.currentThread().interrupt();
+                    throw new DropDriveException("Uploading batch was interrupted", e);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException cause) {
+                        throw cause;
+                    }
+                    throw new DropDriveException("Unable to upload batch", e.getCause());
+                }
+            }
+        }
+        return appended;
+    }
+
+    private UploadSessionFinishArg append(Item item, String sessionId, Result[] results, int index) {
+        try {
+            long size = append(sessionId, item.localFile());
+            CommitInfo commitInfo = CommitInfo.newBuilder(item.remoteFilePath())
+                    .withMode(item.writeMode())
+                    .withClientModified(new Date(item.localFile().lastModified()))
+                    .build();
+            return new UploadSessionFinishArg(new UploadSessionCursor(sessionId, size), commitInfo);
+        } catch (IOException | DbxException | DropDriveException e) {
+            LOG.warn("Unable to upload content of file {} in batch, message: {}", item.localFile().getName(), e.getMessage());
+            results[index] = new Result(item.localFile(), null, e.getMessage());
+            return null;
+        }
+    }
+
+    private long append(String sessionId, File localFile) throws IOException, DbxException {
+        try (IChunkSource source = FileRequest.throttle(
+                FileRequest.budget(FileRequest.openChunkSource(uploadSetting, chunkBufferPool, localFile), memoryBudget), bandwidthLimiter)) {
+            long size = source.size();
+            long offset = 0;
+            int resyncs = 0;
+            do {
+                long length = Math.min(FileRequest.CHUNK_SIZE, size - offset);
+                boolean close = offset + length == size;
+                try {
+                    appendChunkWithRetries(source, sessionId, offset, length, close);
+                } catch (DbxApiException e) {
+                    long correctOffset = FileRequest.getCorrectOffset(e);
+                    if (correctOffset < 0 || correctOffset > size || resyncs >= FileRequest.CHUNK_RETRIES) {
+                        throw e;
+                    }
+                    // only chunk reaching the end of file closes the session, so session at the end is closed already
+                    resyncs++;
+                    LOG.warn("Upload session of file {} expects offset bytes {} instead of {}, continuing from expected offset", localFile.getName(), correctOffset, offset);
+                    offset = correctOffset;
+                    continue;
+                }
+                offset += length;
+            } while (offset < size);
+            return size;
+        }
+    }
+
+    private void appendChunkWithRetries(IChunkSource source, String sessionId, long offset, long length, boolean close) throws IOException, DbxException {
+        retryPolicy.execute("uploading chunk file in batch, offset bytes " + offset, FileRequest.CHUNK_RETRIES, () -> {
+            try (TimedInputStream stream = new TimedInputStream(source.openChunk(offset, length))) {
+                return concurrencyLimiter.execute(Operation.APPEND, () -> {
+                    try (UploadSessionAppendV2Uploader uploadSessionAppendUploader = dbxClient.files()
+                            .uploadSessionAppendV2Builder(new UploadSessionCursor(sessionId, offset))
+                            .withClose(close)
+                            .start()) {
+                        uploadSessionAppendUploader.uploadAndFinish(stream, length);
+                        return null;
+                    }
+                }, stream::getReadNanos);
+            }
+        });
+    }
+}
@@ -0,0 +1,213 @@
+package net.czpilar.dropdrive.core.request;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pool of off-heap buffers for chunk payloads shared by all file requests.
+ * Buffers hold chunks read ahead and chunks read with direct I/O, chunks read by other read modes are streamed from file.
+ * Buffers are allocated outside of Java heap, so reading large chunks does not churn young generation,
+ * and released buffers are kept for next chunks of any file request up to maximal pooled bytes.
+ * Capacity of buffer is rounded up to a power of two below chunk size and to a multiple of chunk size above it,
+ * so chunks of similar length share buffers. Buffers are aligned to {@link #ALIGNMENT} bytes.
+ * Buffers kept by pool are freed when pool is closed, buffers released after closing are freed at once.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+@Component
+@ManagedResource(objectName = "net.czpilar.dropdrive:type=ChunkBufferPool", description = "Pool of off-heap chunk buffers")
+public class ChunkBufferPool implements AutoCloseable {
+
+    public static final int ALIGNMENT = 4096;
+
+    /**
+     * Off-heap buffer returned to pool when closed.
+     */
+    public final class Buffer implements AutoCloseable {
+
+        private final Arena arena;
+        private final MemorySegment segment;
+
+        private boolean released;
+
+        private Buffer(long capacity) {
+            this.arena = Arena.ofShared();
+            this.segment = arena.allocate(capacity, ALIGNMENT);
+        }
+
+        /**
+         * Returns the whole segment of buffer.
+         *
+         * @return segment
+         */
+        public MemorySegment segment() {
+            return segment;
+        }
+
+        /**
+         * Returns segment of buffer with given length starting at its beginning.
+         *
+         * @param length length in bytes
+         * @return segment
+         */
+        public MemorySegment slice(long length) {
+            return segment.asSlice(0, length);
+        }
+
+        @Override
+        public void close() {
+            release(this);
+        }
+
+        private void free() {
+            arena.close();
+        }
+    }
+
+    private final long maxPooled;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Long, Deque<Buffer>> pooled = new HashMap<>();
+
+    private long pooledBytes;
+    private long allocatedBytes;
+    private long allocations;
+    private long reuses;
+    private boolean closed;
+
+    public ChunkBufferPool(@Value("${dropdrive.file.upload.buffer.pool}") long maxPooled) {
+        this.maxPooled = Math.max(0, maxPooled);
+    }
+
+    /**
+     * Returns capacity of buffer for chunk of given length.
+     *
+     * @param length length of chunk in bytes
+     * @return capacity in bytes
+     */
+    static long capacity(long length) {
+        if (length <= ALIGNMENT) {
+            return ALIGNMENT;
+        }
+        if (length < FileRequest.CHUNK_SIZE) {
+            return Long.highestOneBit(length - 1) << 1;
+        }
+        return (length + FileRequest.CHUNK_SIZE - 1) / FileRequest.CHUNK_SIZE * FileRequest.CHUNK_SIZE;
+    }
+
+    /**
+     * Takes buffer with capacity of at least given length, reusing released buffer when pool has one.
+     *
+     * @param length length of chunk in bytes
+     * @return buffer which must be closed when chunk is not needed
+     */
+    public Buffer acquire(long length) {
+        long capacity = capacity(length);
+        lock.lock();
+        try {
+            Deque<Buffer> buffers = pooled.get(capacity);
+            Buffer buffer = buffers == null ? null : buffers.poll();
+            if (buffer != null) {
+                pooledBytes -= capacity;
+                reuses++;
+                buffer.released = false;
+                return buffer;
+            }
+            allocations++;
+            allocatedBytes += capacity;
+        } finally {
+            lock.unlock();
+        }
+        return new Buffer(capacity);
+    }
+
+    private void release(Buffer buffer) {
+        long capacity = buffer.segment.byteSize();
+        lock.lock();
+        try {
+            if (buffer.released) {
+                return;
+            }
+            buffer.released = true;
+            if (!closed && pooledBytes + capacity <= maxPooled) {
+                pooled.computeIfAbsent(capacity, _ -> new ArrayDeque<>()).push(buffer);
+                pooledBytes += capacity;
+                return;
+            }
+            allocatedBytes -= capacity;
+        } finally {
+            lock.unlock();
+        }
+        buffer.free();
+    }
+
+    @ManagedAttribute(description = "Maximal bytes of released buffers kept by pool")
+    public long getMaxPooled() {
+        return maxPooled;
+    }
+
+    @ManagedAttribute(description = "Bytes of released buffers kept by pool")
+    public long getPooled() {
+        lock.lock();
+        try {
+            return pooledBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @ManagedAttribute(description = "Bytes of all allocated buffers, in use or kept by pool")
+    public long getAllocated() {
+        lock.lock();
+        try {
+            return allocatedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @ManagedAttribute(description = "Total number of allocated buffers")
+    public long getAllocations() {
+        lock.lock();
+        try {
+            return allocations;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @ManagedAttribute(description = "Total number of reused buffers")
+    public long getReuses() {
+        lock.lock();
+        try {
+            return reuses;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            pooled.values().forEach(buffers -> buffers.forEach(buffer -> {
+                allocatedBytes -= buffer.segment.byteSize();
+                buffer.free();
+            }));
+            pooled.clear();
+            pooledBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package net.czpilar.dropdrive.core.request;
+
+import net.czpilar.dropdrive.core.exception.DropDriveException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Scheduler of chunk uploads shared by all file requests.
+ * Every file request creates its own {@link Job} and chunks of all jobs are uploaded by one bounded pool of workers.
+ * Workers take chunks of jobs in round-robin, so all files being uploaded share workers fairly
+ * and a large file does not hold back smaller files uploaded at the same time.
+ * Every file request commits its upload session as soon as its own chunks are uploaded.
+ * Workers are started with the first chunk, scheduler with no workers is disabled.
+ * Chunks waiting for upload are cancelled when scheduler is closed.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+@Component
+public class ChunkScheduler implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChunkScheduler.class);
+
+    /**
+     * Chunks of one file request executed by scheduler in order of submission.
+     */
+    public class Job implements Executor {
+
+        private final Deque<Runnable> tasks = new ArrayDeque<>();
+
+        private Job() {
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            lock.lock();
+            try {
+                if (closed) {
+                    throw new DropDriveException("Chunk scheduler is closed");
+                }
+                startWorkers();
+                if (tasks.isEmpty()) {
+                    ready.add(this);
+                }
+                tasks.add(task);
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private final int workers;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<Job> ready = new ArrayDeque<>();
+
+    private boolean started;
+    private boolean closed;
+
+    public ChunkScheduler(@Value("${dropdrive.file.upload.scheduler.workers}") int workers) {
+        this.workers = workers;
+    }
+
+    /**
+     * Returns true if scheduler has workers for uploading chunks.
+     *
+     * @return true if scheduler is enabled
+     */
+    public boolean isEnabled() {
+        return workers > 0;
+    }
+
+    /**
+     * Creates new job for chunks of one file request.
+     *
+     * @return job
+     */
+    public Job createJob() {
+        return new Job();
+    }
+
+    private void startWorkers() {
+        if (!started) {
+            started = true;
+            for (int i = 0; i < Math.max(1, workers); i++) {
+                Thread.ofPlatform().daemon().name("dropdrive-chunk-" + i).start(this::work);
+            }
+        }
+    }
+
+    private Runnable take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (ready.isEmpty()) {
+                if (closed) {
+                    return null;
+                }
+                available.await();
+            }
+            Job job = ready.poll();
+            Runnable task = job.tasks.poll();
+            if (!job.tasks.isEmpty()) {
+                ready.add(job);
+            }
+            return task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void work() {
+        try {
+            Runnable task;
+            while ((task = take()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    LOG.error("Error during executing chunk task.", e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            for (Job job : ready) {
+                for (Runnable task : job.tasks) {
+                    if (task instanceof Future<?> future) {
+                        future.cancel(false);
+                    }
+                }
+                job.tasks.clear();
+            }
+            ready.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,21 +1,50 @@
 package net.czpilar.dropdrive.core.request;
 
+import com.dropbox.core.DbxApiException;
 import com.dropbox.core.DbxException;
 import com.dropbox.core.v2.DbxClientV2;
 import com.dropbox.core.v2.files.*;
+import net.czpilar.dropdrive.core.exception.ContentMismatchException;
 import net.czpilar.dropdrive.core.exception.DropDriveException;
 import net.czpilar.dropdrive.core.listener.IFileUploadProgressListener;
+import net.czpilar.dropdrive.core.request.IConcurrencyLimiter.Operation;
+import net.czpilar.dropdrive.core.request.impl.AdaptiveChunkSizer;
+import net.czpilar.dropdrive.core.request.impl.AimdConcurrencyLimiter;
+import net.czpilar.dropdrive.core.request.impl.BackoffRetryPolicy;
+import net.czpilar.dropdrive.core.request.impl.BudgetedChunkSource;
+import net.czpilar.dropdrive.core.request.impl.DirectChunkSource;
+import net.czpilar.dropdrive.core.request.impl.FileChannelChunkSource;
+import net.czpilar.dropdrive.core.request.impl.FixedChunkSizer;
+import net.czpilar.dropdrive.core.request.impl.MappedChunkSource;
+import net.czpilar.dropdrive.core.request.impl.ReadAheadChunkSource;
+import net.czpilar.dropdrive.core.request.impl.ThrottledChunkSource;
+import net.czpilar.dropdrive.core.request.impl.TimedInputStream;
+import net.czpilar.dropdrive.core.setting.UploadSetting;
+import net.czpilar.dropdrive.core.util.BlockHashes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * File request implementation for uploading file using chunk file upload.
+ * Chunks are read by position from {@link IChunkSource}, so every retry reads the chunk again from the file.
  *
  * @author David Pilar (david@czpilar.net)
  */
@@ -24,7 +53,12 @@ public class FileRequest {
     private static final Logger LOG = LoggerFactory.getLogger(FileRequest.class);
 
     public static final int CHUNK_SIZE = 4194304; // 4MB
+    public static final int MAX_CHUNK_SIZE = 37 * CHUNK_SIZE; // 148MB, the largest multiple of 4MB within 150MB API limit
     public static final int CHUNK_RETRIES = 5;
+    public static final int VERIFY_RETRIES = 1;
+
+    private static final Executor CHUNK_EXECUTOR = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("dropdrive-chunk-worker-", 0).factory());
 
     public static FileRequest createInsert(DbxClientV2 dbxClient, String remoteFilePath, File localFile) {
         return new FileRequest(dbxClient, remoteFilePath, localFile, WriteMode.ADD);
@@ -37,9 +71,18 @@ public class FileRequest {
     private final DbxClientV2 dbxClient;
     private final String remoteFilePath;
     private final File localFile;
-    private final WriteMode writeMode;
 
+    private WriteMode writeMode;
     private IFileUploadProgressListener progressListener;
+    private UploadSetting uploadSetting;
+    private IBandwidthLimiter bandwidthLimiter;
+    private IMemoryBudget memoryBudget;
+    private ChunkBufferPool chunkBufferPool;
+    private IRetryPolicy retryPolicy = new BackoffRetryPolicy();
+    private IConcurrencyLimiter concurrencyLimiter = new AimdConcurrencyLimiter();
+    private ChunkScheduler chunkScheduler;
+    private UploadJournal.Entry session;
+    private BlockHashes blockHashes;
 
     private FileRequest(DbxClientV2 dbxClient, String remoteFilePath, File localFile, WriteMode writeMode) {
         this.dbxClient = dbxClient;
@@ -52,57 +95,499 @@ public class FileRequest {
         this.progressListener = progressListener;
     }
 
+    public void setUploadSetting(UploadSetting uploadSetting) {
+        this.uploadSetting = uploadSetting;
+    }
+
+    public void setBandwidthLimiter(IBandwidthLimiter bandwidthLimiter) {
+        this.bandwidthLimiter = bandwidthLimiter;
+    }
+
+    public void setMemoryBudget(IMemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    public void setChunkBufferPool(ChunkBufferPool chunkBufferPool) {
+        this.chunkBufferPool = chunkBufferPool;
+    }
+
+    public void setRetryPolicy(IRetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    public void setConcurrencyLimiter(IConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    public void setChunkScheduler(ChunkScheduler chunkScheduler) {
+        this.chunkScheduler = chunkScheduler;
+    }
+
+    static IChunkSource openChunkSource(UploadSetting uploadSetting, ChunkBufferPool chunkBufferPool, File localFile) throws IOException {
+        UploadSetting.ReadMode readMode = uploadSetting == null ? UploadSetting.ReadMode.CHANNEL : uploadSetting.getReadMode();
+        return switch (readMode) {
+            case MAPPED -> new MappedChunkSource(localFile.toPath());
+            case CHANNEL -> new FileChannelChunkSource(localFile.toPath());
+            case DIRECT -> DirectChunkSource.open(localFile.toPath(), chunkBufferPool);
+        };
+    }
+
+    static IChunkSource throttle(IChunkSource source, IBandwidthLimiter bandwidthLimiter) {
+        // limiter does not wait while bandwidth is not limited, so limit set at runtime applies to running uploads too
+        return bandwidthLimiter == null ? source : new ThrottledChunkSource(source, bandwidthLimiter);
+    }
+
+    static IChunkSource budget(IChunkSource source, IMemoryBudget memoryBudget) {
+        return memoryBudget == null ? source : new BudgetedChunkSource(source, memoryBudget);
+    }
+
+    /**
+     * Opens chunk source whose chunks reserve their bytes from memory budget and are throttled by bandwidth limiter
+     * when they are set.
+     */
+    private IChunkSource openChunkSource() throws IOException {
+        return throttle(budget(openChunkSource(uploadSetting, chunkBufferPool, localFile), memoryBudget), bandwidthLimiter);
+    }
+
+    /**
+     * Opens chunk source of sequential upload reading next chunks ahead into buffers of shared pool
+     * while current chunk is uploaded when read ahead is configured.
+     */
+    private IChunkSource openSequentialChunkSource() throws IOException {
+        IChunkSource source = openChunkSource(uploadSetting, chunkBufferPool, localFile);
+        int readAhead = uploadSetting == null ? 0 : uploadSetting.getReadAhead();
+        if (readAhead > 0) {
+            try {
+                source = new ReadAheadChunkSource(source, readAhead, memoryBudget, chunkBufferPool);
+            } catch (IOException | RuntimeException e) {
+                source.close();
+                throw e;
+            }
+        } else {
+            source = budget(source, memoryBudget);
+        }
+        return throttle(source, bandwidthLimiter);
+    }
+
+    private IChunkSizer createChunkSizer() {
+        if (uploadSetting != null && uploadSetting.isChunkAdaptive()) {
+            return new AdaptiveChunkSizer(CHUNK_SIZE, MAX_CHUNK_SIZE, TimeUnit.MILLISECONDS.toNanos(uploadSetting.getChunkAdaptiveTarget()));
+        }
+        return new FixedChunkSizer(CHUNK_SIZE);
+    }
+
+    private boolean isJournaled() {
+        return uploadSetting != null && uploadSetting.getJournalDir() != null;
+    }
+
+    private UploadJournal createUploadJournal() {
+        return isJournaled() ? new UploadJournal(Path.of(uploadSetting.getJournalDir())) : null;
+    }
+
+    private boolean isScheduled() {
+        return chunkScheduler != null && chunkScheduler.isEnabled();
+    }
+
+    private int getChunkWorkers() {
+        return uploadSetting == null ? 1 : uploadSetting.getChunkWorkers();
+    }
+
+    private long getSingleThreshold() {
+        // threshold is never negative, so empty files are always uploaded with one request
+        return uploadSetting == null ? CHUNK_SIZE : Math.clamp(uploadSetting.getSingleThreshold(), 0, MAX_CHUNK_SIZE);
+    }
+
+    private boolean isVerified() {
+        return uploadSetting != null && uploadSetting.isVerify();
+    }
+
+    /**
+     * Starts hashing blocks of content of given size read by this upload.
+     * Hashes of blocks read by previous execution are kept while its upload session continues with the same size.
+     *
+     * @param size size of uploaded content
+     */
+    private void startHashing(long size) {
+        if (!isVerified()) {
+            blockHashes = null;
+        } else if (session == null || blockHashes == null || blockHashes.size() != size) {
+            blockHashes = new BlockHashes(size);
+        }
+    }
+
+    private InputStream hashing(InputStream stream, long offset, long length) {
+        return blockHashes == null ? stream : blockHashes.hashing(stream, offset, length);
+    }
+
+    /**
+     * Uploads file and returns committed file.
+     * Upload session is kept by request, so executing failed request again continues its upload session.
+     * When verification is configured, content hash of content read for upload is compared with content hash
+     * of committed file and mismatching file is uploaded once more over its committed revision.
+     *
+     * @return committed file
+     * @throws IOException  when file cannot be read
+     * @throws DbxException when upload fails
+     */
     public FileMetadata execute() throws IOException, DbxException {
-        long offsetBytes = 0;
+        int mismatches = 0;
+        while (true) {
+            FileMetadata file = upload();
+            if (file != null && blockHashes != null && localFile.length() != blockHashes.size()) {
+                LOG.warn("File {} changed its size from {} to {} bytes during upload, uploaded file has size read at start of upload",
+                        localFile.getName(), blockHashes.size(), localFile.length());
+            }
+            if (verify(file)) {
+                return file;
+            }
+            if (++mismatches > VERIFY_RETRIES) {
+                throw new ContentMismatchException("Content hash of uploaded file " + localFile.getName() + " does not match content hash of local file");
+            }
+            LOG.warn("Content hash of uploaded file {} does not match content hash of local file, uploading it again", localFile.getName());
+            writeMode = WriteMode.update(file.getRev());
+        }
+    }
 
-        progress(IFileUploadProgressListener.State.INITIATION, offsetBytes);
+    /**
+     * Returns true if content hash of committed file matches content hash of uploaded content
+     * or if content hash of uploaded content is not known.
+     *
+     * @param file committed file
+     * @return true if file is verified
+     */
+    private boolean verify(FileMetadata file) {
+        if (blockHashes == null || file == null || file.getContentHash() == null) {
+            return true;
+        }
+        String contentHash = blockHashes.contentHash();
+        if (contentHash == null) {
+            LOG.debug("Content of file {} was not read in whole by this upload, skipping verification", localFile.getName());
+            return true;
+        }
+        return contentHash.equalsIgnoreCase(file.getContentHash());
+    }
 
-        try (FileInputStream stream = new FileInputStream(localFile)) {
-            long size = localFile.length();
+    /**
+     * Uploads empty and small files with one request, large files concurrently by chunk or scheduler workers
+     * and other files sequentially with chunks sized by {@link IChunkSizer}.
+     * Progress of sequential upload is written to {@link UploadJournal} when journal directory is configured,
+     * so an interrupted upload continues from the last committed offset, and upload continues from the offset
+     * expected by upload session when it expects another one. Concurrent upload is not journaled, because its chunks
+     * are appended out of order and there is no committed offset to continue from.
+     */
+    private FileMetadata upload() throws IOException, DbxException {
+        if (localFile.length() <= getSingleThreshold()) {
+            return executeSingle();
+        }
+        if ((isScheduled() || getChunkWorkers() > 1) && localFile.length() > CHUNK_SIZE) {
+            return executeConcurrently();
+        }
+
+        try (IChunkSource source = openSequentialChunkSource()) {
+            long size = source.size();
+            startHashing(size);
+            UploadJournal journal = createUploadJournal();
+            UploadJournal.Entry entry = session;
+            if (entry == null && journal != null) {
+                entry = journal.find(localFile, remoteFilePath).orElse(null);
+            }
             String chunkId = null;
+            long offsetBytes = 0;
+            long created = System.currentTimeMillis();
+            if (entry != null) {
+                LOG.info("Resuming upload of file {} from offset bytes {}", localFile.getName(), entry.offset());
+                chunkId = entry.sessionId();
+                offsetBytes = entry.offset();
+                created = entry.created();
+            }
+
+            progress(IFileUploadProgressListener.State.INITIATION, offsetBytes);
+
+            IChunkSizer chunkSizer = createChunkSizer();
+            int resyncs = 0;
+
+            while (true) {
+                try {
+                    while (offsetBytes < size) {
+                        long readBytes = size - offsetBytes;
+                        if (readBytes > chunkSizer.nextChunkSize()) {
+                            readBytes = chunkSizer.nextChunkSize();
+                        }
+                        long start = System.nanoTime();
+                        chunkId = uploadChunkWithRetries(source, chunkSizer, offsetBytes, chunkId, readBytes);
+                        chunkSizer.chunkUploaded(readBytes, System.nanoTime() - start);
+                        offsetBytes += readBytes;
+                        saveSession(journal, new UploadJournal.Entry(chunkId, offsetBytes, created));
+                        progress(IFileUploadProgressListener.State.IN_PROGRESS, offsetBytes);
+                    }
+
+                    if (chunkId == null) {
+                        throw new DropDriveException("No chunk found");
+                    }
 
-            while (offsetBytes < size) {
-                long readBytes = size - offsetBytes;
-                if (readBytes > CHUNK_SIZE) {
-                    readBytes = CHUNK_SIZE;
+                    FileMetadata file = finish(new UploadSessionCursor(chunkId, offsetBytes));
+                    removeSession(journal);
+                    return file;
+                } catch (DbxApiException e) {
+                    long correctOffset = getCorrectOffset(e);
+                    if (chunkId != null && correctOffset >= 0 && correctOffset <= size && resyncs < CHUNK_RETRIES) {
+                        resyncs++;
+                        LOG.warn("Upload session of file {} expects offset bytes {} instead of {}, continuing from expected offset", localFile.getName(), correctOffset, offsetBytes);
+                        offsetBytes = correctOffset;
+                        saveSession(journal, new UploadJournal.Entry(chunkId, offsetBytes, created));
+                        progress(IFileUploadProgressListener.State.IN_PROGRESS, offsetBytes);
+                        continue;
+                    }
+                    if (entry == null || offsetBytes != entry.offset() || !isSessionLost(e)) {
+                        throw e;
+                    }
+                    LOG.warn("Unable to resume upload of file {}, starting over, message: {}", localFile.getName(), e.getMessage());
+                    removeSession(journal);
+                    entry = null;
+                    chunkId = null;
+                    offsetBytes = 0;
+                    created = System.currentTimeMillis();
                 }
-                chunkId = uploadChunkWithRetries(offsetBytes, stream, chunkId, readBytes);
-                offsetBytes += readBytes;
-                progress(IFileUploadProgressListener.State.IN_PROGRESS, offsetBytes);
             }
+        }
+    }
+
+    private void saveSession(UploadJournal journal, UploadJournal.Entry entry) {
+        session = entry;
+        if (journal != null) {
+            journal.save(localFile, remoteFilePath, entry);
+        }
+    }
+
+    private void removeSession(UploadJournal journal) {
+        session = null;
+        if (journal != null) {
+            journal.remove(localFile, remoteFilePath);
+        }
+    }
+
+    /**
+     * Returns offset expected by upload session when request failed on incorrect offset.
+     *
+     * @param e exception of failed request
+     * @return expected offset in bytes or -1 if request did not fail on incorrect offset
+     */
+    static long getCorrectOffset(DbxApiException e) {
+        return switch (e) {
+            case UploadSessionAppendErrorException appendError when appendError.errorValue.isIncorrectOffset() ->
+                    appendError.errorValue.getIncorrectOffsetValue().getCorrectOffset();
+            case UploadSessionLookupErrorException lookupError when lookupError.errorValue.isIncorrectOffset() ->
+                    lookupError.errorValue.getIncorrectOffsetValue().getCorrectOffset();
+            case UploadSessionFinishErrorException finishError when finishError.errorValue.isLookupFailed()
+                    && finishError.errorValue.getLookupFailedValue().isIncorrectOffset() ->
+                    finishError.errorValue.getLookupFailedValue().getIncorrectOffsetValue().getCorrectOffset();
+            default -> -1;
+        };
+    }
+
+    /**
+     * Returns true if request failed because upload session was not found, expired or was already closed,
+     * so upload cannot continue in it. Expired session is reported as not found.
+     *
+     * @param e exception of failed request
+     * @return true if upload session is lost
+     */
+    static boolean isSessionLost(DbxApiException e) {
+        return switch (e) {
+            case UploadSessionAppendErrorException appendError ->
+                    appendError.errorValue.isNotFound() || appendError.errorValue.isClosed();
+            case UploadSessionLookupErrorException lookupError -> isSessionLost(lookupError.errorValue);
+            case UploadSessionFinishErrorException finishError ->
+                    finishError.errorValue.isLookupFailed() && isSessionLost(finishError.errorValue.getLookupFailedValue());
+            default -> false;
+        };
+    }
+
+    private static boolean isSessionLost(UploadSessionLookupError error) {
+        return error.isNotFound() || error.isClosed();
+    }
+
+    private FileMetadata executeSingle() throws IOException, DbxException {
+        progress(IFileUploadProgressListener.State.INITIATION, 0);
 
-            if (chunkId == null) {
-                throw new DropDriveException("No chunk found");
+        try (IChunkSource source = openChunkSource()) {
+            startHashing(source.size());
+            // memory budget is reserved by opening chunk before waiting for limit, never while holding it
+            FileMetadata file;
+            try (TimedInputStream stream = new TimedInputStream(hashing(source.openChunk(0, source.size()), 0, source.size()))) {
+                file = concurrencyLimiter.execute(Operation.UPLOAD, () -> dbxClient.files().uploadBuilder(remoteFilePath)
+                        .withMode(writeMode)
+                        .withClientModified(new Date(localFile.lastModified()))
+                        .uploadAndFinish(stream, source.size()), stream::getReadNanos);
             }
+            progress(IFileUploadProgressListener.State.COMPLETE, source.size());
+            return file;
+        }
+    }
 
-            UploadSessionCursor cursor = new UploadSessionCursor(chunkId, offsetBytes);
-            CommitInfo commitInfo = CommitInfo.newBuilder(remoteFilePath)
-                    .withMode(writeMode)
-                    .withClientModified(new Date(localFile.lastModified()))
-                    .build();
-            try (UploadSessionFinishUploader uploadSessionFinishUploader = dbxClient.files().uploadSessionFinish(cursor, commitInfo)) {
-                FileMetadata file = uploadSessionFinishUploader.finish();
-                progress(IFileUploadProgressListener.State.COMPLETE, offsetBytes);
-                return file;
+    private FileMetadata executeConcurrently() throws IOException, DbxException {
+        if (isJournaled()) {
+            LOG.info("Upload of file {} by concurrent chunks is not journaled and cannot be resumed when interrupted", localFile.getName());
+        }
+        progress(IFileUploadProgressListener.State.INITIATION, 0);
+
+        try (IChunkSource source = openChunkSource()) {
+            long size = source.size();
+            startHashing(size);
+            String sessionId = startConcurrentSession();
+            progress(IFileUploadProgressListener.State.IN_PROGRESS, 0);
+
+            // all chunks but the last one must be a multiple of chunk size, the last one closes the session
+            long lastOffset = ((size - 1) / CHUNK_SIZE) * CHUNK_SIZE;
+            AtomicLong uploadedBytes = new AtomicLong();
+            AtomicBoolean failed = new AtomicBoolean();
+            // scheduler bounds workers of all files, otherwise chunk workers bound chunks of this file in flight
+            Semaphore workers = isScheduled() ? null : new Semaphore(getChunkWorkers());
+            CompletionService<Void> chunks = new ExecutorCompletionService<>(isScheduled() ? chunkScheduler.createJob() : CHUNK_EXECUTOR);
+            List<Future<?>> futures = new ArrayList<>();
+            try {
+                for (long offset = 0; offset < lastOffset && !failed.get(); offset += CHUNK_SIZE) {
+                    long chunkOffset = offset;
+                    acquire(workers);
+                    futures.add(submit(chunks, workers, failed, () -> {
+                        appendChunkWithRetries(source, sessionId, chunkOffset, CHUNK_SIZE, false);
+                        progress(IFileUploadProgressListener.State.IN_PROGRESS, uploadedBytes.addAndGet(CHUNK_SIZE));
+                    }));
+                }
+                await(chunks, futures.size());
+
+                acquire(workers);
+                futures.add(submit(chunks, workers, failed,
+                        () -> appendChunkWithRetries(source, sessionId, lastOffset, size - lastOffset, true)));
+                await(chunks, 1);
+                progress(IFileUploadProgressListener.State.IN_PROGRESS, size);
+            } finally {
+                // workers of scheduler are not interrupted, they keep uploading chunks of other files
+                boolean interrupt = !isScheduled();
+                futures.forEach(future -> future.cancel(interrupt));
             }
+
+            return finish(new UploadSessionCursor(sessionId, size));
         }
     }
 
-    private String uploadChunkWithRetries(long offsetBytes, InputStream stream, String chunkId, long readBytes) throws DbxException, IOException {
-        int retry = 0;
-        while (true) {
+    @FunctionalInterface
+    private interface ChunkTask {
+
+        void run() throws IOException, DbxException;
+    }
+
+    private static void acquire(Semaphore workers) {
+        if (workers != null) {
             try {
-                return uploadChunk(offsetBytes, stream, chunkId, readBytes);
-            } catch (DbxException e) {
-                retry++;
-                if (retry > CHUNK_RETRIES) {
+                workers.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DropDriveException("Uploading chunks was interrupted", e);
+            }
+        }
+    }
+
+    /**
+     * Submits chunk task releasing its worker when it is done. Failed task stops submitting next chunks.
+     */
+    private static Future<?> submit(CompletionService<Void> chunks, Semaphore workers, AtomicBoolean failed, ChunkTask task) {
+        try {
+            return chunks.submit(() -> {
+                try {
+                    task.run();
+                    return null;
+                } catch (IOException | DbxException | RuntimeException e) {
+                    failed.set(true);
                     throw e;
+                } finally {
+                    if (workers != null) {
+                        workers.release();
+                    }
                 }
-                LOG.warn("Error during executing uploading chunk file, offset bytes {}, retrying for {} time(s), message: {}", offsetBytes, retry, e.getMessage());
+            });
+        } catch (RuntimeException e) {
+            if (workers != null) {
+                workers.release();
             }
+            throw e;
         }
     }
 
+    private String startConcurrentSession() throws IOException, DbxException {
+        return concurrencyLimiter.execute(Operation.APPEND, () -> {
+            try (UploadSessionStartUploader uploadSessionStartUploader = dbxClient.files().uploadSessionStartBuilder()
+                    .withSessionType(UploadSessionType.CONCURRENT)
+                    .start()) {
+                return uploadSessionStartUploader.uploadAndFinish(InputStream.nullInputStream()).getSessionId();
+            }
+        });
+    }
+
+    private void appendChunkWithRetries(IChunkSource source, String sessionId, long offset, long length, boolean close) throws IOException, DbxException {
+        retryPolicy.execute("uploading chunk file concurrently, offset bytes " + offset, CHUNK_RETRIES, () -> {
+            try (TimedInputStream stream = new TimedInputStream(hashing(source.openChunk(offset, length), offset, length))) {
+                return concurrencyLimiter.execute(Operation.APPEND, () -> {
+                    try (UploadSessionAppendV2Uploader uploadSessionAppendUploader = dbxClient.files()
+                            .uploadSessionAppendV2Builder(new UploadSessionCursor(sessionId, offset))
+                            .withClose(close)
+                            .start()) {
+                        uploadSessionAppendUploader.uploadAndFinish(stream, length);
+                        return null;
+                    }
+                }, stream::getReadNanos);
+            }
+        });
+    }
+
+    /**
+     * Waits for given number of chunks in order of their completion, so the first failed chunk fails upload
+     * without waiting for chunks uploaded before it.
+     */
+    private void await(CompletionService<Void> chunks, int count) throws IOException, DbxException {
+        try {
+            for (int i = 0; i < count; i++) {
+                chunks.take().get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DropDriveException("Uploading chunks was interrupted", e);
+        } catch (ExecutionException e) {
+            switch (e.getCause()) {
+                case DbxException cause -> throw cause;
+                case IOException cause -> throw cause;
+                case RuntimeException cause -> throw cause;
+                default -> throw new DropDriveException("Unable to upload chunk", e.getCause());
+            }
+        }
+    }
+
+    private FileMetadata finish(UploadSessionCursor cursor) throws IOException, DbxException {
+        CommitInfo commitInfo = CommitInfo.newBuilder(remoteFilePath)
+                .withMode(writeMode)
+                .withClientModified(new Date(localFile.lastModified()))
+                .build();
+        FileMetadata file = retryPolicy.execute("finishing upload session", CHUNK_RETRIES,
+                () -> concurrencyLimiter.execute(Operation.COMMIT, () -> {
+                    try (UploadSessionFinishUploader uploadSessionFinishUploader = dbxClient.files().uploadSessionFinish(cursor, commitInfo)) {
+                        return uploadSessionFinishUploader.finish();
+                    }
+                }));
+        progress(IFileUploadProgressListener.State.COMPLETE, cursor.getOffset());
+        return file;
+    }
+
+    private String uploadChunkWithRetries(IChunkSource source, IChunkSizer chunkSizer, long offsetBytes, String chunkId, long readBytes) throws DbxException, IOException {
+        return retryPolicy.execute("uploading chunk file, offset bytes " + offsetBytes, CHUNK_RETRIES, () -> {
+            try (TimedInputStream stream = new TimedInputStream(hashing(source.openChunk(offsetBytes, readBytes), offsetBytes, readBytes))) {
+                return concurrencyLimiter.execute(Operation.APPEND, () -> uploadChunk(offsetBytes, stream, chunkId, readBytes), stream::getReadNanos);
+            } catch (DbxException e) {
+                chunkSizer.chunkFailed();
+                throw e;
+            }
+        });
+    }
+
     private String uploadChunk(long offset, InputStream stream, String chunkId, long read) throws DbxException, IOException {
         if (offset == 0) {
             progress(IFileUploadProgressListener.State.IN_PROGRESS, offset);
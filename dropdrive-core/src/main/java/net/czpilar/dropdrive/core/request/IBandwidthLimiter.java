@@ -0,0 +1,45 @@
+package net.czpilar.dropdrive.core.request;
+
+/**
+ * Interface for limiting bandwidth of uploaded content shared by all uploads.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public interface IBandwidthLimiter {
+
+    /**
+     * Acquires permission to upload given number of bytes, blocking while limit is exceeded.
+     *
+     * @param bytes number of bytes
+     * @throws InterruptedException when waiting is interrupted
+     */
+    void acquire(long bytes) throws InterruptedException;
+
+    /**
+     * Returns limit in bytes per second applied at this moment.
+     *
+     * @return limit in bytes per second or 0 if bandwidth is not limited
+     */
+    long getLimit();
+
+    /**
+     * Returns true if bandwidth is limited by default limit or by limit of any scheduled time window.
+     *
+     * @return true if bandwidth is limited at least for a while
+     */
+    boolean isLimited();
+
+    /**
+     * Changes default limit applied outside of scheduled time windows.
+     *
+     * @param limit limit in bytes per second or 0 for unlimited bandwidth
+     */
+    void setLimit(long limit);
+
+    /**
+     * Changes schedule of limits in time windows of day.
+     *
+     * @param schedule comma separated time windows in format {@code HH:mm-HH:mm=limit} or empty for no schedule
+     */
+    void setSchedule(String schedule);
+}
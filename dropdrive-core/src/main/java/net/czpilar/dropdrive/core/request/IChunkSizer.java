@@ -0,0 +1,29 @@
+package net.czpilar.dropdrive.core.request;
+
+/**
+ * Interface for deciding size of chunks uploaded in one request.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public interface IChunkSizer {
+
+    /**
+     * Returns size of the next chunk in bytes.
+     *
+     * @return chunk size in bytes
+     */
+    long nextChunkSize();
+
+    /**
+     * Records successfully uploaded chunk.
+     *
+     * @param bytes uploaded bytes
+     * @param nanos duration of upload in nanoseconds
+     */
+    void chunkUploaded(long bytes, long nanos);
+
+    /**
+     * Records failed upload of chunk.
+     */
+    void chunkFailed();
+}
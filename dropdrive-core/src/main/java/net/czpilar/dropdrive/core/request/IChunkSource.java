@@ -0,0 +1,58 @@
+package net.czpilar.dropdrive.core.request;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Interface for source of file chunks read by position.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public interface IChunkSource extends Closeable {
+
+    /**
+     * Returns size of the source in bytes.
+     *
+     * @return size in bytes
+     * @throws IOException when size cannot be read
+     */
+    long size() throws IOException;
+
+    /**
+     * Opens stream of chunk starting at given offset with given length.
+     * Chunks can be opened repeatedly and concurrently; every opened stream must be closed.
+     *
+     * @param offset offset of chunk in bytes
+     * @param length length of chunk in bytes
+     * @return stream of chunk
+     * @throws IOException when chunk cannot be opened
+     */
+    InputStream openChunk(long offset, long length) throws IOException;
+
+    /**
+     * Reads chunk starting at given offset into the whole target segment.
+     * Default implementation copies bytes of opened chunk stream, sources able to read into
+     * native memory directly override it.
+     *
+     * @param offset offset of chunk in bytes
+     * @param target segment filled with bytes of chunk
+     * @throws IOException when chunk cannot be read or source ends before end of chunk
+     */
+    default void readChunk(long offset, MemorySegment target) throws IOException {
+        try (InputStream stream = openChunk(offset, target.byteSize());
+             ReadableByteChannel channel = Channels.newChannel(stream)) {
+            ByteBuffer buffer = target.asByteBuffer();
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Unexpected end of file at offset " + (offset + buffer.position()));
+                }
+            }
+        }
+    }
+}
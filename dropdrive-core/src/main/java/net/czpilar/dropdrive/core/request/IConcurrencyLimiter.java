@@ -0,0 +1,73 @@
+package net.czpilar.dropdrive.core.request;
+
+import com.dropbox.core.DbxException;
+
+import java.io.IOException;
+import java.util.function.LongSupplier;
+
+/**
+ * Interface for limiting number of requests to Dropbox executed at once.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public interface IConcurrencyLimiter {
+
+    /**
+     * Kind of request with its own limit.
+     */
+    enum Operation {
+        /**
+         * Request starting upload session or appending content to it.
+         */
+        APPEND,
+        /**
+         * Request committing content to file or creating folder.
+         */
+        COMMIT,
+        /**
+         * Request reading metadata of file or folder.
+         */
+        METADATA,
+        /**
+         * Request uploading and committing whole file at once.
+         */
+        UPLOAD
+    }
+
+    /**
+     * Executes call once number of executed requests of given operation is below its limit, blocking until then.
+     *
+     * @param operation operation of call
+     * @param call      call of request
+     * @param <T>       type of result
+     * @return result of call
+     * @throws IOException  when call fails on I/O error
+     * @throws DbxException when call fails
+     */
+    default <T> T execute(Operation operation, IRetryPolicy.Call<T> call) throws IOException, DbxException {
+        return execute(operation, call, () -> 0);
+    }
+
+    /**
+     * Executes call once number of executed requests of given operation is below its limit, blocking until then.
+     * Time spent outside of request, e.g. in reading uploaded content from file or waiting for bandwidth,
+     * is not counted to latency of request.
+     *
+     * @param operation     operation of call
+     * @param call          call of request
+     * @param excludedNanos supplier of time in nanoseconds spent outside of request while executing call
+     * @param <T>           type of result
+     * @return result of call
+     * @throws IOException  when call fails on I/O error
+     * @throws DbxException when call fails
+     */
+    <T> T execute(Operation operation, IRetryPolicy.Call<T> call, LongSupplier excludedNanos) throws IOException, DbxException;
+
+    /**
+     * Returns current limit of requests of given operation executed at once.
+     *
+     * @param operation operation
+     * @return limit or 0 if requests of operation are not limited
+     */
+    int getLimit(Operation operation);
+}
@@ -0,0 +1,68 @@
+package net.czpilar.dropdrive.core.request;
+
+/**
+ * Interface for limiting memory of chunk buffers in flight shared by all uploads.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public interface IMemoryBudget {
+
+    /**
+     * Reserves given number of bytes of chunk buffers, blocking while budget is used up.
+     * Request larger than the whole budget reserves the whole budget.
+     *
+     * @param bytes number of bytes
+     * @return number of reserved bytes which must be released
+     * @throws InterruptedException when waiting is interrupted
+     */
+    long acquire(long bytes) throws InterruptedException;
+
+    /**
+     * Releases bytes reserved by {@link #acquire(long)}.
+     *
+     * @param bytes number of reserved bytes
+     */
+    void release(long bytes);
+
+    /**
+     * Returns budget of chunk buffers in bytes.
+     *
+     * @return budget in bytes or 0 if memory of chunk buffers is not limited
+     */
+    long getLimit();
+
+    /**
+     * Returns number of bytes of chunk buffers in flight.
+     *
+     * @return used bytes
+     */
+    long getUsed();
+
+    /**
+     * Returns the largest number of bytes of chunk buffers in flight at once.
+     *
+     * @return peak of used bytes
+     */
+    long getPeak();
+
+    /**
+     * Returns number of reservations waiting for budget at this moment.
+     *
+     * @return number of waiting reservations
+     */
+    int getWaiting();
+
+    /**
+     * Returns total number of reservations which had to wait for budget.
+     *
+     * @return number of waits
+     */
+    long getWaits();
+
+    /**
+     * Returns total time of waiting for budget in milliseconds.
+     *
+     * @return wait time in milliseconds
+     */
+    long getWaitTime();
+}
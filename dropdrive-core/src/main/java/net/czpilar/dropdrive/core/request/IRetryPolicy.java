@@ -0,0 +1,45 @@
+package net.czpilar.dropdrive.core.request;
+
+import com.dropbox.core.DbxException;
+
+import java.io.IOException;
+
+/**
+ * Interface for retrying failed requests to Dropbox.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public interface IRetryPolicy {
+
+    /**
+     * Call of request to Dropbox.
+     *
+     * @param <T> type of result
+     */
+    @FunctionalInterface
+    interface Call<T> {
+
+        T call() throws IOException, DbxException;
+    }
+
+    /**
+     * Executes call and retries it on retryable failure.
+     *
+     * @param operation description of operation used in log
+     * @param retries   maximal number of retries
+     * @param call      call of request
+     * @param <T>       type of result
+     * @return result of call
+     * @throws IOException  when call fails on I/O error
+     * @throws DbxException when call fails with fatal error or when all retries fail
+     */
+    <T> T execute(String operation, int retries, Call<T> call) throws IOException, DbxException;
+
+    /**
+     * Returns true if request failed with given exception can be retried.
+     *
+     * @param e exception
+     * @return true if request can be retried
+     */
+    boolean isRetryable(DbxException e);
+}
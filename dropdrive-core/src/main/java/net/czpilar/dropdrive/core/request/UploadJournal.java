@@ -0,0 +1,142 @@
+package net.czpilar.dropdrive.core.request;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * On-disk journal of upload sessions used for resuming interrupted uploads.
+ * Every upload has its own small properties file in journal directory holding local file size and last modified time,
+ * upload session id and committed offset. Entry is valid only if local file was not changed since it was written.
+ * Journal is best-effort; failures of reading or writing it are logged and never fail the upload.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public class UploadJournal {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UploadJournal.class);
+
+    public static final long SESSION_EXPIRATION = TimeUnit.DAYS.toMillis(7);
+
+    private static final String KEY_LOCAL_PATH = "localPath";
+    private static final String KEY_REMOTE_PATH = "remotePath";
+    private static final String KEY_SIZE = "size";
+    private static final String KEY_MODIFIED = "modified";
+    private static final String KEY_CREATED = "created";
+    private static final String KEY_SESSION_ID = "sessionId";
+    private static final String KEY_OFFSET = "offset";
+
+    /**
+     * Journal entry of upload session.
+     *
+     * @param sessionId upload session id
+     * @param offset    committed offset in bytes
+     * @param created   time of starting upload session in milliseconds
+     */
+    public record Entry(String sessionId, long offset, long created) {
+    }
+
+    private final Path directory;
+
+    public UploadJournal(Path directory) {
+        this.directory = directory;
+    }
+
+    private Path getJournalFile(File localFile, String remotePath) {
+        return directory.resolve(DigestUtils.sha256Hex(localFile.getAbsolutePath() + "|" + remotePath) + ".properties");
+    }
+
+    /**
+     * Finds journal entry of upload of local file to remote path.
+     * Entry of changed local file or of expired session is removed.
+     *
+     * @param localFile  local file
+     * @param remotePath remote path
+     * @return journal entry or empty if there is no valid entry
+     */
+    public Optional<Entry> find(File localFile, String remotePath) {
+        Path journalFile = getJournalFile(localFile, remotePath);
+        if (!Files.isRegularFile(journalFile)) {
+            return Optional.empty();
+        }
+        try (InputStream stream = Files.newInputStream(journalFile)) {
+            Properties properties = new Properties();
+            properties.load(stream);
+            boolean valid = localFile.getAbsolutePath().equals(properties.getProperty(KEY_LOCAL_PATH))
+                    && remotePath.equals(properties.getProperty(KEY_REMOTE_PATH))
+                    && localFile.length() == Long.parseLong(properties.getProperty(KEY_SIZE))
+                    && localFile.lastModified() == Long.parseLong(properties.getProperty(KEY_MODIFIED))
+                    && System.currentTimeMillis() - Long.parseLong(properties.getProperty(KEY_CREATED)) < SESSION_EXPIRATION;
+            if (valid) {
+                return Optional.of(new Entry(properties.getProperty(KEY_SESSION_ID),
+                        Long.parseLong(properties.getProperty(KEY_OFFSET)),
+                        Long.parseLong(properties.getProperty(KEY_CREATED))));
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Unable to read upload journal {}, message: {}", journalFile, e.getMessage());
+        }
+        remove(localFile, remotePath);
+        return Optional.empty();
+    }
+
+    /**
+     * Saves journal entry of upload session of local file to remote path.
+     *
+     * @param localFile  local file
+     * @param remotePath remote path
+     * @param entry      journal entry
+     */
+    public void save(File localFile, String remotePath, Entry entry) {
+        Path journalFile = getJournalFile(localFile, remotePath);
+        try {
+            Files.createDirectories(directory);
+
+            Properties properties = new Properties();
+            properties.setProperty(KEY_LOCAL_PATH, localFile.getAbsolutePath());
+            properties.setProperty(KEY_REMOTE_PATH, remotePath);
+            properties.setProperty(KEY_SIZE, String.valueOf(localFile.length()));
+            properties.setProperty(KEY_MODIFIED, String.valueOf(localFile.lastModified()));
+            properties.setProperty(KEY_CREATED, String.valueOf(entry.created()));
+            properties.setProperty(KEY_SESSION_ID, entry.sessionId());
+            properties.setProperty(KEY_OFFSET, String.valueOf(entry.offset()));
+
+            Path tempFile = Files.createTempFile(directory, journalFile.getFileName().toString(), ".tmp");
+            try {
+                try (OutputStream stream = Files.newOutputStream(tempFile)) {
+                    properties.store(stream, "dropDrive upload journal");
+                }
+                Files.move(tempFile, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            LOG.warn("Unable to write upload journal {}, message: {}", journalFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Removes journal entry of upload of local file to remote path.
+     *
+     * @param localFile  local file
+     * @param remotePath remote path
+     */
+    public void remove(File localFile, String remotePath) {
+        Path journalFile = getJournalFile(localFile, remotePath);
+        try {
+            Files.deleteIfExists(journalFile);
+        } catch (IOException e) {
+            LOG.warn("Unable to remove upload journal {}, message: {}", journalFile, e.getMessage());
+        }
+    }
+}
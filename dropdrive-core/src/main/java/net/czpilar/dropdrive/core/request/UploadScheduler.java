@@ -0,0 +1,261 @@
+package net.czpilar.dropdrive.core.request;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Scheduler of file uploads shared by all uploads in JVM.
+ * Every file upload takes one of limited number of slots, files waiting for a slot are served by lane and policy.
+ * Files of interactive lane are uploaded before files of bulk lane, files of the same lane are ordered by policy,
+ * e.g. the smallest files first, so small urgent files do not wait behind large archives.
+ * File waiting longer than maximal wait is served before others, so neither large files nor bulk lane starve.
+ * Lane is bound to the current call with {@link #callInLane(Lane, ScopedValue.CallableOp)}, bulk lane is used by default.
+ * Scheduler with no slots does not limit uploads and only orders files of one upload by policy,
+ * lanes take effect only when slots are limited, as there is nothing waiting to be served by lane otherwise.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+@Component
+public class UploadScheduler {
+
+    /**
+     * Lane of uploads with its own priority.
+     */
+    public enum Lane {
+        /**
+         * Urgent uploads served before bulk uploads.
+         */
+        INTERACTIVE,
+        /**
+         * Background uploads, e.g. backups.
+         */
+        BULK
+    }
+
+    /**
+     * Policy of ordering files of the same lane.
+     */
+    public enum Policy {
+        /**
+         * Files are uploaded in order of their request.
+         */
+        FIFO,
+        /**
+         * The smallest files are uploaded first, which minimizes average time of waiting for upload.
+         */
+        SMALLEST_FIRST,
+        /**
+         * The largest files are uploaded first, which minimizes total time of uploading files in parallel.
+         */
+        LARGEST_FIRST
+    }
+
+    /**
+     * Slot of file upload released when upload finishes.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final boolean limited;
+
+        private Permit(boolean limited) {
+            this.limited = limited;
+        }
+
+        @Override
+        public void close() {
+            if (limited) {
+                release();
+            }
+        }
+    }
+
+    private static final ScopedValue<Lane> LANE = ScopedValue.newInstance();
+
+    private record Ticket(Lane lane, long size, long sequence, long enqueued, Condition granted) {
+    }
+
+    private final Policy policy;
+    private final int slots;
+    private final long maxWait;
+    private final LongSupplier currentTimeMillis;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Ticket> waiting = new ArrayList<>();
+
+    private int running;
+    private long sequence;
+
+    @Autowired
+    public UploadScheduler(@Value("${dropdrive.file.upload.schedule.policy}") Policy policy,
+                           @Value("${dropdrive.file.upload.schedule.slots}") int slots,
+                           @Value("${dropdrive.file.upload.schedule.max.wait}") long maxWait) {
+        this(policy, slots, maxWait, System::currentTimeMillis);
+    }
+
+    UploadScheduler(Policy policy, int slots, long maxWait, LongSupplier currentTimeMillis) {
+        this.policy = policy;
+        this.slots = slots;
+        this.maxWait = maxWait;
+        this.currentTimeMillis = currentTimeMillis;
+    }
+
+    /**
+     * Calls operation with uploads of current thread scheduled in given lane.
+     *
+     * @param lane lane
+     * @param op   operation
+     * @param <T>  type of result
+     * @param <X>  type of exception
+     * @return result of operation
+     * @throws X when operation fails
+     */
+    public static <T, X extends Throwable> T callInLane(Lane lane, ScopedValue.CallableOp<? extends T, X> op) throws X {
+        return ScopedValue.where(LANE, lane).call(op);
+    }
+
+    /**
+     * Returns lane of uploads of current thread.
+     *
+     * @return lane
+     */
+    public static Lane getLane() {
+        return LANE.orElse(Lane.BULK);
+    }
+
+    /**
+     * Returns indexes of filenames in order of their upload by policy of scheduler,
+     * so results of uploads can be put back into order of filenames.
+     *
+     * @param filenames filenames
+     * @return indexes of filenames in order of upload
+     */
+    public List<Integer> order(List<String> filenames) {
+        long[] sizes = policy == Policy.FIFO ? null : filenames.stream().mapToLong(filename -> new File(filename).length()).toArray();
+        Comparator<Integer> bySize = Comparator.comparingLong(index -> sizes[index]);
+        Stream<Integer> indexes = IntStream.range(0, filenames.size()).boxed();
+        return switch (policy) {
+            case FIFO -> indexes.toList();
+            case SMALLEST_FIRST -> indexes.sorted(bySize).toList();
+            case LARGEST_FIRST -> indexes.sorted(bySize.reversed()).toList();
+        };
+    }
+
+    /**
+     * Acquires slot for uploading file of given size in lane of current thread, blocking until slot is granted.
+     *
+     * @param size size of file in bytes
+     * @return permit released when upload finishes
+     * @throws InterruptedException when waiting is interrupted
+     */
+    public Permit acquire(long size) throws InterruptedException {
+        return acquire(getLane(), size);
+    }
+
+    /**
+     * Acquires slot for uploading file of given size in given lane, blocking until slot is granted.
+     *
+     * @param lane lane
+     * @param size size of file in bytes
+     * @return permit released when upload finishes
+     * @throws InterruptedException when waiting is interrupted
+     */
+    public Permit acquire(Lane lane, long size) throws InterruptedException {
+        if (slots <= 0) {
+            return new Permit(false);
+        }
+        lock.lock();
+        try {
+            if (running < slots && waiting.isEmpty()) {
+                running++;
+                return new Permit(true);
+            }
+            Ticket ticket = new Ticket(lane, size, sequence++, currentTimeMillis.getAsLong(), lock.newCondition());
+            waiting.add(ticket);
+            try {
+                while (waiting.contains(ticket)) {
+                    ticket.granted().await();
+                }
+            } catch (InterruptedException e) {
+                if (!waiting.remove(ticket)) {
+                    running--;
+                    grant();
+                }
+                throw e;
+            }
+            return new Permit(true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns number of uploads waiting for slot.
+     *
+     * @return number of waiting uploads
+     */
+    int getWaiting() {
+        lock.lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            running--;
+            grant();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void grant() {
+        while (running < slots && !waiting.isEmpty()) {
+            Ticket ticket = next();
+            waiting.remove(ticket);
+            running++;
+            ticket.granted().signal();
+        }
+    }
+
+    /**
+     * Returns waiting ticket served next, the oldest ticket waiting longer than maximal wait
+     * or the first ticket of the most urgent lane by policy.
+     *
+     * @return next ticket
+     */
+    private Ticket next() {
+        long now = currentTimeMillis.getAsLong();
+        Comparator<Ticket> bySequence = Comparator.comparingLong(Ticket::sequence);
+        if (maxWait > 0) {
+            Optional<Ticket> starved = waiting.stream()
+                    .filter(ticket -> now - ticket.enqueued() >= maxWait)
+                    .min(bySequence);
+            if (starved.isPresent()) {
+                return starved.get();
+            }
+        }
+        Comparator<Ticket> byPolicy = switch (policy) {
+            case FIFO -> bySequence;
+            case SMALLEST_FIRST -> Comparator.comparingLong(Ticket::size).thenComparing(bySequence);
+            case LARGEST_FIRST -> Comparator.comparingLong(Ticket::size).reversed().thenComparing(bySequence);
+        };
+        return waiting.stream()
+                .min(Comparator.comparing(Ticket::lane).thenComparing(byPolicy))
+                .orElseThrow();
+    }
+}
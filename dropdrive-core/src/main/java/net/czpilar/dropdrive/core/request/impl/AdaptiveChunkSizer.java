@@ -0,0 +1,54 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import net.czpilar.dropdrive.core.request.IChunkSizer;
+
+/**
+ * Chunk sizer adapting chunk size to measured throughput.
+ * It starts with minimal chunk size and sizes chunks so one chunk takes about target duration to upload.
+ * Chunk size grows at most twice per chunk, is halved on failure and is always a multiple of minimal chunk size.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public class AdaptiveChunkSizer implements IChunkSizer {
+
+    private static final double SMOOTHING = 0.5;
+
+    private final long minChunkSize;
+    private final long maxChunkSize;
+    private final long targetNanos;
+
+    private long chunkSize;
+    private double bytesPerNano;
+
+    public AdaptiveChunkSizer(long minChunkSize, long maxChunkSize, long targetNanos) {
+        this.minChunkSize = minChunkSize;
+        this.maxChunkSize = Math.max(minChunkSize, maxChunkSize / minChunkSize * minChunkSize);
+        this.targetNanos = targetNanos;
+        this.chunkSize = minChunkSize;
+    }
+
+    private long align(long size) {
+        return Math.clamp(size / minChunkSize * minChunkSize, minChunkSize, maxChunkSize);
+    }
+
+    @Override
+    public long nextChunkSize() {
+        return chunkSize;
+    }
+
+    @Override
+    public void chunkUploaded(long bytes, long nanos) {
+        if (bytes <= 0 || nanos <= 0) {
+            return;
+        }
+        double current = (double) bytes / nanos;
+        bytesPerNano = bytesPerNano == 0 ? current : SMOOTHING * current + (1 - SMOOTHING) * bytesPerNano;
+        long desired = (long) Math.min(Long.MAX_VALUE / 2, bytesPerNano * targetNanos);
+        chunkSize = align(Math.min(desired, chunkSize * 2));
+    }
+
+    @Override
+    public void chunkFailed() {
+        chunkSize = align(chunkSize / 2);
+    }
+}
@@ -0,0 +1,200 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import com.dropbox.core.DbxException;
+import net.czpilar.dropdrive.core.exception.DropDriveException;
+import net.czpilar.dropdrive.core.request.IConcurrencyLimiter;
+import net.czpilar.dropdrive.core.request.IRetryPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency limiter adapting its limits to throttling by Dropbox with additive increase and multiplicative decrease.
+ * Every operation has its own limit, so commits competing for write lock of namespace
+ * do not hold back appends of content and metadata lookups.
+ * Limit grows by one request per limit of successful requests while their latency stays within tolerance
+ * of baseline latency and it is cut by decrease factor when request is throttled.
+ * Limit is cut once for all requests executed at once, so throttling of many concurrent requests does not
+ * drop limit to minimum. Other failures keep limit as it is.
+ * Limits start at initial limit and grow up to their maximum, initial limit 0 starts them at their maximum.
+ * Latency does not include time spent outside of request, e.g. in reading uploaded content or waiting for bandwidth.
+ * Operation with maximal limit 0 is not limited.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+@Component
+public class AimdConcurrencyLimiter implements IConcurrencyLimiter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AimdConcurrencyLimiter.class);
+
+    public static final int DEFAULT_INITIAL = 4;
+    public static final int DEFAULT_MIN = 1;
+    public static final int DEFAULT_APPEND_MAX = 16;
+    public static final int DEFAULT_COMMIT_MAX = 2;
+    public static final int DEFAULT_METADATA_MAX = 16;
+    public static final int DEFAULT_UPLOAD_MAX = 16;
+    public static final double DEFAULT_DECREASE = 0.5;
+    public static final double DEFAULT_LATENCY_TOLERANCE = 2.0;
+
+    private static final double BASELINE_WEIGHT = 0.05;
+
+    private enum Outcome {
+        SUCCESS, THROTTLED, FAILED
+    }
+
+    private final class Limit {
+
+        private final Operation operation;
+        private final int max;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition available = lock.newCondition();
+
+        private double limit;
+        private int inFlight;
+        private long epoch;
+        private double baseline;
+
+        private Limit(Operation operation, int max) {
+            this.operation = operation;
+            this.max = max;
+            this.limit = initial == 0 ? max : Math.clamp(initial, Math.min(min, max), max);
+        }
+
+        private long acquire() throws InterruptedException {
+            lock.lock();
+            try {
+                while (inFlight >= (int) limit) {
+                    available.await();
+                }
+                inFlight++;
+                return epoch;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void release(long acquiredEpoch, long latency, Outcome outcome) {
+            lock.lock();
+            try {
+                inFlight--;
+                switch (outcome) {
+                    case THROTTLED -> {
+                        if (acquiredEpoch == epoch) {
+                            epoch++;
+                            limit = Math.max(Math.min(min, max), limit * decrease);
+                            LOG.warn("Requests of {} are throttled, decreasing limit to {}", operation, (int) limit);
+                        }
+                    }
+                    case SUCCESS -> {
+                        boolean healthy = baseline == 0 || latency <= baseline * latencyTolerance;
+                        baseline = baseline == 0 || latency < baseline ? latency : baseline + (latency - baseline) * BASELINE_WEIGHT;
+                        if (healthy) {
+                            limit = Math.min(max, limit + 1 / limit);
+                        }
+                    }
+                    case FAILED -> {
+                    }
+                }
+                available.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int getLimit() {
+            lock.lock();
+            try {
+                return (int) limit;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private final int initial;
+    private final int min;
+    private final double decrease;
+    private final double latencyTolerance;
+    private final LongSupplier nanoTime;
+    private final Map<Operation, Limit> limits = new EnumMap<>(Operation.class);
+
+    public AimdConcurrencyLimiter() {
+        this(DEFAULT_INITIAL, DEFAULT_MIN, DEFAULT_APPEND_MAX, DEFAULT_COMMIT_MAX, DEFAULT_METADATA_MAX,
+                DEFAULT_UPLOAD_MAX, DEFAULT_DECREASE, DEFAULT_LATENCY_TOLERANCE);
+    }
+
+    @Autowired
+    public AimdConcurrencyLimiter(@Value("${dropdrive.file.upload.concurrency.initial}") int initial,
+                                  @Value("${dropdrive.file.upload.concurrency.min}") int min,
+                                  @Value("${dropdrive.file.upload.concurrency.append.max}") int appendMax,
+                                  @Value("${dropdrive.file.upload.concurrency.commit.max}") int commitMax,
+                                  @Value("${dropdrive.file.upload.concurrency.metadata.max}") int metadataMax,
+                                  @Value("${dropdrive.file.upload.concurrency.upload.max}") int uploadMax,
+                                  @Value("${dropdrive.file.upload.concurrency.decrease}") double decrease,
+                                  @Value("${dropdrive.file.upload.concurrency.latency.tolerance}") double latencyTolerance) {
+        this(initial, min, appendMax, commitMax, metadataMax, uploadMax, decrease, latencyTolerance, System::nanoTime);
+    }
+
+    AimdConcurrencyLimiter(int initial, int min, int appendMax, int commitMax, int metadataMax, int uploadMax,
+                           double decrease, double latencyTolerance, LongSupplier nanoTime) {
+        this.min = Math.max(1, min);
+        this.initial = initial <= 0 ? 0 : Math.max(this.min, initial);
+        this.decrease = Math.clamp(decrease, 0.1, 0.9);
+        this.latencyTolerance = Math.max(1, latencyTolerance);
+        this.nanoTime = nanoTime;
+        addLimit(Operation.APPEND, appendMax);
+        addLimit(Operation.COMMIT, commitMax);
+        addLimit(Operation.METADATA, metadataMax);
+        addLimit(Operation.UPLOAD, uploadMax);
+    }
+
+    private void addLimit(Operation operation, int max) {
+        if (max > 0) {
+            limits.put(operation, new Limit(operation, max));
+        }
+    }
+
+    @Override
+    public <T> T execute(Operation operation, IRetryPolicy.Call<T> call, LongSupplier excludedNanos) throws IOException, DbxException {
+        Limit limit = limits.get(operation);
+        if (limit == null) {
+            return call.call();
+        }
+        long acquiredEpoch;
+        try {
+            acquiredEpoch = limit.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DropDriveException("Waiting for executing request was interrupted", e);
+        }
+        long start = nanoTime.getAsLong();
+        Outcome outcome = Outcome.FAILED;
+        try {
+            T result = call.call();
+            outcome = Outcome.SUCCESS;
+            return result;
+        } catch (DbxException e) {
+            if (BackoffRetryPolicy.isThrottling(e)) {
+                outcome = Outcome.THROTTLED;
+            }
+            throw e;
+        } finally {
+            limit.release(acquiredEpoch, Math.max(0, nanoTime.getAsLong() - start - excludedNanos.getAsLong()), outcome);
+        }
+    }
+
+    @Override
+    public int getLimit(Operation operation) {
+        Limit limit = limits.get(operation);
+        return limit == null ? 0 : limit.getLimit();
+    }
+}
@@ -0,0 +1,180 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import com.dropbox.core.*;
+import com.dropbox.core.v2.files.CreateFolderErrorException;
+import com.dropbox.core.v2.files.UploadSessionFinishErrorException;
+import net.czpilar.dropdrive.core.exception.CircuitBreakerOpenException;
+import net.czpilar.dropdrive.core.exception.DropDriveException;
+import net.czpilar.dropdrive.core.request.IRetryPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Retry policy waiting between retries with exponential backoff and jitter.
+ * Wait time of every retry is doubled up to maximal delay and randomized, so concurrent uploads do not retry at once.
+ * Backoff requested by server with rate limit or retry error is always honored.
+ * Requests failed on errors which cannot be fixed by retrying (e.g. invalid token, bad request or route errors
+ * other than too many write operations) are not retried.
+ * Circuit breaker shared by all requests stops executing requests for some time when retryable errors
+ * follow one after another, so a service which is down is not flooded by retries.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+@Component
+public class BackoffRetryPolicy implements IRetryPolicy {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BackoffRetryPolicy.class);
+
+    public static final long DEFAULT_DELAY = 500;
+    public static final long DEFAULT_MAX_DELAY = 60000;
+    public static final int DEFAULT_CIRCUIT_THRESHOLD = 10;
+    public static final long DEFAULT_CIRCUIT_OPEN = 60000;
+
+    @FunctionalInterface
+    interface Sleeper {
+
+        void sleep(long millis) throws InterruptedException;
+    }
+
+    private final long delay;
+    private final long maxDelay;
+    private final int circuitThreshold;
+    private final long circuitOpen;
+    private final Sleeper sleeper;
+    private final LongSupplier currentTimeMillis;
+
+    private int failures;
+    private long openUntil;
+
+    public BackoffRetryPolicy() {
+        this(DEFAULT_DELAY, DEFAULT_MAX_DELAY, DEFAULT_CIRCUIT_THRESHOLD, DEFAULT_CIRCUIT_OPEN);
+    }
+
+    @Autowired
+    public BackoffRetryPolicy(@Value("${dropdrive.file.upload.retry.delay}") long delay,
+                              @Value("${dropdrive.file.upload.retry.max.delay}") long maxDelay,
+                              @Value("${dropdrive.file.upload.circuit.threshold}") int circuitThreshold,
+                              @Value("${dropdrive.file.upload.circuit.open}") long circuitOpen) {
+        this(delay, maxDelay, circuitThreshold, circuitOpen, Thread::sleep, System::currentTimeMillis);
+    }
+
+    BackoffRetryPolicy(long delay, long maxDelay, int circuitThreshold, long circuitOpen, Sleeper sleeper, LongSupplier currentTimeMillis) {
+        this.delay = Math.max(0, delay);
+        this.maxDelay = Math.max(this.delay, maxDelay);
+        this.circuitThreshold = circuitThreshold;
+        this.circuitOpen = circuitOpen;
+        this.sleeper = sleeper;
+        this.currentTimeMillis = currentTimeMillis;
+    }
+
+    @Override
+    public <T> T execute(String operation, int retries, Call<T> call) throws IOException, DbxException {
+        int retry = 0;
+        while (true) {
+            checkCircuit(operation);
+            try {
+                T result = call.call();
+                responded();
+                return result;
+            } catch (DbxException e) {
+                if (!isRetryable(e)) {
+                    responded();
+                    throw e;
+                }
+                if (e instanceof RetryException) {
+                    responded();
+                } else {
+                    failed();
+                }
+                retry++;
+                if (retry > retries) {
+                    throw e;
+                }
+                long wait = getDelay(retry, e);
+                LOG.warn("Error during executing {}, retrying for {} time(s) in {} ms, message: {}", operation, retry, wait, e.getMessage());
+                sleep(wait);
+            }
+        }
+    }
+
+    @Override
+    public boolean isRetryable(DbxException e) {
+        return switch (e) {
+            case RetryException _ -> true;
+            case InvalidAccessTokenException _, BadRequestException _, AccessErrorException _, PathRootErrorException _ -> false;
+            case BadResponseCodeException codeException -> codeException.getStatusCode() >= 500 || codeException.getStatusCode() == 429;
+            case DbxApiException apiException -> isThrottling(apiException);
+            default -> true;
+        };
+    }
+
+    /**
+     * Returns true if request was rejected by Dropbox because of too many requests or write operations
+     * or because server was not able to handle it.
+     *
+     * @param e exception of failed request
+     * @return true if request was throttled
+     */
+    public static boolean isThrottling(DbxException e) {
+        return switch (e) {
+            // rate limit exception is retry exception too
+            case RetryException _, ServerException _ -> true;
+            case BadResponseCodeException codeException -> codeException.getStatusCode() == 429;
+            case UploadSessionFinishErrorException finishError -> finishError.errorValue.isTooManyWriteOperations()
+                    || finishError.errorValue.isPath() && finishError.errorValue.getPathValue().isTooManyWriteOperations();
+            case CreateFolderErrorException createError ->
+                    createError.errorValue.isPath() && createError.errorValue.getPathValue().isTooManyWriteOperations();
+            default -> false;
+        };
+    }
+
+    /**
+     * Returns wait time before given retry. Exponential backoff is randomized between its half and full value.
+     * Backoff requested by server is extended by random part of initial delay.
+     *
+     * @param retry number of retry starting with 1
+     * @param e     exception of failed request
+     * @return wait time in milliseconds
+     */
+    long getDelay(int retry, DbxException e) {
+        if (e instanceof RetryException retryException && retryException.getBackoffMillis() > 0) {
+            return retryException.getBackoffMillis() + ThreadLocalRandom.current().nextLong(delay + 1);
+        }
+        long backoff = Math.min(maxDelay, delay << Math.min(retry - 1, 30));
+        return ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1);
+    }
+
+    private synchronized void checkCircuit(String operation) {
+        if (currentTimeMillis.getAsLong() < openUntil) {
+            throw new CircuitBreakerOpenException("Circuit breaker is open after " + failures + " failures, skipping " + operation);
+        }
+    }
+
+    private synchronized void responded() {
+        failures = 0;
+    }
+
+    private synchronized void failed() {
+        failures++;
+        if (circuitThreshold > 0 && failures >= circuitThreshold) {
+            openUntil = currentTimeMillis.getAsLong() + circuitOpen;
+            LOG.error("Circuit breaker is open for {} ms after {} failures in a row", circuitOpen, failures);
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            sleeper.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DropDriveException("Waiting for retry was interrupted", e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import net.czpilar.dropdrive.core.request.IChunkSource;
+import net.czpilar.dropdrive.core.request.IMemoryBudget;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * Chunk source reserving memory budget for every opened chunk of delegated source.
+ * Opening chunk blocks while budget is used up and reserved bytes are released when chunk stream is closed.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public class BudgetedChunkSource implements IChunkSource {
+
+    private final IChunkSource delegate;
+    private final IMemoryBudget memoryBudget;
+
+    public BudgetedChunkSource(IChunkSource delegate, IMemoryBudget memoryBudget) {
+        this.delegate = delegate;
+        this.memoryBudget = memoryBudget;
+    }
+
+    @Override
+    public long size() throws IOException {
+        return delegate.size();
+    }
+
+    @Override
+    public InputStream openChunk(long offset, long length) throws IOException {
+        long reserved;
+        try {
+            reserved = memoryBudget.acquire(length);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Waiting for memory budget was interrupted");
+        }
+        try {
+            return new FilterInputStream(delegate.openChunk(offset, length)) {
+
+                private boolean closed;
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        if (!closed) {
+                            closed = true;
+                            memoryBudget.release(reserved);
+                        }
+                    }
+                }
+            };
+        } catch (IOException | RuntimeException e) {
+            memoryBudget.release(reserved);
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
@@ -0,0 +1,140 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import net.czpilar.dropdrive.core.request.IMemoryBudget;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Memory budget of chunk buffers in flight shared by all uploads in JVM.
+ * Reservations are granted in order of their requests, so a large chunk is not starved by small ones.
+ * Reservation waits until released bytes make room for it, so memory of chunk buffers never exceeds the budget
+ * regardless of number of files uploaded at once. Usage of budget is exported as JMX attributes.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+@Component
+@ManagedResource(objectName = "net.czpilar.dropdrive:type=ChunkMemoryBudget", description = "Memory budget of chunk buffers")
+public class ChunkMemoryBudget implements IMemoryBudget {
+
+    private final long limit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<Thread> waiters = new ArrayDeque<>();
+
+    private long used;
+    private long peak;
+    private long waits;
+    private long waitNanos;
+
+    public ChunkMemoryBudget(@Value("${dropdrive.file.upload.memory.budget}") long limit) {
+        this.limit = Math.max(0, limit);
+    }
+
+    @Override
+    public long acquire(long bytes) throws InterruptedException {
+        long reserved = limit > 0 ? Math.min(bytes, limit) : bytes;
+        lock.lock();
+        try {
+            if (limit > 0 && (!waiters.isEmpty() || used + reserved > limit)) {
+                Thread waiter = Thread.currentThread();
+                long start = System.nanoTime();
+                waiters.add(waiter);
+                waits++;
+                try {
+                    while (waiters.peek() != waiter || used + reserved > limit) {
+                        available.await();
+                    }
+                } finally {
+                    waiters.remove(waiter);
+                    waitNanos += System.nanoTime() - start;
+                    available.signalAll();
+                }
+            }
+            used += reserved;
+            peak = Math.max(peak, used);
+            return reserved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void release(long bytes) {
+        lock.lock();
+        try {
+            used -= bytes;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @ManagedAttribute(description = "Budget of chunk buffers in bytes, 0 means unlimited")
+    public long getLimit() {
+        return limit;
+    }
+
+    @Override
+    @ManagedAttribute(description = "Bytes of chunk buffers in flight")
+    public long getUsed() {
+        lock.lock();
+        try {
+            return used;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @ManagedAttribute(description = "Peak of bytes of chunk buffers in flight")
+    public long getPeak() {
+        lock.lock();
+        try {
+            return peak;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @ManagedAttribute(description = "Number of reservations waiting for budget")
+    public int getWaiting() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @ManagedAttribute(description = "Total number of reservations which waited for budget")
+    public long getWaits() {
+        lock.lock();
+        try {
+            return waits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @ManagedAttribute(description = "Total time of waiting for budget in milliseconds")
+    public long getWaitTime() {
+        lock.lock();
+        try {
+            return TimeUnit.NANOSECONDS.toMillis(waitNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
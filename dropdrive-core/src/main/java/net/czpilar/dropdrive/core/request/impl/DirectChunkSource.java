@@ -0,0 +1,154 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import com.sun.nio.file.ExtendedOpenOption;
+import net.czpilar.dropdrive.core.request.ChunkBufferPool;
+import net.czpilar.dropdrive.core.request.IChunkSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Chunk source reading chunks with direct I/O bypassing the page cache,
+ * so uploading large files does not evict cached data of other processes running on the same host.
+ * Direct reads must be aligned to block size of the file system, so every opened chunk is read into
+ * an aligned off-heap buffer of {@link ChunkBufferPool} covering whole blocks of the chunk and streamed from it.
+ * Chunk read into aligned target starting at block boundary is read straight into the target.
+ * When file system does not support direct I/O, chunks are read through the page cache by {@link FileChannelChunkSource}.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public class DirectChunkSource implements IChunkSource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DirectChunkSource.class);
+
+    private final FileChannel channel;
+    private final long blockSize;
+    private final ChunkBufferPool bufferPool;
+    private final boolean ownBufferPool;
+
+    private DirectChunkSource(FileChannel channel, long blockSize, ChunkBufferPool bufferPool) {
+        this.channel = channel;
+        this.blockSize = blockSize;
+        this.ownBufferPool = bufferPool == null;
+        this.bufferPool = ownBufferPool ? new ChunkBufferPool(Long.MAX_VALUE) : bufferPool;
+    }
+
+    /**
+     * Opens chunk source reading file with direct I/O or through the page cache
+     * when file system of the file does not support direct I/O.
+     *
+     * @param path path to file
+     * @return chunk source
+     * @throws IOException when file cannot be opened
+     */
+    public static IChunkSource open(Path path) throws IOException {
+        return open(path, null);
+    }
+
+    /**
+     * Opens chunk source reading file with direct I/O into buffers of given pool or through the page cache
+     * when file system of the file does not support direct I/O.
+     *
+     * @param path       path to file
+     * @param bufferPool pool of aligned buffers or null for own buffers of the source freed when it is closed
+     * @return chunk source
+     * @throws IOException when file cannot be opened
+     */
+    public static IChunkSource open(Path path, ChunkBufferPool bufferPool) throws IOException {
+        try {
+            long blockSize = Files.getFileStore(path).getBlockSize();
+            if (blockSize > 0 && ChunkBufferPool.ALIGNMENT % blockSize == 0) {
+                return new DirectChunkSource(FileChannel.open(path, StandardOpenOption.READ, ExtendedOpenOption.DIRECT), blockSize, bufferPool);
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            LOG.debug("Unable to open file {} for direct I/O, message: {}", path, e.getMessage());
+        }
+        LOG.warn("Direct I/O is not supported for file {}, reading it through page cache", path);
+        return new FileChannelChunkSource(path);
+    }
+
+    @Override
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public InputStream openChunk(long offset, long length) throws IOException {
+        long start = alignDown(offset);
+        long blocks = alignUp(offset + length) - start;
+        ChunkBufferPool.Buffer buffer = bufferPool.acquire(blocks);
+        try {
+            read(buffer.slice(blocks).asByteBuffer(), start, offset + length);
+            return new MemorySegmentInputStream(buffer.segment().asSlice(offset - start, length), buffer);
+        } catch (IOException | RuntimeException e) {
+            buffer.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void readChunk(long offset, MemorySegment target) throws IOException {
+        long wholeBlocks = alignDown(target.byteSize());
+        if (offset % blockSize == 0 && target.isNative() && target.address() % blockSize == 0 && wholeBlocks > 0) {
+            read(target.asSlice(0, wholeBlocks).asByteBuffer(), offset, offset + wholeBlocks);
+            copyChunk(offset + wholeBlocks, target.asSlice(wholeBlocks));
+        } else {
+            copyChunk(offset, target);
+        }
+    }
+
+    private void copyChunk(long offset, MemorySegment target) throws IOException {
+        if (target.byteSize() == 0) {
+            return;
+        }
+        long start = alignDown(offset);
+        long blocks = alignUp(offset + target.byteSize()) - start;
+        try (ChunkBufferPool.Buffer buffer = bufferPool.acquire(blocks)) {
+            read(buffer.slice(blocks).asByteBuffer(), start, offset + target.byteSize());
+            MemorySegment.copy(buffer.segment(), offset - start, target, 0, target.byteSize());
+        }
+    }
+
+    /**
+     * Reads whole blocks from aligned start into aligned bytes, at least up to given end.
+     * Read shorter than requested blocks means end of file was reached.
+     */
+    private void read(ByteBuffer bytes, long start, long end) throws IOException {
+        while (bytes.hasRemaining() && bytes.position() % blockSize == 0) {
+            if (channel.read(bytes, start + bytes.position()) <= 0) {
+                break;
+            }
+        }
+        if (start + bytes.position() < end) {
+            throw new EOFException("Unexpected end of file at offset " + (start + bytes.position()));
+        }
+    }
+
+    private long alignDown(long offset) {
+        return offset - offset % blockSize;
+    }
+
+    private long alignUp(long offset) {
+        return alignDown(offset + blockSize - 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            if (ownBufferPool) {
+                bufferPool.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import net.czpilar.dropdrive.core.request.IChunkSource;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Chunk source reading chunks with positional reads from a file channel.
+ * Chunk read into native memory segment is read by the channel straight into the segment.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public class FileChannelChunkSource implements IChunkSource {
+
+    private final FileChannel channel;
+
+    public FileChannelChunkSource(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    @Override
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public InputStream openChunk(long offset, long length) {
+        return new FileChannelInputStream(channel, offset, length);
+    }
+
+    @Override
+    public void readChunk(long offset, MemorySegment target) throws IOException {
+        ByteBuffer buffer = target.asByteBuffer();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of file at offset " + (offset + buffer.position()));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
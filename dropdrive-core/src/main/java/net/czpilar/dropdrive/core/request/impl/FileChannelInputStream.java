@@ -0,0 +1,64 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Input stream reading a slice of a file channel using positional reads,
+ * so more streams can read the same channel concurrently.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public class FileChannelInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private final long end;
+    private final byte[] single = new byte[1];
+
+    private long position;
+
+    public FileChannelInputStream(FileChannel channel, long offset, long length) {
+        this.channel = channel;
+        this.position = offset;
+        this.end = offset + length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int read;
+        do {
+            read = read(single, 0, 1);
+        } while (read == 0);
+        return read == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        long remaining = end - position;
+        if (remaining <= 0) {
+            return -1;
+        }
+        int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), position);
+        if (read > 0) {
+            position += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, end - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, end - position);
+    }
+}
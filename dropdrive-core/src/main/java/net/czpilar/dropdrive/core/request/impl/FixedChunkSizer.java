@@ -0,0 +1,30 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import net.czpilar.dropdrive.core.request.IChunkSizer;
+
+/**
+ * Chunk sizer always returning the same chunk size.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public class FixedChunkSizer implements IChunkSizer {
+
+    private final long chunkSize;
+
+    public FixedChunkSizer(long chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public long nextChunkSize() {
+        return chunkSize;
+    }
+
+    @Override
+    public void chunkUploaded(long bytes, long nanos) {
+    }
+
+    @Override
+    public void chunkFailed() {
+    }
+}
@@ -0,0 +1,61 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import net.czpilar.dropdrive.core.request.IChunkSource;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Chunk source mapping every chunk of a file into memory.
+ * Chunk bytes are copied straight from the page cache to the upload buffer
+ * and the mapping is released as soon as the chunk stream is closed.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public class MappedChunkSource implements IChunkSource {
+
+    private final FileChannel channel;
+
+    public MappedChunkSource(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    @Override
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public InputStream openChunk(long offset, long length) throws IOException {
+        Arena arena = Arena.ofShared();
+        try {
+            MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, offset, length, arena);
+            return new MemorySegmentInputStream(segment, arena);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void readChunk(long offset, MemorySegment target) throws IOException {
+        if (offset + target.byteSize() > channel.size()) {
+            throw new EOFException("Unexpected end of file at offset " + channel.size());
+        }
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, offset, target.byteSize(), arena);
+            MemorySegment.copy(segment, 0, target, 0, target.byteSize());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
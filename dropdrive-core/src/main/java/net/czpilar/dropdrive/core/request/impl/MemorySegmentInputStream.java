@@ -0,0 +1,85 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import net.czpilar.dropdrive.core.request.ChunkBufferPool;
+
+import java.io.InputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Input stream reading bytes of a memory segment.
+ * Closing the stream closes the arena owning the segment or returns the buffer of the segment to its pool.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public class MemorySegmentInputStream extends InputStream {
+
+    private final MemorySegment segment;
+    private final Runnable release;
+
+    private long position;
+
+    public MemorySegmentInputStream(MemorySegment segment) {
+        this(segment, (Runnable) null);
+    }
+
+    public MemorySegmentInputStream(MemorySegment segment, Arena arena) {
+        this(segment, arena == null ? null : () -> {
+            if (arena.scope().isAlive()) {
+                arena.close();
+            }
+        });
+    }
+
+    public MemorySegmentInputStream(MemorySegment segment, ChunkBufferPool.Buffer buffer) {
+        this(segment, buffer == null ? null : buffer::close);
+    }
+
+    private MemorySegmentInputStream(MemorySegment segment, Runnable release) {
+        this.segment = segment;
+        this.release = release;
+    }
+
+    @Override
+    public int read() {
+        if (position >= segment.byteSize()) {
+            return -1;
+        }
+        return segment.get(ValueLayout.JAVA_BYTE, position++) & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        long remaining = segment.byteSize() - position;
+        if (remaining <= 0) {
+            return -1;
+        }
+        int read = (int) Math.min(len, remaining);
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, position, b, off, read);
+        position += read;
+        return read;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, segment.byteSize() - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, segment.byteSize() - position);
+    }
+
+    @Override
+    public void close() {
+        if (release != null) {
+            release.run();
+        }
+    }
+}
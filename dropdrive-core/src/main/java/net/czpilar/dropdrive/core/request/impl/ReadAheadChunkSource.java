@@ -0,0 +1,239 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import net.czpilar.dropdrive.core.exception.DropDriveException;
+import net.czpilar.dropdrive.core.request.ChunkBufferPool;
+import net.czpilar.dropdrive.core.request.IChunkSource;
+import net.czpilar.dropdrive.core.request.IMemoryBudget;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Chunk source reading chunks ahead of sequential upload.
+ * While one chunk is uploaded, next chunks of the same length are read from delegated source
+ * into off-heap buffers of {@link ChunkBufferPool} by a background thread, so disk reads overlap network writes.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public class ReadAheadChunkSource implements IChunkSource {
+
+    private record Buffer(ChunkBufferPool.Buffer data, long reserved) {
+    }
+
+    private record Chunk(long offset, long length, Slot slot, Future<Buffer> data) {
+
+        boolean matches(long offset, long length) {
+            return this.offset == offset && this.length == length;
+        }
+    }
+
+    /**
+     * Hand-over of read buffer between read task and source, so buffer of chunk released while it was being read
+     * is recycled by the task itself as soon as reading finishes.
+     */
+    private static final class Slot {
+
+        private Buffer buffer;
+        private boolean released;
+
+        synchronized boolean fill(Buffer buffer) {
+            if (released) {
+                return false;
+            }
+            this.buffer = buffer;
+            return true;
+        }
+
+        synchronized Buffer release() {
+            released = true;
+            Buffer filled = buffer;
+            buffer = null;
+            return filled;
+        }
+    }
+
+    private final IChunkSource delegate;
+    private final int depth;
+    private final long size;
+    private final ExecutorService executor;
+    private final IMemoryBudget memoryBudget;
+    private final ChunkBufferPool bufferPool;
+    private final boolean ownBufferPool;
+    private final Deque<Chunk> prefetched = new ArrayDeque<>();
+    private final Set<Buffer> buffers = ConcurrentHashMap.newKeySet();
+
+    private Chunk current;
+
+    public ReadAheadChunkSource(IChunkSource delegate, int depth) throws IOException {
+        this(delegate, depth, null);
+    }
+
+    public ReadAheadChunkSource(IChunkSource delegate, int depth, IMemoryBudget memoryBudget) throws IOException {
+        this(delegate, depth, memoryBudget, null);
+    }
+
+    /**
+     * Creates source reading at most depth chunks ahead, so at most depth + 1 buffers are held.
+     *
+     * @param delegate     source of read chunks
+     * @param depth        number of chunks read ahead
+     * @param memoryBudget budget reserving bytes of every buffer until it is returned or null
+     * @param bufferPool   shared pool of buffers or null for own buffers of the source freed when it is closed
+     * @throws IOException when size of delegated source cannot be read
+     */
+    public ReadAheadChunkSource(IChunkSource delegate, int depth, IMemoryBudget memoryBudget, ChunkBufferPool bufferPool) throws IOException {
+        this.delegate = delegate;
+        this.depth = depth;
+        this.memoryBudget = memoryBudget;
+        this.ownBufferPool = bufferPool == null;
+        this.bufferPool = ownBufferPool ? new ChunkBufferPool(Long.MAX_VALUE) : bufferPool;
+        this.size = delegate.size();
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dropdrive-read-ahead");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public synchronized InputStream openChunk(long offset, long length) throws IOException {
+        if (current == null || !current.matches(offset, length)) {
+            release(current);
+            current = take(offset, length);
+            prefetch(offset + length, length);
+        }
+        return new MemorySegmentInputStream(get(current).data().slice(length));
+    }
+
+    /**
+     * Takes chunk read ahead or reads it when it was not read ahead, e.g. after change of chunk size.
+     */
+    private Chunk take(long offset, long length) {
+        Chunk chunk;
+        while ((chunk = prefetched.poll()) != null) {
+            if (chunk.matches(offset, length)) {
+                return chunk;
+            }
+            release(chunk);
+        }
+        return submit(offset, length);
+    }
+
+    private void prefetch(long offset, long length) {
+        Chunk last = prefetched.peekLast();
+        long next = last == null ? offset : last.offset() + last.length();
+        while (prefetched.size() < depth && next < size) {
+            long nextLength = Math.min(length, size - next);
+            prefetched.add(submit(next, nextLength));
+            next += nextLength;
+        }
+    }
+
+    private Chunk submit(long offset, long length) {
+        Slot slot = new Slot();
+        return new Chunk(offset, length, slot, executor.submit(() -> {
+            Buffer buffer = read(offset, length);
+            if (!slot.fill(buffer)) {
+                recycle(buffer);
+            }
+            return buffer;
+        }));
+    }
+
+    private Buffer read(long offset, long length) throws IOException, InterruptedException {
+        Buffer buffer = allocate(length);
+        try {
+            delegate.readChunk(offset, buffer.data().slice(length));
+        } catch (IOException | RuntimeException e) {
+            recycle(buffer);
+            throw e;
+        }
+        return buffer;
+    }
+
+    private Buffer allocate(long length) throws InterruptedException {
+        long bytes = memoryBudget == null ? 0 : memoryBudget.acquire(length);
+        Buffer buffer;
+        try {
+            buffer = new Buffer(bufferPool.acquire(length), bytes);
+        } catch (RuntimeException e) {
+            if (bytes > 0) {
+                memoryBudget.release(bytes);
+            }
+            throw e;
+        }
+        buffers.add(buffer);
+        return buffer;
+    }
+
+    private void recycle(Buffer buffer) {
+        if (!buffers.remove(buffer)) {
+            return;
+        }
+        buffer.data().close();
+        if (buffer.reserved() > 0) {
+            memoryBudget.release(buffer.reserved());
+        }
+    }
+
+    private Buffer get(Chunk chunk) throws IOException {
+        try {
+            return chunk.data().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DropDriveException("Reading chunk was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new DropDriveException("Unable to read chunk", e.getCause());
+        }
+    }
+
+    private void release(Chunk chunk) {
+        if (chunk == null) {
+            return;
+        }
+        // task which has not started is cancelled, running task recycles its buffer once it is read
+        chunk.data().cancel(false);
+        Buffer buffer = chunk.slot().release();
+        if (buffer != null) {
+            recycle(buffer);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        prefetched.forEach(chunk -> chunk.data().cancel(true));
+        prefetched.clear();
+        current = null;
+        executor.shutdownNow();
+        try {
+            awaitTermination();
+            // buffers of current chunk and of chunks read after they were cancelled
+            buffers.forEach(this::recycle);
+            if (ownBufferPool) {
+                bufferPool.close();
+            }
+        } finally {
+            delegate.close();
+        }
+    }
+
+    private void awaitTermination() {
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import net.czpilar.dropdrive.core.request.IBandwidthLimiter;
+import net.czpilar.dropdrive.core.request.IChunkSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Chunk source limiting bandwidth of chunks read from delegated source.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public class ThrottledChunkSource implements IChunkSource {
+
+    private final IChunkSource delegate;
+    private final IBandwidthLimiter bandwidthLimiter;
+
+    public ThrottledChunkSource(IChunkSource delegate, IBandwidthLimiter bandwidthLimiter) {
+        this.delegate = delegate;
+        this.bandwidthLimiter = bandwidthLimiter;
+    }
+
+    @Override
+    public long size() throws IOException {
+        return delegate.size();
+    }
+
+    @Override
+    public InputStream openChunk(long offset, long length) throws IOException {
+        return new ThrottledInputStream(delegate.openChunk(offset, length), bandwidthLimiter);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
@@ -0,0 +1,58 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import net.czpilar.dropdrive.core.request.IBandwidthLimiter;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * Input stream acquiring every read byte from bandwidth limiter.
+ * Reads are split into small blocks, so uploaded content flows smoothly instead of in bursts of whole chunks.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public class ThrottledInputStream extends FilterInputStream {
+
+    public static final int MAX_READ = 65536; // 64kB
+
+    private final IBandwidthLimiter bandwidthLimiter;
+
+    public ThrottledInputStream(InputStream in, IBandwidthLimiter bandwidthLimiter) {
+        super(in);
+        this.bandwidthLimiter = bandwidthLimiter;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int read = super.read();
+        if (read != -1) {
+            acquire(1);
+        }
+        return read;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, Math.min(len, MAX_READ));
+        if (read > 0) {
+            acquire(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        return in.skip(n);
+    }
+
+    private void acquire(int bytes) throws InterruptedIOException {
+        try {
+            bandwidthLimiter.acquire(bytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Waiting for bandwidth was interrupted");
+        }
+    }
+}
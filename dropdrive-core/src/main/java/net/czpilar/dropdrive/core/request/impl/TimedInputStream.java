@@ -0,0 +1,49 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream measuring time spent in reading from delegated stream, e.g. reading file or waiting for bandwidth,
+ * so it can be told apart from time of request sending read content.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public class TimedInputStream extends FilterInputStream {
+
+    private volatile long readNanos;
+
+    public TimedInputStream(InputStream in) {
+        super(in);
+    }
+
+    /**
+     * Returns time spent in reading from delegated stream so far.
+     *
+     * @return time in nanoseconds
+     */
+    public long getReadNanos() {
+        return readNanos;
+    }
+
+    @Override
+    public int read() throws IOException {
+        long start = System.nanoTime();
+        try {
+            return super.read();
+        } finally {
+            readNanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return super.read(b, off, len);
+        } finally {
+            readNanos += System.nanoTime() - start;
+        }
+    }
+}
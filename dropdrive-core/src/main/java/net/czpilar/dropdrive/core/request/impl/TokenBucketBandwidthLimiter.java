@@ -0,0 +1,155 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import net.czpilar.dropdrive.core.exception.DropDriveException;
+import net.czpilar.dropdrive.core.request.IBandwidthLimiter;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Bandwidth limiter implemented as a token bucket shared by all uploads in JVM.
+ * Bucket is refilled continuously with limit bytes per second up to burst capacity, which allows short bursts.
+ * Every acquire takes its bytes from bucket even when bucket gets empty and waits until the debt is refilled,
+ * so concurrent uploads are served in order of their requests and average rate stays at the limit.
+ * Limit is taken from the first scheduled time window containing current time of day
+ * or from default limit outside of scheduled windows. Both can be changed at runtime, also as JMX attributes,
+ * and apply to uploads already running.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+@Component
+@ManagedResource(objectName = "net.czpilar.dropdrive:type=BandwidthLimiter", description = "Bandwidth limiter of uploads")
+public class TokenBucketBandwidthLimiter implements IBandwidthLimiter {
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private record Window(LocalTime from, LocalTime to, long limit) {
+
+        boolean contains(LocalTime time) {
+            if (from.isBefore(to)) {
+                return !time.isBefore(from) && time.isBefore(to);
+            }
+            return !time.isBefore(from) || time.isBefore(to);
+        }
+    }
+
+    private final long burst;
+    private final Clock clock;
+    private final LongSupplier nanoTime;
+
+    private volatile long limit;
+    private volatile List<Window> schedule;
+
+    private double tokens;
+    private long lastLimit;
+    private long lastRefill;
+
+    @Autowired
+    public TokenBucketBandwidthLimiter(@Value("${dropdrive.file.upload.bandwidth.limit}") long limit,
+                                       @Value("${dropdrive.file.upload.bandwidth.burst}") long burst,
+                                       @Value("${dropdrive.file.upload.bandwidth.schedule}") String schedule) {
+        this(limit, burst, schedule, Clock.systemDefaultZone(), System::nanoTime);
+    }
+
+    TokenBucketBandwidthLimiter(long limit, long burst, String schedule, Clock clock, LongSupplier nanoTime) {
+        this.burst = burst;
+        this.clock = clock;
+        this.nanoTime = nanoTime;
+        setLimit(limit);
+        setSchedule(schedule);
+    }
+
+    @Override
+    public void acquire(long bytes) throws InterruptedException {
+        if (!isLimited()) {
+            return;
+        }
+        long waitNanos = reserve(bytes);
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Takes bytes from bucket and returns how long caller has to wait until bucket is refilled.
+     *
+     * @param bytes number of bytes
+     * @return wait time in nanoseconds
+     */
+    synchronized long reserve(long bytes) {
+        long now = nanoTime.getAsLong();
+        long currentLimit = getLimit();
+        double capacity = burst > 0 ? burst : currentLimit;
+        if (currentLimit <= 0) {
+            lastLimit = currentLimit;
+            return 0;
+        }
+        if (lastLimit <= 0) {
+            tokens = capacity;
+        } else {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * currentLimit / NANOS_PER_SECOND);
+        }
+        lastLimit = currentLimit;
+        lastRefill = now;
+        tokens -= bytes;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens * NANOS_PER_SECOND / currentLimit);
+    }
+
+    @Override
+    @ManagedAttribute(description = "Limit in bytes per second applied at this moment, 0 means unlimited")
+    public long getLimit() {
+        LocalTime time = LocalTime.now(clock);
+        for (Window window : schedule) {
+            if (window.contains(time)) {
+                return window.limit();
+            }
+        }
+        return limit;
+    }
+
+    @Override
+    @ManagedAttribute(description = "True if bandwidth is limited by default limit or by any scheduled time window")
+    public boolean isLimited() {
+        return limit > 0 || schedule.stream().anyMatch(window -> window.limit() > 0);
+    }
+
+    @Override
+    @ManagedAttribute(description = "Changes default limit in bytes per second applied outside of scheduled time windows")
+    public void setLimit(long limit) {
+        this.limit = Math.max(0, limit);
+    }
+
+    @Override
+    @ManagedAttribute(description = "Changes schedule of limits in comma separated time windows HH:mm-HH:mm=limit")
+    public void setSchedule(String schedule) {
+        this.schedule = parseSchedule(schedule);
+    }
+
+    private static List<Window> parseSchedule(String schedule) {
+        List<Window> windows = new ArrayList<>();
+        for (String item : StringUtils.split(StringUtils.trimToEmpty(schedule), ',')) {
+            String[] window = StringUtils.split(item.trim(), "-=");
+            if (window.length != 3) {
+                throw new DropDriveException("Invalid bandwidth schedule window " + item);
+            }
+            try {
+                windows.add(new Window(LocalTime.parse(window[0].trim()), LocalTime.parse(window[1].trim()),
+                        Math.max(0, Long.parseLong(window[2].trim()))));
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new DropDriveException("Invalid bandwidth schedule window " + item, e);
+            }
+        }
+        return List.copyOf(windows);
+    }
+}
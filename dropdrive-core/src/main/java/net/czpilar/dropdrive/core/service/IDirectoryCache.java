@@ -0,0 +1,73 @@
+package net.czpilar.dropdrive.core.service;
+
+import com.dropbox.core.v2.files.FolderMetadata;
+
+import java.util.function.Function;
+
+/**
+ * Interface for caching directories found or created in Dropbox by their paths.
+ * Paths are compared case-insensitively as in Dropbox.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public interface IDirectoryCache {
+
+    /**
+     * Returns cached directory of given path or loads it with given loader and caches the result.
+     * Directory which is not found is cached too, but for a shorter time.
+     *
+     * @param path   path of directory
+     * @param loader loader of directory by path returning null when directory is not found
+     * @return directory or null if the directory is not found
+     */
+    FolderMetadata find(String path, Function<String, FolderMetadata> loader);
+
+    /**
+     * Returns cached directory of given path without loading it.
+     *
+     * @param path path of directory
+     * @return cached directory or null if the directory is not cached or is cached as not found
+     */
+    FolderMetadata get(String path);
+
+    /**
+     * Caches directory of given path, e.g. just created one.
+     *
+     * @param path      path of directory
+     * @param directory directory
+     */
+    void put(String path, FolderMetadata directory);
+
+    /**
+     * Removes cached directory of given path and all cached directories under it.
+     *
+     * @param path path of directory
+     */
+    void invalidate(String path);
+
+    /**
+     * Removes all cached directories.
+     */
+    void clear();
+
+    /**
+     * Returns number of cached paths.
+     *
+     * @return number of cached paths
+     */
+    int getSize();
+
+    /**
+     * Returns total number of lookups served from cache.
+     *
+     * @return number of hits
+     */
+    long getHits();
+
+    /**
+     * Returns total number of lookups loaded by loader.
+     *
+     * @return number of misses
+     */
+    long getMisses();
+}
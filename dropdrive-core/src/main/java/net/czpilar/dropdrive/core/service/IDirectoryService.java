@@ -2,6 +2,9 @@ package net.czpilar.dropdrive.core.service;
 
 import com.dropbox.core.v2.files.FolderMetadata;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * Directory service interface.
  *
@@ -50,4 +53,25 @@ public interface IDirectoryService {
      * @return found or created a directory
      */
     FolderMetadata findOrCreateDirectory(String pathname, FolderMetadata parentDir);
+
+    /**
+     * Finds or creates directories with given pathnames where finding starts with the root parent.
+     * Directories which are not known to exist are created with a few batch requests.
+     * Pathnames support directory separators "/" or "\".
+     *
+     * @param pathnames path names
+     * @return found or created directories by given path names in order of path names
+     */
+    Map<String, FolderMetadata> findOrCreateDirectories(Collection<String> pathnames);
+
+    /**
+     * Finds or creates directories with given pathnames where finding starts with the given parent directory.
+     * Directories which are not known to exist are created with a few batch requests.
+     * Pathnames support directory separators "/" or "\".
+     *
+     * @param pathnames path names
+     * @param parentDir parent directory
+     * @return found or created directories by given path names in order of path names
+     */
+    Map<String, FolderMetadata> findOrCreateDirectories(Collection<String> pathnames, FolderMetadata parentDir);
 }
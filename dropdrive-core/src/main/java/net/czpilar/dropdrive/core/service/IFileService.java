@@ -2,6 +2,7 @@ package net.czpilar.dropdrive.core.service;
 
 import com.dropbox.core.v2.files.FileMetadata;
 import com.dropbox.core.v2.files.FolderMetadata;
+import net.czpilar.dropdrive.core.request.UploadScheduler;
 
 import java.util.List;
 
@@ -59,6 +60,18 @@ public interface IFileService {
      */
     List<FileMetadata> uploadFiles(List<String> filenames, String pathname);
 
+    /**
+     * Upload files to directory specified by pathname starting on root level in given lane of upload scheduler.
+     * Files of interactive lane waiting for upload are uploaded before files of bulk lane
+     * when upload slots of scheduler are limited, otherwise lane has no effect.
+     *
+     * @param filenames filenames
+     * @param pathname  path name
+     * @param lane      lane of upload scheduler
+     * @return uploaded files
+     */
+    List<FileMetadata> uploadFiles(List<String> filenames, String pathname, UploadScheduler.Lane lane);
+
     /**
      * Upload files to a directory.
      *
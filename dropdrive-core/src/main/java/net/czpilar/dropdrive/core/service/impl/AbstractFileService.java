@@ -3,10 +3,14 @@ package net.czpilar.dropdrive.core.service.impl;
 import com.dropbox.core.DbxException;
 import com.dropbox.core.v2.files.*;
 import net.czpilar.dropdrive.core.exception.FileHandleException;
+import net.czpilar.dropdrive.core.request.IConcurrencyLimiter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.Assert;
 
+import java.io.IOException;
+
 /**
  * Base service for file and directory common functions.
  *
@@ -16,6 +20,17 @@ public abstract class AbstractFileService extends AbstractService {
 
     private static final Logger LOG = LoggerFactory.getLogger(AbstractFileService.class);
 
+    private IConcurrencyLimiter concurrencyLimiter;
+
+    @Autowired
+    public void setConcurrencyLimiter(IConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    protected IConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
     protected String getPath(String filename, Metadata parent) {
         Assert.notNull(filename, "Filename must not be null.");
 
@@ -31,6 +46,11 @@ public abstract class AbstractFileService extends AbstractService {
         return path.toString();
     }
 
+    protected ListFolderResult listFolderContinue(String cursor) throws IOException, DbxException {
+        return getConcurrencyLimiter().execute(IConcurrencyLimiter.Operation.METADATA,
+                () -> getDbxClient().files().listFolderContinue(cursor));
+    }
+
     protected FolderMetadata findFolder(String filename, FolderMetadata parent) {
         Metadata entry = findEntry(filename, parent);
         return entry instanceof FolderMetadata ? (FolderMetadata) entry : null;
@@ -43,8 +63,10 @@ public abstract class AbstractFileService extends AbstractService {
 
     private Metadata findEntry(String filename, FolderMetadata parent) {
         Metadata entry;
+        String path = getPath(filename, parent);
         try {
-            entry = getDbxClient().files().getMetadata(getPath(filename, parent));
+            entry = getConcurrencyLimiter().execute(IConcurrencyLimiter.Operation.METADATA,
+                    () -> getDbxClient().files().getMetadata(path));
         } catch (GetMetadataErrorException e) {
             if (e.errorValue.getPathValue().tag() == LookupError.Tag.NOT_FOUND) {
                 entry = null;
@@ -52,7 +74,7 @@ public abstract class AbstractFileService extends AbstractService {
                 LOG.error("Unable to find {}.", filename);
                 throw new FileHandleException("Unable to find file.", e);
             }
-        } catch (DbxException e) {
+        } catch (IOException | DbxException e) {
             LOG.error("Unable to find {}.", filename);
             throw new FileHandleException("Unable to find file.", e);
         }
@@ -0,0 +1,162 @@
+package net.czpilar.dropdrive.core.service.impl;
+
+import com.dropbox.core.v2.files.FolderMetadata;
+import net.czpilar.dropdrive.core.service.IDirectoryCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache of directories shared by all uploads in JVM, so folders resolved again and again are not looked up
+ * in Dropbox every time. Found directories are cached for TTL and directories which were not found for shorter
+ * miss TTL, the least recently used paths are evicted above maximal size. Result of lookup is not cached when
+ * the cache was changed during the lookup, so a stale result never replaces a directory just created.
+ * Usage of cache is exported as JMX attributes.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+@Component
+@ManagedResource(objectName = "net.czpilar.dropdrive:type=DirectoryCache", description = "Cache of directories")
+public class DirectoryCache implements IDirectoryCache {
+
+    private record Entry(FolderMetadata directory, long expiresAt) {
+    }
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final long missTtlNanos;
+    private final LongSupplier nanoTime;
+    private final Map<String, Entry> entries;
+
+    private long version;
+    private long hits;
+    private long misses;
+
+    public DirectoryCache(@Value("${dropdrive.file.upload.directory.cache.size}") int maxSize,
+                          @Value("${dropdrive.file.upload.directory.cache.ttl}") long ttl,
+                          @Value("${dropdrive.file.upload.directory.cache.miss.ttl}") long missTtl) {
+        this(maxSize, ttl, missTtl, System::nanoTime);
+    }
+
+    DirectoryCache(int maxSize, long ttl, long missTtl, LongSupplier nanoTime) {
+        this.maxSize = Math.max(0, maxSize);
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttl));
+        this.missTtlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, missTtl));
+        this.nanoTime = nanoTime;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > DirectoryCache.this.maxSize;
+            }
+        };
+    }
+
+    private static String key(String path) {
+        return path.toLowerCase(Locale.ROOT);
+    }
+
+    private boolean isEnabled() {
+        return maxSize > 0 && ttlNanos > 0;
+    }
+
+    private Entry getEntry(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt() - nanoTime.getAsLong() <= 0) {
+            entries.remove(key);
+            entry = null;
+        }
+        return entry;
+    }
+
+    @Override
+    public FolderMetadata find(String path, Function<String, FolderMetadata> loader) {
+        if (!isEnabled()) {
+            return loader.apply(path);
+        }
+        String key = key(path);
+        long loadVersion;
+        synchronized (this) {
+            Entry entry = getEntry(key);
+            if (entry != null) {
+                hits++;
+                return entry.directory();
+            }
+            misses++;
+            loadVersion = version;
+        }
+        FolderMetadata directory = loader.apply(path);
+        long entryTtl = directory != null ? ttlNanos : missTtlNanos;
+        synchronized (this) {
+            if (loadVersion == version && entryTtl > 0) {
+                entries.put(key, new Entry(directory, nanoTime.getAsLong() + entryTtl));
+            }
+        }
+        return directory;
+    }
+
+    @Override
+    public synchronized FolderMetadata get(String path) {
+        Entry entry = getEntry(key(path));
+        if (entry != null && entry.directory() != null) {
+            hits++;
+            return entry.directory();
+        }
+        // nothing is loaded, so it is not counted as miss
+        return null;
+    }
+
+    @Override
+    public synchronized void put(String path, FolderMetadata directory) {
+        if (isEnabled()) {
+            version++;
+            entries.put(key(path), new Entry(directory, nanoTime.getAsLong() + ttlNanos));
+        }
+    }
+
+    @Override
+    public synchronized void invalidate(String path) {
+        String key = key(path);
+        String prefix = key.endsWith("/") ? key : key + "/";
+        version++;
+        entries.keySet().removeIf(cached -> cached.equals(key) || cached.startsWith(prefix));
+    }
+
+    @Override
+    @ManagedOperation(description = "Removes all cached directories")
+    public synchronized void clear() {
+        version++;
+        entries.clear();
+    }
+
+    @ManagedAttribute(description = "Maximal number of cached paths, 0 means cache is disabled")
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    @ManagedAttribute(description = "Number of cached paths")
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    @Override
+    @ManagedAttribute(description = "Total number of lookups served from cache")
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    @Override
+    @ManagedAttribute(description = "Total number of lookups not served from cache")
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
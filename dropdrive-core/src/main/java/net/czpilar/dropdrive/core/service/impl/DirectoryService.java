@@ -1,27 +1,53 @@
 package net.czpilar.dropdrive.core.service.impl;
 
 import com.dropbox.core.DbxException;
-import com.dropbox.core.v2.files.FolderMetadata;
+import com.dropbox.core.v2.files.*;
 import net.czpilar.dropdrive.core.exception.DirectoryHandleException;
+import net.czpilar.dropdrive.core.request.IConcurrencyLimiter;
+import net.czpilar.dropdrive.core.service.IDirectoryCache;
 import net.czpilar.dropdrive.core.service.IDirectoryService;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+
 /**
  * Service with methods for handling directories in Dropbox.
+ * Found and created directories are cached by {@link IDirectoryCache}.
  *
  * @author David Pilar (david@czpilar.net)
  */
 @Service
 public class DirectoryService extends AbstractFileService implements IDirectoryService {
 
+    public static final int MAX_BATCH_SIZE = 10000;
+
     private static final String DIRECTORY_SEPARATOR = "/";
+    private static final long POLL_DELAY = 100;
+    private static final long MAX_POLL_DELAY = 3200;
 
     private static final Logger LOG = LoggerFactory.getLogger(DirectoryService.class);
 
+    private record Pending(String pathname, List<String> pathnames) {
+    }
+
+    private IDirectoryCache directoryCache;
+
+    @Autowired
+    public void setDirectoryCache(IDirectoryCache directoryCache) {
+        this.directoryCache = directoryCache;
+    }
+
+    protected IDirectoryCache getDirectoryCache() {
+        return directoryCache;
+    }
+
     private static String normalizePathname(String pathname) {
         return Strings.CS.replace(pathname, "\\", DIRECTORY_SEPARATOR);
     }
@@ -34,16 +60,94 @@ public class DirectoryService extends AbstractFileService implements IDirectoryS
         return StringUtils.trimToNull(StringUtils.substringAfter(pathname, DIRECTORY_SEPARATOR));
     }
 
+    private static String getWholePathname(String pathname) {
+        if (pathname == null) {
+            return null;
+        }
+        String wholePathname = Arrays.stream(StringUtils.split(pathname, DIRECTORY_SEPARATOR))
+                .map(StringUtils::trimToNull)
+                .filter(Objects::nonNull)
+                .collect(Collectors.joining(DIRECTORY_SEPARATOR));
+        return StringUtils.trimToNull(wholePathname);
+    }
+
+    private static boolean isConflict(CreateFolderErrorException e) {
+        return e.errorValue.isPath() && e.errorValue.getPathValue().isConflict();
+    }
+
+    private static boolean isFolderConflict(CreateFolderErrorException e) {
+        return isConflict(e) && isFolderConflict(e.errorValue.getPathValue());
+    }
+
+    private static boolean isFolderConflict(WriteError error) {
+        return error.isConflict() && error.getConflictValue() == WriteConflictError.FOLDER;
+    }
+
+    @Override
+    protected FolderMetadata findFolder(String filename, FolderMetadata parent) {
+        return getDirectoryCache().find(getPath(filename, parent), _ -> super.findFolder(filename, parent));
+    }
+
     protected FolderMetadata createOneDirectory(String dirname, FolderMetadata parentDir) {
         String path = getPath(dirname, parentDir);
         try {
-            return getDbxClient().files().createFolderV2(path).getMetadata();
-        } catch (DbxException e) {
+            FolderMetadata dir = getConcurrencyLimiter().execute(IConcurrencyLimiter.Operation.COMMIT,
+                    () -> getDbxClient().files().createFolderV2(path).getMetadata());
+            getDirectoryCache().put(path, dir);
+            return dir;
+        } catch (CreateFolderErrorException e) {
+            if (isConflict(e)) {
+                FolderMetadata dir = findConflictingDirectory(dirname, parentDir, path);
+                if (dir != null) {
+                    return dir;
+                }
+            }
+            LOG.error("Unable to create directory {}.", dirname);
+            throw new DirectoryHandleException("Unable to create directory.", e);
+        } catch (IOException | DbxException e) {
             LOG.error("Unable to create directory {}.", dirname);
             throw new DirectoryHandleException("Unable to create directory.", e);
         }
     }
 
+    private FolderMetadata findConflictingDirectory(String pathname, FolderMetadata parentDir, String path) {
+        // cached directory is stale, e.g. directory was created by someone else meanwhile
+        getDirectoryCache().invalidate(path);
+        return findFolder(pathname, parentDir);
+    }
+
+    /**
+     * Finds or creates directory of whole pathname with missing parents in one request.
+     * Directory not found in cache is created right away without looking it up first,
+     * so missing directory costs one request and existing one is looked up only when creating it conflicts.
+     *
+     * @param pathname  path name without empty directory names
+     * @param parentDir parent directory
+     * @return found or created directory or null if directory cannot be created at once
+     */
+    protected FolderMetadata findOrCreateWholeDirectory(String pathname, FolderMetadata parentDir) {
+        String path = getPath(pathname, parentDir);
+        FolderMetadata dir = getDirectoryCache().get(path);
+        if (dir != null) {
+            return dir;
+        }
+        try {
+            dir = getConcurrencyLimiter().execute(IConcurrencyLimiter.Operation.COMMIT,
+                    () -> getDbxClient().files().createFolderV2(path).getMetadata());
+            getDirectoryCache().put(path, dir);
+            return dir;
+        } catch (CreateFolderErrorException e) {
+            if (isFolderConflict(e)) {
+                return findConflictingDirectory(pathname, parentDir, path);
+            }
+            LOG.debug("Unable to create directory {} at once, error: {}", pathname, e.errorValue);
+            return null;
+        } catch (IOException | DbxException e) {
+            LOG.error("Unable to create directory {}.", pathname);
+            throw new DirectoryHandleException("Unable to create directory.", e);
+        }
+    }
+
     protected FolderMetadata findOrCreateOneDirectory(String dirname, FolderMetadata parentDir) {
         FolderMetadata dir = findFolder(dirname, parentDir);
         if (dir == null) {
@@ -80,6 +184,17 @@ public class DirectoryService extends AbstractFileService implements IDirectoryS
     @Override
     public FolderMetadata findOrCreateDirectory(String pathname, FolderMetadata parentDir) {
         pathname = normalizePathname(pathname);
+        String wholePathname = getWholePathname(pathname);
+        if (wholePathname != null && wholePathname.contains(DIRECTORY_SEPARATOR)) {
+            FolderMetadata dir = findOrCreateWholeDirectory(wholePathname, parentDir);
+            if (dir != null) {
+                return dir;
+            }
+        }
+        return findOrCreateDirectoryByLevels(pathname, parentDir);
+    }
+
+    protected FolderMetadata findOrCreateDirectoryByLevels(String pathname, FolderMetadata parentDir) {
         String dirname = getCurrentDirname(pathname);
         FolderMetadata currentDir = parentDir;
         if (dirname != null) {
@@ -87,8 +202,159 @@ public class DirectoryService extends AbstractFileService implements IDirectoryS
         }
         String nextPathname = getNextPathname(pathname);
         if (nextPathname != null) {
-            currentDir = findOrCreateDirectory(nextPathname, currentDir);
+            currentDir = findOrCreateDirectoryByLevels(nextPathname, currentDir);
         }
         return currentDir;
     }
+
+    @Override
+    public Map<String, FolderMetadata> findOrCreateDirectories(Collection<String> pathnames) {
+        return findOrCreateDirectories(pathnames, null);
+    }
+
+    @Override
+    public Map<String, FolderMetadata> findOrCreateDirectories(Collection<String> pathnames, FolderMetadata parentDir) {
+        Map<String, FolderMetadata> dirs = new LinkedHashMap<>();
+        Map<String, Pending> missing = new LinkedHashMap<>();
+        for (String pathname : pathnames) {
+            String wholePathname = getWholePathname(normalizePathname(pathname));
+            FolderMetadata dir = parentDir;
+            if (wholePathname != null) {
+                String path = getPath(wholePathname, parentDir);
+                dir = getDirectoryCache().get(path);
+                if (dir == null) {
+                    missing.computeIfAbsent(path, _ -> new Pending(wholePathname, new ArrayList<>())).pathnames().add(pathname);
+                }
+            }
+            dirs.put(pathname, dir);
+        }
+
+        List<String> paths = new ArrayList<>(missing.keySet());
+        for (int from = 0; from < paths.size(); from += MAX_BATCH_SIZE) {
+            List<String> batch = paths.subList(from, Math.min(paths.size(), from + MAX_BATCH_SIZE));
+            List<CreateFolderBatchResultEntry> entries = createDirectories(batch);
+            Map<String, FolderMetadata> created = new HashMap<>();
+            List<String> existing = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                String path = batch.get(i);
+                CreateFolderBatchResultEntry entry = entries.get(i);
+                if (entry.isSuccess()) {
+                    FolderMetadata dir = entry.getSuccessValue().getMetadata();
+                    getDirectoryCache().put(path, dir);
+                    created.put(path, dir);
+                } else if (entry.getFailureValue().isPath() && isFolderConflict(entry.getFailureValue().getPathValue())) {
+                    existing.add(path);
+                } else {
+                    LOG.debug("Unable to create directory {} in batch, error: {}", missing.get(path).pathname(), entry.getFailureValue());
+                }
+            }
+            if (!existing.isEmpty()) {
+                created.putAll(findExistingDirectories(existing));
+            }
+            for (String path : batch) {
+                Pending pending = missing.get(path);
+                FolderMetadata dir = created.get(path);
+                if (dir == null) {
+                    dir = findOrCreateDirectoryByLevels(pending.pathname(), parentDir);
+                }
+                for (String pathname : pending.pathnames()) {
+                    dirs.put(pathname, dir);
+                }
+            }
+        }
+        return dirs;
+    }
+
+    private static String getCommonParentPath(Collection<String> paths) {
+        String parent = null;
+        for (String path : paths) {
+            String pathParent = StringUtils.substringBeforeLast(path, DIRECTORY_SEPARATOR);
+            if (parent == null) {
+                parent = pathParent;
+            } else {
+                while (!parent.isEmpty() && !Strings.CI.startsWith(pathParent + DIRECTORY_SEPARATOR, parent + DIRECTORY_SEPARATOR)) {
+                    parent = StringUtils.substringBeforeLast(parent, DIRECTORY_SEPARATOR);
+                }
+            }
+        }
+        return parent == null ? "" : parent;
+    }
+
+    /**
+     * Finds existing directories of given paths with one recursive listing of their common parent directory
+     * instead of looking them up one by one. Listing is stopped as soon as all directories are found.
+     *
+     * @param paths paths of existing directories
+     * @return found directories by their paths, directories not found in listing are missing
+     */
+    protected Map<String, FolderMetadata> findExistingDirectories(Collection<String> paths) {
+        Map<String, String> wanted = new HashMap<>();
+        for (String path : paths) {
+            wanted.put(path.toLowerCase(Locale.ROOT), path);
+        }
+        String parentPath = getCommonParentPath(paths);
+        Map<String, FolderMetadata> found = new HashMap<>();
+        try {
+            ListFolderResult result = getConcurrencyLimiter().execute(IConcurrencyLimiter.Operation.METADATA,
+                    () -> getDbxClient().files().listFolderBuilder(parentPath).withRecursive(true).start());
+            while (true) {
+                for (Metadata entry : result.getEntries()) {
+                    if (entry instanceof FolderMetadata dir) {
+                        String path = wanted.remove(dir.getPathLower());
+                        if (path != null) {
+                            getDirectoryCache().put(path, dir);
+                            found.put(path, dir);
+                        }
+                    }
+                }
+                if (wanted.isEmpty() || !result.getHasMore()) {
+                    break;
+                }
+                result = listFolderContinue(result.getCursor());
+            }
+        } catch (IOException | DbxException e) {
+            LOG.warn("Unable to list directory {}, directories are found level by level, message: {}", parentPath, e.getMessage());
+        }
+        return found;
+    }
+
+    /**
+     * Creates directories of given paths with one batch request, asynchronous batch is polled with growing delay.
+     */
+    private List<CreateFolderBatchResultEntry> createDirectories(List<String> paths) {
+        LOG.info("Creating batch of {} directories", paths.size());
+        try {
+            CreateFolderBatchLaunch launch = getConcurrencyLimiter().execute(IConcurrencyLimiter.Operation.COMMIT,
+                    () -> getDbxClient().files().createFolderBatch(paths));
+            if (launch.isComplete()) {
+                return launch.getCompleteValue().getEntries();
+            } else if (launch.isAsyncJobId()) {
+                return pollDirectories(launch.getAsyncJobIdValue()).getEntries();
+            }
+            throw new DirectoryHandleException("Unable to create directories, unexpected result " + launch + ".");
+        } catch (IOException | DbxException e) {
+            LOG.error("Unable to create batch of {} directories.", paths.size());
+            throw new DirectoryHandleException("Unable to create directories.", e);
+        }
+    }
+
+    private CreateFolderBatchResult pollDirectories(String asyncJobId) throws IOException, DbxException {
+        long delay = POLL_DELAY;
+        while (true) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DirectoryHandleException("Interrupted while creating directories.", e);
+            }
+            CreateFolderBatchJobStatus status = getConcurrencyLimiter().execute(IConcurrencyLimiter.Operation.METADATA,
+                    () -> getDbxClient().files().createFolderBatchCheck(asyncJobId));
+            if (status.isComplete()) {
+                return status.getCompleteValue();
+            } else if (!status.isInProgress()) {
+                throw new DirectoryHandleException("Unable to create directories, result " + status + ".");
+            }
+            delay = Math.min(delay * 2, MAX_POLL_DELAY);
+        }
+    }
 }
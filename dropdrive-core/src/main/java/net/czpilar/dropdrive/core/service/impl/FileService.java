@@ -3,11 +3,22 @@ package net.czpilar.dropdrive.core.service.impl;
 import com.dropbox.core.DbxException;
 import com.dropbox.core.v2.files.FileMetadata;
 import com.dropbox.core.v2.files.FolderMetadata;
+import com.dropbox.core.v2.files.ListFolderContinueErrorException;
+import com.dropbox.core.v2.files.ListFolderResult;
 import net.czpilar.dropdrive.core.exception.FileHandleException;
 import net.czpilar.dropdrive.core.listener.impl.FileUploadProgressListener;
+import net.czpilar.dropdrive.core.request.BatchFileRequest;
+import net.czpilar.dropdrive.core.request.ChunkBufferPool;
+import net.czpilar.dropdrive.core.request.ChunkScheduler;
 import net.czpilar.dropdrive.core.request.FileRequest;
+import net.czpilar.dropdrive.core.request.IBandwidthLimiter;
+import net.czpilar.dropdrive.core.request.IConcurrencyLimiter;
+import net.czpilar.dropdrive.core.request.IMemoryBudget;
+import net.czpilar.dropdrive.core.request.IRetryPolicy;
+import net.czpilar.dropdrive.core.request.UploadScheduler;
 import net.czpilar.dropdrive.core.service.IDirectoryService;
 import net.czpilar.dropdrive.core.service.IFileService;
+import net.czpilar.dropdrive.core.setting.UploadSetting;
 import net.czpilar.dropdrive.core.util.EqualUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,10 +26,20 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 /**
  * Service with methods for handling files in Dropbox.
@@ -30,9 +51,18 @@ public class FileService extends AbstractFileService implements IFileService {
 
     private static final Logger LOG = LoggerFactory.getLogger(FileService.class);
 
+    private static final ScopedValue<FolderIndex> FOLDER_INDEX = ScopedValue.newInstance();
+
     private final int retries;
 
     private IDirectoryService directoryService;
+    private UploadSetting uploadSetting;
+    private IBandwidthLimiter bandwidthLimiter;
+    private IMemoryBudget memoryBudget;
+    private ChunkBufferPool chunkBufferPool;
+    private IRetryPolicy retryPolicy;
+    private ChunkScheduler chunkScheduler;
+    private UploadScheduler uploadScheduler;
 
     public FileService(@Value("${dropdrive.file.upload.retries}") int retries) {
         this.retries = retries;
@@ -51,6 +81,69 @@ public class FileService extends AbstractFileService implements IFileService {
         return directoryService;
     }
 
+    @Autowired
+    public void setUploadSetting(UploadSetting uploadSetting) {
+        this.uploadSetting = uploadSetting;
+    }
+
+    protected UploadSetting getUploadSetting() {
+        return uploadSetting;
+    }
+
+    @Autowired
+    public void setBandwidthLimiter(IBandwidthLimiter bandwidthLimiter) {
+        this.bandwidthLimiter = bandwidthLimiter;
+    }
+
+    protected IBandwidthLimiter getBandwidthLimiter() {
+        return bandwidthLimiter;
+    }
+
+    @Autowired
+    public void setMemoryBudget(IMemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    protected IMemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    @Autowired
+    public void setChunkBufferPool(ChunkBufferPool chunkBufferPool) {
+        this.chunkBufferPool = chunkBufferPool;
+    }
+
+    protected ChunkBufferPool getChunkBufferPool() {
+        return chunkBufferPool;
+    }
+
+    @Autowired
+    public void setRetryPolicy(IRetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    protected IRetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    @Autowired
+    public void setChunkScheduler(ChunkScheduler chunkScheduler) {
+        this.chunkScheduler = chunkScheduler;
+    }
+
+    protected ChunkScheduler getChunkScheduler() {
+        return chunkScheduler;
+    }
+
+    @Autowired
+    public void setUploadScheduler(UploadScheduler uploadScheduler) {
+        this.uploadScheduler = uploadScheduler;
+    }
+
+    protected UploadScheduler getUploadScheduler() {
+        return uploadScheduler;
+    }
+
     protected String getUploadDir(String uploadDirname) {
         if (uploadDirname == null) {
             uploadDirname = getDropDriveCredential().getUploadDir();
@@ -58,6 +151,104 @@ public class FileService extends AbstractFileService implements IFileService {
         return uploadDirname;
     }
 
+    private static <T, X extends Throwable> T callWithFolderIndex(FolderIndex index, ScopedValue.CallableOp<? extends T, X> op) throws X {
+        return index == null ? op.call() : ScopedValue.where(FOLDER_INDEX, index).call(op);
+    }
+
+    private static FolderIndex getFolderIndex(FolderMetadata parentDir) {
+        return FOLDER_INDEX.isBound() && FOLDER_INDEX.get().isIndexOf(parentDir) ? FOLDER_INDEX.get() : null;
+    }
+
+    @Override
+    protected FileMetadata findFile(String filename, FolderMetadata parent) {
+        FolderIndex index = getFolderIndex(parent);
+        return index != null ? index.findFile(filename) : super.findFile(filename, parent);
+    }
+
+    /**
+     * Lists given directory with all its pages into index of its files.
+     *
+     * @param parentDir directory or null for the root directory
+     * @return index of files of the directory or null if the directory cannot be listed
+     */
+    protected FolderIndex listFolder(FolderMetadata parentDir) {
+        String path = parentDir == null ? "" : parentDir.getPathDisplay();
+        FolderIndex index = new FolderIndex(parentDir);
+        try {
+            ListFolderResult result = getConcurrencyLimiter().execute(IConcurrencyLimiter.Operation.METADATA,
+                    () -> getDbxClient().files().listFolder(path));
+            result.getEntries().forEach(index::add);
+            while (result.getHasMore()) {
+                result = listFolderContinue(result.getCursor());
+                result.getEntries().forEach(index::add);
+            }
+            LOG.info("Listed {} file(s) of directory {}", index.size(), path);
+            return index;
+        } catch (IOException | DbxException e) {
+            LOG.warn("Unable to list directory {}, files are looked up one by one, message: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Refreshes snapshot of remote tree of given directory by changes since its cursor and saves it.
+     * Directory without snapshot or with reset cursor is listed recursively from scratch.
+     *
+     * @param parentDir   directory or null for the root directory
+     * @param snapshotDir snapshot directory
+     * @return index of files of the directory or null if the snapshot cannot be refreshed
+     */
+    protected FolderIndex refreshSnapshot(FolderMetadata parentDir, Path snapshotDir) {
+        RemoteSnapshot snapshot = RemoteSnapshot.load(snapshotDir, parentDir);
+        String path = snapshot.getPath();
+        try {
+            ListFolderResult result = null;
+            if (snapshot.getCursor() != null) {
+                try {
+                    result = listFolderContinue(snapshot.getCursor());
+                } catch (ListFolderContinueErrorException e) {
+                    if (!e.errorValue.isReset()) {
+                        throw e;
+                    }
+                    LOG.info("Listing of directory {} was reset, listing it again", path);
+                    snapshot.clear();
+                }
+            }
+            if (result == null) {
+                result = getConcurrencyLimiter().execute(IConcurrencyLimiter.Operation.METADATA,
+                        () -> getDbxClient().files().listFolderBuilder(path).withRecursive(true).start());
+            }
+            result.getEntries().forEach(snapshot::apply);
+            while (result.getHasMore()) {
+                result = listFolderContinue(result.getCursor());
+                result.getEntries().forEach(snapshot::apply);
+            }
+            snapshot.setCursor(result.getCursor());
+            snapshot.save();
+            LOG.info("Refreshed snapshot of {} file(s) of directory {}", snapshot.size(), path);
+            return snapshot.index();
+        } catch (IOException | DbxException e) {
+            LOG.warn("Unable to refresh snapshot of directory {}, message: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns index of files of upload directory taken from {@link RemoteSnapshot} of the directory when snapshot
+     * directory is configured, or listed at once when many files are uploaded, so files are found in the index
+     * instead of being looked up one by one.
+     */
+    private FolderIndex indexFolder(int count, FolderMetadata parentDir, UploadSetting setting) {
+        FolderIndex index = null;
+        if (setting.getSnapshotDir() != null) {
+            index = refreshSnapshot(parentDir, Path.of(setting.getSnapshotDir()));
+        }
+        if (index == null && setting.getListThreshold() > 0 && count >= setting.getListThreshold()) {
+            index = listFolder(parentDir);
+        }
+        return index;
+    }
+
     @Override
     public FileMetadata uploadFile(String filename, String pathname) {
         FolderMetadata parentDir = getDirectoryService().findOrCreateDirectory(getUploadDir(pathname));
@@ -68,30 +259,31 @@ public class FileService extends AbstractFileService implements IFileService {
         String filename = pathToFile.getFileName().toString();
         LOG.info("Uploading new file {}", filename);
         FileRequest request = FileRequest.createInsert(getDbxClient(), getPath(filename, parentDir), pathToFile.toFile());
-        request.setProgressListener(new FileUploadProgressListener(filename, pathToFile.toFile().length()));
-        return execute(request);
+        return execute(prepare(request, filename, pathToFile), pathToFile);
     }
 
     private FileMetadata updateFile(FileMetadata currentFile, Path pathToFile) throws Exception {
         String filename = pathToFile.getFileName().toString();
         LOG.info("Uploading updated file {}", filename);
         FileRequest request = FileRequest.createUpdate(getDbxClient(), currentFile, pathToFile.toFile());
+        return execute(prepare(request, filename, pathToFile), pathToFile);
+    }
+
+    private FileRequest prepare(FileRequest request, String filename, Path pathToFile) {
         request.setProgressListener(new FileUploadProgressListener(filename, pathToFile.toFile().length()));
-        return execute(request);
+        request.setUploadSetting(getUploadSetting());
+        request.setBandwidthLimiter(getBandwidthLimiter());
+        request.setMemoryBudget(getMemoryBudget());
+        request.setChunkBufferPool(getChunkBufferPool());
+        request.setRetryPolicy(getRetryPolicy());
+        request.setConcurrencyLimiter(getConcurrencyLimiter());
+        request.setChunkScheduler(getChunkScheduler());
+        return request;
     }
 
-    private FileMetadata execute(FileRequest request) throws Exception {
-        int retry = 0;
-        while (true) {
-            try {
-                return request.execute();
-            } catch (DbxException e) {
-                retry++;
-                if (retry > getRetries()) {
-                    throw e;
-                }
-                LOG.warn("Error during executing uploading file, retrying for {} time(s), message: {}", retry, e.getMessage());
-            }
+    private FileMetadata execute(FileRequest request, Path pathToFile) throws Exception {
+        try (UploadScheduler.Permit _ = getUploadScheduler().acquire(pathToFile.toFile().length())) {
+            return getRetryPolicy().execute("uploading file", getRetries(), request::execute);
         }
     }
 
@@ -103,12 +295,17 @@ public class FileService extends AbstractFileService implements IFileService {
 
             if (currentFile == null) {
                 currentFile = insertFile(pathToFile, parentDir);
-            } else if (EqualUtils.notEquals(currentFile, pathToFile)) {
+            } else if (EqualUtils.notEquals(currentFile, pathToFile, getUploadSetting().getCompareMode())) {
                 currentFile = updateFile(currentFile, pathToFile);
             } else {
                 LOG.info("There is nothing to upload.");
             }
 
+            FolderIndex index = getFolderIndex(parentDir);
+            if (index != null) {
+                index.add(currentFile);
+            }
+
             LOG.info("Finished uploading file {} - remote revision is {}", filename, currentFile.getRev());
             return currentFile;
         } catch (Exception e) {
@@ -133,18 +330,189 @@ public class FileService extends AbstractFileService implements IFileService {
         return uploadFiles(filenames, parentDir);
     }
 
+    @Override
+    public List<FileMetadata> uploadFiles(List<String> filenames, String pathname, UploadScheduler.Lane lane) {
+        return UploadScheduler.callInLane(lane, () -> uploadFiles(filenames, pathname));
+    }
+
     @Override
     public List<FileMetadata> uploadFiles(List<String> filenames, FolderMetadata parentDir) {
+        if (filenames == null) {
+            return new ArrayList<>();
+        }
+        List<Integer> order = getUploadScheduler().order(filenames);
+        List<String> orderedFilenames = order.stream().map(filenames::get).toList();
+        UploadSetting setting = getUploadSetting();
+        FolderIndex index = getFolderIndex(parentDir) == null ? indexFolder(orderedFilenames.size(), parentDir, setting) : null;
+        List<FileMetadata> orderedFiles = callWithFolderIndex(index, () -> uploadOrderedFiles(orderedFilenames, parentDir, setting));
+
+        FileMetadata[] files = new FileMetadata[filenames.size()];
+        for (int i = 0; i < order.size(); i++) {
+            files[order.get(i)] = orderedFiles.get(i);
+        }
+        List<FileMetadata> result = new ArrayList<>();
+        for (FileMetadata file : files) {
+            if (file != null) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+
+    private List<FileMetadata> uploadOrderedFiles(List<String> filenames, FolderMetadata parentDir, UploadSetting setting) {
+        if (setting.getBatchSize() > 1) {
+            return uploadFilesInBatch(filenames, parentDir);
+        }
+        return uploadFilesOneByOne(filenames, parentDir, setting);
+    }
+
+    private List<FileMetadata> uploadFilesOneByOne(List<String> filenames, FolderMetadata parentDir, UploadSetting setting) {
+        if (setting.getFileWorkers() > 1) {
+            return uploadFilesConcurrently(filenames, parentDir, setting.getFileWorkers());
+        }
+        List<FileMetadata> files = new ArrayList<>();
+        for (String filename : filenames) {
+            FileMetadata file = null;
+            try {
+                file = uploadFile(filename, parentDir);
+            } catch (FileHandleException e) {
+                LOG.error("Error during uploading file.", e);
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * Uploads files concurrently on virtual threads with at most given number of files uploaded at once.
+     * Files are uploaded in lane of upload scheduler, with read mode and folder index of the current thread.
+     * Uploaded files are returned at the same positions as their filenames, with {@code null} for files failed to upload.
+     *
+     * @param filenames filenames
+     * @param parentDir parent directory
+     * @param workers   maximal number of files uploaded at once
+     * @return uploaded files at positions of filenames
+     */
+    protected List<FileMetadata> uploadFilesConcurrently(List<String> filenames, FolderMetadata parentDir, int workers) {
+        Semaphore permits = new Semaphore(workers);
+        UploadScheduler.Lane lane = UploadScheduler.getLane();
+        UploadSetting.ReadMode readMode = UploadSetting.getBoundReadMode();
+        FolderIndex index = getFolderIndex(parentDir);
         List<FileMetadata> files = new ArrayList<>();
-        if (filenames != null) {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<FileMetadata>> futures = new ArrayList<>();
             for (String filename : filenames) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return UploadScheduler.callInLane(lane, () -> UploadSetting.callWithReadMode(readMode,
+                                () -> callWithFolderIndex(index, () -> uploadFile(filename, parentDir))));
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            for (Future<FileMetadata> future : futures) {
+                FileMetadata file = null;
                 try {
-                    files.add(uploadFile(filename, parentDir));
-                } catch (FileHandleException e) {
-                    LOG.error("Error during uploading file.", e);
+                    file = future.get();
+                } catch (InterruptedException e) {
+                    executor.shutdownNow();
+                    Thread.currentThread().interrupt();
+                    throw new FileHandleException("Uploading files was interrupted.", e);
+                } catch (ExecutionException e) {
+                    switch (e.getCause()) {
+                        case FileHandleException cause -> LOG.error("Error during uploading file.", cause);
+                        case RuntimeException cause -> throw cause;
+                        default -> throw new FileHandleException("Unable to upload file.", e.getCause());
+                    }
                 }
+                files.add(file);
             }
         }
         return files;
     }
+
+    /**
+     * Uploads small files in batches and larger files one by one.
+     * Files failed in batch are uploaded again one by one.
+     * Larger and failed files are uploaded concurrently when more file workers are set.
+     * File with the same name as file already in batch is uploaded after the batch, so it updates the batched file.
+     * Uploaded files are returned at the same positions as their filenames, with {@code null} for files failed to upload.
+     *
+     * @param filenames filenames
+     * @param parentDir parent directory
+     * @return uploaded files at positions of filenames
+     */
+    protected List<FileMetadata> uploadFilesInBatch(List<String> filenames, FolderMetadata parentDir) {
+        FileMetadata[] files = new FileMetadata[filenames.size()];
+        BatchFileRequest request = BatchFileRequest.create(getDbxClient());
+        request.setUploadSetting(getUploadSetting());
+        request.setBandwidthLimiter(getBandwidthLimiter());
+        request.setMemoryBudget(getMemoryBudget());
+        request.setChunkBufferPool(getChunkBufferPool());
+        request.setRetryPolicy(getRetryPolicy());
+        request.setConcurrencyLimiter(getConcurrencyLimiter());
+        List<Integer> batched = new ArrayList<>();
+        List<Integer> single = new ArrayList<>();
+        Set<String> batchedNames = new HashSet<>();
+
+        for (int i = 0; i < filenames.size(); i++) {
+            String filename = filenames.get(i);
+            try {
+                Path pathToFile = Paths.get(filename);
+                if (pathToFile.toFile().length() > getUploadSetting().getBatchThreshold()
+                        || !batchedNames.add(pathToFile.getFileName().toString().toLowerCase(Locale.ROOT))) {
+                    single.add(i);
+                    continue;
+                }
+                FileMetadata currentFile = findFile(pathToFile.getFileName().toString(), parentDir);
+                if (currentFile == null) {
+                    request.addInsert(getPath(pathToFile.getFileName().toString(), parentDir), pathToFile.toFile());
+                    batched.add(i);
+                } else if (EqualUtils.notEquals(currentFile, pathToFile, getUploadSetting().getCompareMode())) {
+                    request.addUpdate(currentFile, pathToFile.toFile());
+                    batched.add(i);
+                } else {
+                    LOG.info("There is nothing to upload for file {}", filename);
+                    files[i] = currentFile;
+                }
+            } catch (FileHandleException e) {
+                LOG.error("Error during uploading file.", e);
+            }
+        }
+
+        if (!batched.isEmpty()) {
+            FolderIndex index = getFolderIndex(parentDir);
+            List<BatchFileRequest.Result> results;
+            try {
+                results = request.execute();
+            } catch (IOException | DbxException e) {
+                LOG.warn("Error during executing uploading files in batch, uploading files one by one, message: {}", e.getMessage());
+                results = List.of();
+            }
+            for (int i = 0; i < batched.size(); i++) {
+                int position = batched.get(i);
+                BatchFileRequest.Result result = i < results.size() ? results.get(i) : null;
+                if (result != null && result.isSuccess()) {
+                    files[position] = result.file();
+                    if (index != null) {
+                        index.add(result.file());
+                    }
+                    LOG.info("Finished uploading file {} - remote revision is {}", filenames.get(position), result.file().getRev());
+                } else {
+                    single.add(position);
+                }
+            }
+        }
+
+        if (!single.isEmpty()) {
+            List<FileMetadata> singleFiles = uploadFilesOneByOne(single.stream().map(filenames::get).toList(), parentDir, getUploadSetting());
+            for (int i = 0; i < single.size(); i++) {
+                files[single.get(i)] = singleFiles.get(i);
+            }
+        }
+
+        return Arrays.asList(files);
+    }
 }
@@ -0,0 +1,76 @@
+package net.czpilar.dropdrive.core.service.impl;
+
+import com.dropbox.core.v2.files.FileMetadata;
+import com.dropbox.core.v2.files.FolderMetadata;
+import com.dropbox.core.v2.files.Metadata;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of files of one directory by their names built from listing of the directory,
+ * so files uploaded into the directory are found in the index instead of being looked up one by one.
+ * Names are compared case-insensitively as in Dropbox. Index is thread safe.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public class FolderIndex {
+
+    private final FolderMetadata folder;
+    private final Map<String, FileMetadata> files = new ConcurrentHashMap<>();
+
+    /**
+     * Creates empty index of given directory.
+     *
+     * @param folder directory or null for the root directory
+     */
+    public FolderIndex(FolderMetadata folder) {
+        this.folder = folder;
+    }
+
+    private static String key(String filename) {
+        return filename.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Adds listed entry of directory to index, entries other than files are ignored.
+     *
+     * @param entry listed entry
+     */
+    public void add(Metadata entry) {
+        if (entry instanceof FileMetadata file) {
+            files.put(key(file.getName()), file);
+        }
+    }
+
+    /**
+     * Returns true if this is index of given directory.
+     *
+     * @param folder directory or null for the root directory
+     * @return true if the index is of given directory
+     */
+    public boolean isIndexOf(FolderMetadata folder) {
+        return Objects.equals(this.folder, folder);
+    }
+
+    /**
+     * Finds file with given name in the index.
+     *
+     * @param filename name of file
+     * @return found file or null if the file is not in the directory
+     */
+    public FileMetadata findFile(String filename) {
+        return files.get(key(filename));
+    }
+
+    /**
+     * Returns number of indexed files.
+     *
+     * @return number of files
+     */
+    public int size() {
+        return files.size();
+    }
+}
@@ -0,0 +1,234 @@
+package net.czpilar.dropdrive.core.service.impl;
+
+import com.dropbox.core.v2.files.DeletedMetadata;
+import com.dropbox.core.v2.files.FileMetadata;
+import com.dropbox.core.v2.files.FolderMetadata;
+import com.dropbox.core.v2.files.Metadata;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * On-disk snapshot of remote tree of upload directory holding paths, revisions, sizes and content hashes
+ * of its files together with cursor of recursive listing of the directory, so next upload only applies changes
+ * made since the cursor instead of listing directory or looking up files again.
+ * Every directory has its own compressed file in snapshot directory.
+ * Snapshot is best-effort; snapshot which cannot be read is listed again and failure of writing it is only logged.
+ * Snapshot is not thread safe.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public class RemoteSnapshot {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RemoteSnapshot.class);
+
+    private static final int VERSION = 1;
+
+    private final Path file;
+    private final FolderMetadata folder;
+    private final String pathLower;
+    private final NavigableMap<String, FileMetadata> files = new TreeMap<>();
+
+    private String cursor;
+
+    private RemoteSnapshot(Path file, FolderMetadata folder) {
+        this.file = file;
+        this.folder = folder;
+        this.pathLower = pathLower(folder);
+    }
+
+    private static String pathLower(FolderMetadata folder) {
+        return folder == null || folder.getPathLower() == null ? "" : folder.getPathLower();
+    }
+
+    /**
+     * Loads snapshot of given directory from snapshot directory.
+     *
+     * @param directory snapshot directory
+     * @param folder    upload directory or null for the root directory
+     * @return loaded snapshot or empty snapshot without cursor if there is no valid snapshot
+     */
+    public static RemoteSnapshot load(Path directory, FolderMetadata folder) {
+        Path file = directory.resolve(DigestUtils.sha256Hex(pathLower(folder)) + ".snapshot");
+        RemoteSnapshot snapshot = new RemoteSnapshot(file, folder);
+        if (Files.isRegularFile(snapshot.file)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    new GZIPInputStream(Files.newInputStream(snapshot.file))))) {
+                snapshot.read(in);
+            } catch (IOException | RuntimeException e) {
+                LOG.warn("Unable to read remote snapshot {}, message: {}", snapshot.file, e.getMessage());
+                snapshot.clear();
+            }
+        }
+        return snapshot;
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private void read(DataInputStream in) throws IOException {
+        if (in.readInt() != VERSION || !pathLower.equals(in.readUTF())) {
+            throw new IOException("Snapshot is of other version or directory.");
+        }
+        String cursor = in.readUTF();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            String id = in.readUTF();
+            Date clientModified = new Date(in.readLong());
+            Date serverModified = new Date(in.readLong());
+            String rev = in.readUTF();
+            long size = in.readLong();
+            String filePathLower = in.readUTF();
+            String filePathDisplay = readNullable(in);
+            String contentHash = readNullable(in);
+            files.put(filePathLower, FileMetadata.newBuilder(name, id, clientModified, serverModified, rev, size)
+                    .withPathLower(filePathLower)
+                    .withPathDisplay(filePathDisplay)
+                    .withContentHash(contentHash)
+                    .build());
+        }
+        this.cursor = cursor;
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        out.writeInt(VERSION);
+        out.writeUTF(pathLower);
+        out.writeUTF(cursor);
+        out.writeInt(files.size());
+        for (FileMetadata entry : files.values()) {
+            out.writeUTF(entry.getName());
+            out.writeUTF(entry.getId());
+            out.writeLong(entry.getClientModified().getTime());
+            out.writeLong(entry.getServerModified().getTime());
+            out.writeUTF(entry.getRev());
+            out.writeLong(entry.getSize());
+            out.writeUTF(entry.getPathLower());
+            writeNullable(out, entry.getPathDisplay());
+            writeNullable(out, entry.getContentHash());
+        }
+    }
+
+    /**
+     * Saves snapshot with its cursor to snapshot directory. Snapshot without cursor is not saved.
+     */
+    public void save() {
+        if (cursor == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Path tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        new GZIPOutputStream(Files.newOutputStream(tempFile))))) {
+                    write(out);
+                }
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            LOG.warn("Unable to write remote snapshot {}, message: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Applies entry of listing of directory. File is added or replaced, deleted entry removes file
+     * or all files of deleted directory and folder replaces file of the same path.
+     *
+     * @param entry listed entry
+     */
+    public void apply(Metadata entry) {
+        String entryPathLower = entry.getPathLower();
+        if (entryPathLower == null) {
+            return;
+        }
+        switch (entry) {
+            case FileMetadata fileEntry -> files.put(entryPathLower, fileEntry);
+            case DeletedMetadata _ -> {
+                files.remove(entryPathLower);
+                // '0' is the character following '/', so sub map holds whole subtree
+                files.subMap(entryPathLower + "/", entryPathLower + "0").clear();
+            }
+            default -> files.remove(entryPathLower);
+        }
+    }
+
+    /**
+     * Removes all files and cursor, e.g. when cursor was reset and directory must be listed again.
+     */
+    public void clear() {
+        files.clear();
+        cursor = null;
+    }
+
+    /**
+     * Returns index of files directly in upload directory.
+     *
+     * @return index of files of upload directory
+     */
+    public FolderIndex index() {
+        FolderIndex index = new FolderIndex(folder);
+        String prefix = pathLower + "/";
+        for (FileMetadata entry : files.subMap(prefix, pathLower + "0").values()) {
+            if (entry.getPathLower().indexOf('/', prefix.length()) < 0) {
+                index.add(entry);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns remote path of upload directory used for listing it.
+     *
+     * @return path of upload directory, empty for the root directory
+     */
+    public String getPath() {
+        return folder == null ? "" : folder.getPathDisplay();
+    }
+
+    /**
+     * Returns cursor of listing of directory from which changes are listed.
+     *
+     * @return cursor or null if directory was not listed yet
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    /**
+     * Returns number of files in snapshot.
+     *
+     * @return number of files
+     */
+    public int size() {
+        return files.size();
+    }
+}
@@ -0,0 +1,254 @@
+package net.czpilar.dropdrive.core.setting;
+
+import net.czpilar.dropdrive.core.util.EqualUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holder for file upload settings.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+@Component
+public class UploadSetting {
+
+    /**
+     * Mode of reading chunks of local file.
+     */
+    public enum ReadMode {
+        /**
+         * Chunks are read with positional reads of file channel.
+         */
+        CHANNEL,
+        /**
+         * Chunks are mapped into memory and copied straight from page cache.
+         */
+        MAPPED,
+        /**
+         * Chunks are read with direct I/O bypassing page cache, so uploads do not evict data cached by other processes.
+         */
+        DIRECT
+    }
+
+    private static final ScopedValue<ReadMode> READ_MODE = ScopedValue.newInstance();
+
+    private final int chunkWorkers;
+    private final boolean chunkAdaptive;
+    private final long chunkAdaptiveTarget;
+    private final String journalDir;
+    private final int batchSize;
+    private final long batchThreshold;
+    private final long singleThreshold;
+    private final int readAhead;
+    private final EqualUtils.Mode compareMode;
+    private final boolean verify;
+    private final int listThreshold;
+    private final String snapshotDir;
+
+    private volatile ReadMode readMode;
+    private volatile int fileWorkers;
+
+    public UploadSetting(@Value("${dropdrive.file.upload.chunk.workers}") int chunkWorkers,
+                         @Value("${dropdrive.file.upload.read.mode}") ReadMode readMode,
+                         @Value("${dropdrive.file.upload.chunk.adaptive}") boolean chunkAdaptive,
+                         @Value("${dropdrive.file.upload.chunk.adaptive.target}") long chunkAdaptiveTarget,
+                         @Value("${dropdrive.file.upload.journal.dir}") String journalDir,
+                         @Value("${dropdrive.file.upload.batch.size}") int batchSize,
+                         @Value("${dropdrive.file.upload.batch.threshold}") long batchThreshold,
+                         @Value("${dropdrive.file.upload.single.threshold}") long singleThreshold,
+                         @Value("${dropdrive.file.upload.read.ahead}") int readAhead,
+                         @Value("${dropdrive.file.upload.compare.mode}") EqualUtils.Mode compareMode,
+                         @Value("${dropdrive.file.upload.file.workers}") int fileWorkers,
+                         @Value("${dropdrive.file.upload.verify}") boolean verify,
+                         @Value("${dropdrive.file.upload.list.threshold}") int listThreshold,
+                         @Value("${dropdrive.file.upload.snapshot.dir}") String snapshotDir) {
+        this.chunkWorkers = chunkWorkers;
+        this.readMode = readMode;
+        this.chunkAdaptive = chunkAdaptive;
+        this.chunkAdaptiveTarget = chunkAdaptiveTarget;
+        this.journalDir = StringUtils.trimToNull(journalDir);
+        this.batchSize = batchSize;
+        this.batchThreshold = batchThreshold;
+        this.singleThreshold = singleThreshold;
+        this.readAhead = readAhead;
+        this.compareMode = compareMode;
+        this.fileWorkers = fileWorkers;
+        this.verify = verify;
+        this.listThreshold = listThreshold;
+        this.snapshotDir = StringUtils.trimToNull(snapshotDir);
+    }
+
+    /**
+     * Returns number of workers uploading chunks of one file concurrently.
+     * Value lower or equal to 1 means chunks are uploaded sequentially.
+     *
+     * @return number of chunk workers
+     */
+    public int getChunkWorkers() {
+        return chunkWorkers;
+    }
+
+    /**
+     * Calls operation with files uploaded by current thread read in given mode.
+     *
+     * @param readMode read mode or null for configured read mode
+     * @param op       operation
+     * @param <T>      type of result
+     * @param <X>      type of exception
+     * @return result of operation
+     * @throws X when operation fails
+     */
+    public static <T, X extends Throwable> T callWithReadMode(ReadMode readMode, ScopedValue.CallableOp<? extends T, X> op) throws X {
+        return readMode == null ? op.call() : ScopedValue.where(READ_MODE, readMode).call(op);
+    }
+
+    /**
+     * Returns read mode bound to current thread by {@link #callWithReadMode(ReadMode, ScopedValue.CallableOp)}.
+     *
+     * @return read mode or null if no read mode is bound
+     */
+    public static ReadMode getBoundReadMode() {
+        return READ_MODE.isBound() ? READ_MODE.get() : null;
+    }
+
+    /**
+     * Returns mode of reading chunks of local file, bound to current thread or configured one.
+     *
+     * @return read mode
+     */
+    public ReadMode getReadMode() {
+        return READ_MODE.isBound() ? READ_MODE.get() : readMode;
+    }
+
+    /**
+     * Changes configured mode of reading chunks of local file.
+     *
+     * @param readMode read mode
+     */
+    public void setReadMode(ReadMode readMode) {
+        this.readMode = readMode;
+    }
+
+    /**
+     * Returns true if size of sequentially uploaded chunks adapts to measured throughput.
+     *
+     * @return true if chunk size is adaptive
+     */
+    public boolean isChunkAdaptive() {
+        return chunkAdaptive;
+    }
+
+    /**
+     * Returns target duration of uploading one adaptive chunk in milliseconds.
+     *
+     * @return target duration in milliseconds
+     */
+    public long getChunkAdaptiveTarget() {
+        return chunkAdaptiveTarget;
+    }
+
+    /**
+     * Returns directory of upload journal used for resuming interrupted uploads.
+     *
+     * @return journal directory or null if journal is disabled
+     */
+    public String getJournalDir() {
+        return journalDir;
+    }
+
+    /**
+     * Returns maximal number of files committed in one batch.
+     * Value lower or equal to 1 means files are uploaded one by one.
+     *
+     * @return batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Returns maximal size of file in bytes uploaded in batch. Larger files are uploaded one by one.
+     *
+     * @return batch threshold in bytes
+     */
+    public long getBatchThreshold() {
+        return batchThreshold;
+    }
+
+    /**
+     * Returns maximal size of file in bytes uploaded with one request instead of upload session.
+     * Empty files are always uploaded with one request.
+     *
+     * @return single request threshold in bytes
+     */
+    public long getSingleThreshold() {
+        return singleThreshold;
+    }
+
+    /**
+     * Returns number of chunks read ahead while current chunk of sequential upload is uploaded.
+     * Value 0 means chunks are read only when they are uploaded.
+     *
+     * @return number of chunks read ahead
+     */
+    public int getReadAhead() {
+        return readAhead;
+    }
+
+    /**
+     * Returns mode of comparing remote and local file deciding whether file is uploaded.
+     *
+     * @return compare mode
+     */
+    public EqualUtils.Mode getCompareMode() {
+        return compareMode;
+    }
+
+    /**
+     * Returns true if content hash of uploaded file is compared with content hash computed while file is read.
+     *
+     * @return true if uploaded content is verified
+     */
+    public boolean isVerify() {
+        return verify;
+    }
+
+    /**
+     * Returns minimal number of files uploaded into one directory for which the directory is listed at once
+     * instead of looking up every file. Value 0 means files are always looked up one by one.
+     *
+     * @return list threshold
+     */
+    public int getListThreshold() {
+        return listThreshold;
+    }
+
+    /**
+     * Returns directory of snapshots of remote trees of upload directories refreshed by changes since last upload.
+     *
+     * @return snapshot directory or null if snapshots are disabled
+     */
+    public String getSnapshotDir() {
+        return snapshotDir;
+    }
+
+    /**
+     * Returns maximal number of files uploaded concurrently.
+     * Value lower or equal to 1 means files are uploaded one by one.
+     *
+     * @return number of file workers
+     */
+    public int getFileWorkers() {
+        return fileWorkers;
+    }
+
+    /**
+     * Changes maximal number of files uploaded concurrently.
+     *
+     * @param fileWorkers number of file workers
+     */
+    public void setFileWorkers(int fileWorkers) {
+        this.fileWorkers = fileWorkers;
+    }
+}
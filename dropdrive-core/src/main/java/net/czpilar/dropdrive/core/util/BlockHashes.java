@@ -0,0 +1,156 @@
+package net.czpilar.dropdrive.core.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Dropbox content hash of a file assembled from hashes of its blocks computed while chunks of the file are read.
+ * Chunks can be read in any order and concurrently, every chunk starting at block boundary is hashed
+ * by its stream and hashes of its blocks are stored when the whole chunk was read and its stream is closed.
+ * Chunk read again, e.g. by retry, replaces hashes of its blocks.
+ * Blocks of chunks not starting at block boundary or ending inside block are unknown until they are read
+ * again in whole, so content hash is known only when every block of the file was read in whole.
+ * Blocks of every chunk are hashed by its own {@link ContentHasher}.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public class BlockHashes {
+
+    private final long size;
+    private final byte[][] hashes;
+
+    public BlockHashes(long size) {
+        this.size = size;
+        this.hashes = new byte[(int) ((size + ContentHashUtils.BLOCK_SIZE - 1) / ContentHashUtils.BLOCK_SIZE)][];
+    }
+
+    /**
+     * Returns size of hashed file.
+     *
+     * @return size in bytes
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns stream of chunk hashing read bytes.
+     *
+     * @param stream stream of chunk
+     * @param offset offset of chunk in file
+     * @param length length of chunk
+     * @return hashing stream of chunk
+     */
+    public InputStream hashing(InputStream stream, long offset, long length) {
+        if (offset % ContentHashUtils.BLOCK_SIZE != 0) {
+            invalidate(offset, offset + length);
+            return stream;
+        }
+        return new HashingInputStream(stream, offset, length);
+    }
+
+    /**
+     * Returns content hash of the file.
+     *
+     * @return hex encoded content hash or null if some block was not read in whole
+     */
+    public synchronized String contentHash() {
+        for (byte[] hash : hashes) {
+            if (hash == null) {
+                return null;
+            }
+        }
+        return ContentHashUtils.contentHash(hashes);
+    }
+
+    private synchronized void store(long offset, List<byte[]> blockHashes) {
+        int first = (int) (offset / ContentHashUtils.BLOCK_SIZE);
+        for (int i = 0; i < blockHashes.size() && first + i < hashes.length; i++) {
+            hashes[first + i] = blockHashes.get(i);
+        }
+    }
+
+    private synchronized void invalidate(long from, long to) {
+        int last = (int) Math.min(hashes.length, (to + ContentHashUtils.BLOCK_SIZE - 1) / ContentHashUtils.BLOCK_SIZE);
+        for (int i = (int) (from / ContentHashUtils.BLOCK_SIZE); i < last; i++) {
+            hashes[i] = null;
+        }
+    }
+
+    /**
+     * Stream hashing blocks of chunk starting at block boundary.
+     */
+    private class HashingInputStream extends FilterInputStream {
+
+        private final long offset;
+        private final long length;
+        private final ContentHasher hasher = new ContentHasher();
+        private final byte[] single = new byte[1];
+
+        private boolean skipped;
+        private boolean closed;
+
+        private HashingInputStream(InputStream in, long offset, long length) {
+            super(in);
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                single[0] = (byte) b;
+                hasher.update(single, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                hasher.update(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skippedBytes = super.skip(n);
+            skipped |= skippedBytes > 0;
+            return skippedBytes;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (!closed) {
+                    closed = true;
+                    complete();
+                }
+            }
+        }
+
+        private void complete() {
+            if (skipped || hasher.getLength() != length) {
+                return;
+            }
+            if (offset + length == size) {
+                hasher.completeBlock();
+            } else if (hasher.getBlockLength() > 0) {
+                invalidate(offset + length - hasher.getBlockLength(), offset + length);
+            }
+            store(offset, hasher.getBlockHashes());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package net.czpilar.dropdrive.core.util;
+
+import org.apache.commons.codec.binary.Hex;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Content hash utility class computing Dropbox content hash of local files.
+ * Content hash is SHA-256 of concatenated SHA-256 hashes of every 4MB block of a file.
+ * Blocks are independent, so blocks of a file mapped into memory are hashed in parallel on a fork/join pool
+ * and only hashes of blocks are hashed in order. Content fed chunk by chunk is hashed by {@link ContentHasher}.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public class ContentHashUtils {
+
+    public static final int BLOCK_SIZE = 4194304; // 4MB
+
+    /**
+     * Task hashing range of blocks of mapped file, split in halves until one block is left.
+     */
+    private static class BlockHashTask extends RecursiveAction {
+
+        private final MemorySegment file;
+        private final byte[][] hashes;
+        private final int from;
+        private final int to;
+
+        private BlockHashTask(MemorySegment file, byte[][] hashes, int from, int to) {
+            this.file = file;
+            this.hashes = hashes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                long offset = (long) from * BLOCK_SIZE;
+                hashes[from] = blockHash(file.asSlice(offset, Math.min(BLOCK_SIZE, file.byteSize() - offset)));
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BlockHashTask(file, hashes, from, middle), new BlockHashTask(file, hashes, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Returns new SHA-256 message digest.
+     *
+     * @return message digest
+     */
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported.", e);
+        }
+    }
+
+    /**
+     * Returns SHA-256 hash of one block.
+     *
+     * @param block segment of block
+     * @return hash of block
+     */
+    static byte[] blockHash(MemorySegment block) {
+        MessageDigest digest = newDigest();
+        digest.update(block.asByteBuffer());
+        return digest.digest();
+    }
+
+    /**
+     * Returns hex encoded content hash of given hashes of blocks.
+     *
+     * @param hashes hashes of blocks in order of blocks
+     * @return hex encoded content hash
+     */
+    static String contentHash(byte[][] hashes) {
+        MessageDigest overall = newDigest();
+        for (byte[] hash : hashes) {
+            overall.update(hash);
+        }
+        return Hex.encodeHexString(overall.digest());
+    }
+
+    /**
+     * Computes content hash of a given file with blocks hashed in parallel on common fork/join pool.
+     *
+     * @param pathToFile path to file
+     * @return hex encoded content hash
+     * @throws IOException when file cannot be read
+     */
+    public static String contentHash(Path pathToFile) throws IOException {
+        return contentHash(pathToFile, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Computes content hash of a given file with blocks hashed in parallel on given fork/join pool.
+     *
+     * @param pathToFile path to file
+     * @param pool       fork/join pool hashing blocks
+     * @return hex encoded content hash
+     * @throws IOException when file cannot be read
+     */
+    public static String contentHash(Path pathToFile, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(pathToFile, StandardOpenOption.READ);
+             Arena arena = Arena.ofShared()) {
+            long size = channel.size();
+            byte[][] hashes = new byte[(int) ((size + BLOCK_SIZE - 1) / BLOCK_SIZE)][];
+            if (hashes.length == 1) {
+                hashes[0] = blockHash(channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena));
+            } else if (hashes.length > 1) {
+                MemorySegment file = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+                pool.invoke(new BlockHashTask(file, hashes, 0, hashes.length));
+            }
+            return contentHash(hashes);
+        }
+    }
+}
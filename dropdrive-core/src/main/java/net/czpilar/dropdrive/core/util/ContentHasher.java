@@ -0,0 +1,116 @@
+package net.czpilar.dropdrive.core.util;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming computation of Dropbox content hash fed with content chunk by chunk in order.
+ * Chunks can have any length, they are split into blocks of {@link ContentHashUtils#BLOCK_SIZE}
+ * and hash of every block is added to content hash as soon as the block is complete.
+ * Hasher is not thread safe.
+ *
+ * @author David Pilar (david@czpilar.net)
+ */
+public class ContentHasher {
+
+    private final MessageDigest block = ContentHashUtils.newDigest();
+    private final List<byte[]> blockHashes = new ArrayList<>();
+
+    private long blockLength;
+    private long length;
+
+    /**
+     * Adds remaining bytes of buffer to content, buffer is consumed.
+     *
+     * @param data buffer
+     * @return this hasher
+     */
+    public ContentHasher update(ByteBuffer data) {
+        while (data.hasRemaining()) {
+            int length = (int) Math.min(data.remaining(), ContentHashUtils.BLOCK_SIZE - blockLength);
+            block.update(data.slice(data.position(), length));
+            data.position(data.position() + length);
+            blockLength += length;
+            this.length += length;
+            if (blockLength == ContentHashUtils.BLOCK_SIZE) {
+                completeBlock();
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Adds bytes of array to content.
+     *
+     * @param data   array
+     * @param offset offset of first byte
+     * @param length number of bytes
+     * @return this hasher
+     */
+    public ContentHasher update(byte[] data, int offset, int length) {
+        return update(ByteBuffer.wrap(data, offset, length));
+    }
+
+    /**
+     * Adds bytes of memory segment to content.
+     *
+     * @param data segment
+     * @return this hasher
+     */
+    public ContentHasher update(MemorySegment data) {
+        return update(data.asByteBuffer());
+    }
+
+    /**
+     * Returns number of bytes of content added so far.
+     *
+     * @return length in bytes
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Returns number of bytes of the last block which is not complete yet.
+     *
+     * @return length of incomplete block in bytes
+     */
+    public long getBlockLength() {
+        return blockLength;
+    }
+
+    /**
+     * Returns hashes of complete blocks of content added so far in order of blocks.
+     *
+     * @return hashes of blocks
+     */
+    public List<byte[]> getBlockHashes() {
+        return blockHashes;
+    }
+
+    /**
+     * Completes the last block as the last block of content, even when it is shorter than block size.
+     *
+     * @return this hasher
+     */
+    public ContentHasher completeBlock() {
+        if (blockLength > 0) {
+            blockHashes.add(block.digest());
+            blockLength = 0;
+        }
+        return this;
+    }
+
+    /**
+     * Completes content hash of content added so far. Hasher cannot be used after that.
+     *
+     * @return hex encoded content hash
+     */
+    public String digest() {
+        completeBlock();
+        return ContentHashUtils.contentHash(blockHashes.toArray(new byte[0][]));
+    }
+}
@@ -1,8 +1,11 @@
 package net.czpilar.dropdrive.core.util;
 
 import com.dropbox.core.v2.files.FileMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Path;
 
 /**
@@ -12,6 +15,23 @@ import java.nio.file.Path;
  */
 public class EqualUtils {
 
+    private static final Logger LOG = LoggerFactory.getLogger(EqualUtils.class);
+
+    /**
+     * Mode of comparing remote and local file.
+     */
+    public enum Mode {
+        /**
+         * Files are equal when lengths are equal and remote last modified time is greater or equal to local file.
+         */
+        TIMESTAMP,
+        /**
+         * Files are equal when lengths are equal and either remote last modified time is greater or equal to local file
+         * or content hashes are equal. Local content hash is computed only when lengths are equal and timestamps disagree.
+         */
+        CONTENT_HASH
+    }
+
     /**
      * Returns true if lengths are equal and remote last modified time is greater or equal to local file, otherwise returns false.
      *
@@ -31,6 +51,37 @@ public class EqualUtils {
         return result;
     }
 
+    /**
+     * Returns true if files are equal using given mode of comparing, otherwise returns false.
+     * When remote file has no content hash, files are compared by timestamp.
+     * Files equal by timestamp are not hashed.
+     *
+     * @param file       file
+     * @param pathToFile path to file
+     * @param mode       mode of comparing
+     * @return true if equals
+     */
+    public static boolean equals(FileMetadata file, Path pathToFile, Mode mode) {
+        if (mode != Mode.CONTENT_HASH || file == null || file.getContentHash() == null) {
+            return equals(file, pathToFile);
+        }
+        if (equals(file, pathToFile)) {
+            return true;
+        }
+        boolean result = false;
+        if (pathToFile != null) {
+            File localFile = pathToFile.toFile();
+            if (localFile.exists() && file.getSize() == localFile.length()) {
+                try {
+                    result = file.getContentHash().equalsIgnoreCase(ContentHashUtils.contentHash(pathToFile));
+                } catch (IOException e) {
+                    LOG.warn("Unable to compute content hash of file {}, message: {}", pathToFile, e.getMessage());
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * This method strips milliseconds and returns seconds.
      *
@@ -52,4 +103,16 @@ public class EqualUtils {
         return !equals(file, pathToFile);
     }
 
+    /**
+     * Returns true if files are not equal using given mode of comparing, otherwise returns false.
+     *
+     * @param file       file
+     * @param pathToFile path to file
+     * @param mode       mode of comparing
+     * @return true if not equals
+     */
+    public static boolean notEquals(FileMetadata file, Path pathToFile, Mode mode) {
+        return !equals(file, pathToFile, mode);
+    }
+
 }
@@ -0,0 +1,125 @@
+package net.czpilar.dropdrive.core.request;
+
+import com.dropbox.core.v2.DbxClientV2;
+import com.dropbox.core.v2.files.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author David Pilar (david@czpilar.net)
+ */
+class BatchFileRequestTest {
+
+    @TempDir
+    private Path tempDir;
+
+    private DbxClientV2 dbxClient;
+    private DbxUserFilesRequests files;
+    private final List<String> uploads = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void before() throws Exception {
+        dbxClient = mock(DbxClientV2.class);
+        files = mock(DbxUserFilesRequests.class);
+        when(dbxClient.files()).thenReturn(files);
+        when(files.uploadSessionStartBatch(anyLong())).thenReturn(new UploadSessionStartBatchResult(List.of("session-id")));
+        when(files.uploadSessionFinishBatchV2(anyList())).thenAnswer(invocation -> {
+            UploadSessionFinishArg entry = invocation.<List<UploadSessionFinishArg>>getArgument(0).getFirst();
+            uploads.add("finish " + entry.getCursor().getOffset());
+            return new UploadSessionFinishBatchResult(List.of(UploadSessionFinishBatchResultEntry.success(remoteFile())));
+        });
+    }
+
+    private void stubAppend(long incorrectOffset, long correctOffset) throws Exception {
+        when(files.uploadSessionAppendV2Builder(any())).thenAnswer(invocation -> {
+            UploadSessionCursor cursor = invocation.getArgument(0);
+            AtomicBoolean close = new AtomicBoolean();
+            UploadSessionAppendV2Builder builder = mock(UploadSessionAppendV2Builder.class);
+            UploadSessionAppendV2Uploader uploader = mock(UploadSessionAppendV2Uploader.class);
+            when(builder.withClose(any())).thenAnswer(closeInvocation -> {
+                close.set(closeInvocation.<Boolean>getArgument(0));
+                return builder;
+            });
+            when(builder.start()).thenReturn(uploader);
+            when(uploader.uploadAndFinish(any(InputStream.class), anyLong())).thenAnswer(uploadInvocation -> {
+                if (cursor.getOffset() == incorrectOffset) {
+                    throw new UploadSessionAppendErrorException("2/files/upload_session/append_v2", "request-id", null,
+                            UploadSessionAppendError.incorrectOffset(new UploadSessionOffsetError(correctOffset)));
+                }
+                uploads.add("append " + cursor.getOffset() + " " + uploadInvocation.<InputStream>getArgument(0).readAllBytes().length
+                        + (close.get() ? " close" : ""));
+                return null;
+            });
+            return builder;
+        });
+    }
+
+    private static FileMetadata remoteFile() {
+        return new FileMetadata("file", "id:file", new Date(1000), new Date(2000), "0123456789", 42);
+    }
+
+    private Path createFile(long size) throws Exception {
+        Path file = tempDir.resolve("file");
+        Files.write(file, new byte[(int) size]);
+        return file;
+    }
+
+    @Test
+    void testAppendContinuesFromOffsetExpectedBySession() throws Exception {
+        Path file = createFile(2L * FileRequest.CHUNK_SIZE);
+        stubAppend(0, FileRequest.CHUNK_SIZE);
+
+        BatchFileRequest request = BatchFileRequest.create(dbxClient);
+        request.addInsert("/file", file.toFile());
+        List<BatchFileRequest.Result> results = request.execute();
+
+        assertTrue(results.getFirst().isSuccess());
+        assertEquals(List.of("append " + FileRequest.CHUNK_SIZE + " " + FileRequest.CHUNK_SIZE + " close",
+                "finish " + 2L * FileRequest.CHUNK_SIZE), uploads);
+    }
+
+    @Test
+    void testAppendFailsWhenSessionExpectsOffsetOutOfFile() throws Exception {
+        Path file = createFile(FileRequest.CHUNK_SIZE);
+        stubAppend(0, FileRequest.CHUNK_SIZE + 1);
+
+        BatchFileRequest request = BatchFileRequest.create(dbxClient);
+        request.addInsert("/file", file.toFile());
+        List<BatchFileRequest.Result> results = request.execute();
+
+        assertFalse(results.getFirst().isSuccess());
+        assertTrue(uploads.isEmpty());
+        verify(files, never()).uploadSessionFinishBatchV2(anyList());
+    }
+
+    @Test
+    void testStartingBatchIsRetried() throws Exception {
+        Path file = createFile(1);
+        stubAppend(-1, -1);
+        IRetryPolicy retryPolicy = mock(IRetryPolicy.class);
+        when(retryPolicy.execute(anyString(), anyInt(), any())).thenAnswer(invocation -> invocation.<IRetryPolicy.Call<?>>getArgument(2).call());
+
+        BatchFileRequest request = BatchFileRequest.create(dbxClient);
+        request.setRetryPolicy(retryPolicy);
+        request.addInsert("/file", file.toFile());
+        List<BatchFileRequest.Result> results = request.execute();
+
+        assertTrue(results.getFirst().isSuccess());
+        assertEquals(List.of("append 0 1 close", "finish 1"), uploads);
+        verify(retryPolicy).execute(eq("starting batch"), eq(FileRequest.CHUNK_RETRIES), any());
+        verify(files).uploadSessionStartBatch(1);
+    }
+}
@@ -0,0 +1,81 @@
+package net.czpilar.dropdrive.core.request;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author David Pilar (david@czpilar.net)
+ */
+class ChunkBufferPoolTest {
+
+    @Test
+    void testCapacity() {
+        assertEquals(ChunkBufferPool.ALIGNMENT, ChunkBufferPool.capacity(1));
+        assertEquals(ChunkBufferPool.ALIGNMENT, ChunkBufferPool.capacity(ChunkBufferPool.ALIGNMENT));
+        assertEquals(8192, ChunkBufferPool.capacity(ChunkBufferPool.ALIGNMENT + 1));
+        assertEquals(1048576, ChunkBufferPool.capacity(1000000));
+        assertEquals(FileRequest.CHUNK_SIZE, ChunkBufferPool.capacity(FileRequest.CHUNK_SIZE));
+        assertEquals(2L * FileRequest.CHUNK_SIZE, ChunkBufferPool.capacity(FileRequest.CHUNK_SIZE + 1));
+    }
+
+    @Test
+    void testAcquireAlignedBuffer() {
+        try (ChunkBufferPool pool = new ChunkBufferPool(0);
+             ChunkBufferPool.Buffer buffer = pool.acquire(100)) {
+            assertEquals(ChunkBufferPool.ALIGNMENT, buffer.segment().byteSize());
+            assertEquals(100, buffer.slice(100).byteSize());
+            assertTrue(buffer.segment().isNative());
+            assertEquals(0, buffer.segment().address() % ChunkBufferPool.ALIGNMENT);
+        }
+    }
+
+    @Test
+    void testReleasedBufferIsReused() {
+        try (ChunkBufferPool pool = new ChunkBufferPool(FileRequest.CHUNK_SIZE)) {
+            ChunkBufferPool.Buffer buffer = pool.acquire(FileRequest.CHUNK_SIZE);
+            buffer.close();
+            buffer.close();
+            assertEquals(FileRequest.CHUNK_SIZE, pool.getPooled());
+
+            try (ChunkBufferPool.Buffer reused = pool.acquire(FileRequest.CHUNK_SIZE - 1)) {
+                assertSame(buffer, reused);
+                assertEquals(0, pool.getPooled());
+            }
+
+            assertEquals(1, pool.getAllocations());
+            assertEquals(1, pool.getReuses());
+            assertEquals(FileRequest.CHUNK_SIZE, pool.getAllocated());
+        }
+    }
+
+    @Test
+    void testBuffersOverMaxPooledAreFreed() {
+        try (ChunkBufferPool pool = new ChunkBufferPool(FileRequest.CHUNK_SIZE)) {
+            ChunkBufferPool.Buffer first = pool.acquire(FileRequest.CHUNK_SIZE);
+            ChunkBufferPool.Buffer second = pool.acquire(FileRequest.CHUNK_SIZE);
+            first.close();
+            second.close();
+
+            assertEquals(FileRequest.CHUNK_SIZE, pool.getPooled());
+            assertEquals(FileRequest.CHUNK_SIZE, pool.getAllocated());
+            assertFalse(second.segment().scope().isAlive());
+        }
+    }
+
+    @Test
+    void testCloseFreesPooledBuffers() {
+        ChunkBufferPool pool = new ChunkBufferPool(FileRequest.CHUNK_SIZE);
+        ChunkBufferPool.Buffer pooled = pool.acquire(100);
+        ChunkBufferPool.Buffer used = pool.acquire(100);
+        pooled.close();
+
+        pool.close();
+        assertFalse(pooled.segment().scope().isAlive());
+        assertTrue(used.segment().scope().isAlive());
+
+        used.close();
+        assertFalse(used.segment().scope().isAlive());
+        assertEquals(0, pool.getAllocated());
+    }
+}
@@ -0,0 +1,103 @@
+package net.czpilar.dropdrive.core.request;
+
+import net.czpilar.dropdrive.core.exception.DropDriveException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author David Pilar (david@czpilar.net)
+ */
+class ChunkSchedulerTest {
+
+    @Test
+    void testSchedulerWithoutWorkersIsDisabled() {
+        assertFalse(new ChunkScheduler(0).isEnabled());
+        assertTrue(new ChunkScheduler(2).isEnabled());
+    }
+
+    @Test
+    void testChunksOfJobsAreTakenInRoundRobin() throws InterruptedException, ExecutionException, TimeoutException {
+        try (ChunkScheduler scheduler = new ChunkScheduler(1)) {
+            CountDownLatch blocked = new CountDownLatch(1);
+            FutureTask<Void> blocking = new FutureTask<>(() -> {
+                blocked.await();
+                return null;
+            });
+            scheduler.createJob().execute(blocking);
+
+            List<String> order = Collections.synchronizedList(new ArrayList<>());
+            ChunkScheduler.Job large = scheduler.createJob();
+            ChunkScheduler.Job small = scheduler.createJob();
+            List<FutureTask<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                tasks.add(task(large, order, "large"));
+            }
+            tasks.add(task(small, order, "small"));
+
+            blocked.countDown();
+            for (FutureTask<Void> task : tasks) {
+                task.get(10, TimeUnit.SECONDS);
+            }
+
+            assertEquals(List.of("large", "small", "large", "large"), order);
+        }
+    }
+
+    @Test
+    void testChunksOfJobsAreUploadedByAllWorkersAtOnce() throws InterruptedException, ExecutionException, TimeoutException {
+        try (ChunkScheduler scheduler = new ChunkScheduler(2)) {
+            CountDownLatch started = new CountDownLatch(2);
+            List<FutureTask<Boolean>> tasks = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                FutureTask<Boolean> task = new FutureTask<>(() -> {
+                    started.countDown();
+                    return started.await(10, TimeUnit.SECONDS);
+                });
+                scheduler.createJob().execute(task);
+                tasks.add(task);
+            }
+
+            for (FutureTask<Boolean> task : tasks) {
+                assertTrue(task.get(10, TimeUnit.SECONDS));
+            }
+        }
+    }
+
+    @Test
+    void testWaitingChunksAreCancelledOnClose() {
+        ChunkScheduler scheduler = new ChunkScheduler(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        scheduler.createJob().execute(new FutureTask<>(() -> {
+            blocked.await();
+            return null;
+        }));
+        ChunkScheduler.Job job = scheduler.createJob();
+        FutureTask<Void> waiting = task(job, new ArrayList<>(), "waiting");
+
+        scheduler.close();
+        blocked.countDown();
+
+        assertTrue(waiting.isCancelled());
+        assertThrows(DropDriveException.class, () -> job.execute(() -> {
+        }));
+    }
+
+    private static FutureTask<Void> task(ChunkScheduler.Job job, List<String> order, String name) {
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            order.add(name);
+            return null;
+        });
+        job.execute(task);
+        return task;
+    }
+}
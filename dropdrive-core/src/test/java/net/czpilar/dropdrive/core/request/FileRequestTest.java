@@ -0,0 +1,446 @@
+package net.czpilar.dropdrive.core.request;
+
+import com.dropbox.core.v2.DbxClientV2;
+import com.dropbox.core.v2.files.*;
+import net.czpilar.dropdrive.core.exception.ContentMismatchException;
+import net.czpilar.dropdrive.core.request.impl.ThrottledChunkSource;
+import net.czpilar.dropdrive.core.setting.UploadSetting;
+import net.czpilar.dropdrive.core.util.ContentHashUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author David Pilar (david@czpilar.net)
+ */
+class FileRequestTest {
+
+    @TempDir
+    private Path tempDir;
+
+    private DbxClientV2 dbxClient;
+    private DbxUserFilesRequests files;
+    private UploadSessionFinishUploader finishUploader;
+    private final List<String> uploads = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void before() throws Exception {
+        dbxClient = mock(DbxClientV2.class);
+        files = mock(DbxUserFilesRequests.class);
+        finishUploader = mock(UploadSessionFinishUploader.class);
+        when(dbxClient.files()).thenReturn(files);
+
+        UploadSessionStartUploader startUploader = mock(UploadSessionStartUploader.class);
+        when(files.uploadSessionStart()).thenReturn(startUploader);
+        when(startUploader.uploadAndFinish(any(InputStream.class), anyLong())).thenAnswer(invocation -> {
+            uploads.add("start " + invocation.<InputStream>getArgument(0).readAllBytes().length);
+            return new UploadSessionStartResult("session-id");
+        });
+        when(files.uploadSessionAppendV2(any())).thenAnswer(invocation -> appendUploader(invocation.getArgument(0), false));
+        when(files.uploadSessionFinish(any(), any())).thenAnswer(invocation -> {
+            uploads.add("finish " + invocation.<UploadSessionCursor>getArgument(0).getOffset());
+            return finishUploader;
+        });
+        when(finishUploader.finish()).thenReturn(remoteFile(null));
+    }
+
+    private UploadSessionAppendV2Uploader appendUploader(UploadSessionCursor cursor, boolean close) throws Exception {
+        UploadSessionAppendV2Uploader uploader = mock(UploadSessionAppendV2Uploader.class);
+        when(uploader.uploadAndFinish(any(InputStream.class), anyLong())).thenAnswer(invocation -> {
+            uploads.add("append " + cursor.getOffset() + " " + invocation.<InputStream>getArgument(0).readAllBytes().length
+                    + (close ? " close" : ""));
+            return null;
+        });
+        return uploader;
+    }
+
+    @FunctionalInterface
+    private interface Append {
+
+        void append(long offset) throws Exception;
+    }
+
+    private void stubConcurrentSession(Append append) throws Exception {
+        UploadSessionStartBuilder startBuilder = mock(UploadSessionStartBuilder.class);
+        UploadSessionStartUploader startUploader = mock(UploadSessionStartUploader.class);
+        when(files.uploadSessionStartBuilder()).thenReturn(startBuilder);
+        when(startBuilder.withSessionType(UploadSessionType.CONCURRENT)).thenReturn(startBuilder);
+        when(startBuilder.start()).thenReturn(startUploader);
+        when(startUploader.uploadAndFinish(any(InputStream.class))).thenAnswer(invocation -> {
+            uploads.add("start concurrent " + invocation.<InputStream>getArgument(0).readAllBytes().length);
+            return new UploadSessionStartResult("session-id");
+        });
+        when(files.uploadSessionAppendV2Builder(any())).thenAnswer(invocation -> {
+            UploadSessionCursor cursor = invocation.getArgument(0);
+            UploadSessionAppendV2Builder builder = mock(UploadSessionAppendV2Builder.class);
+            AtomicBoolean close = new AtomicBoolean();
+            when(builder.withClose(any())).thenAnswer(closeInvocation -> {
+                close.set(closeInvocation.<Boolean>getArgument(0));
+                return builder;
+            });
+            when(builder.start()).thenAnswer(startInvocation -> {
+                append.append(cursor.getOffset());
+                return appendUploader(cursor, close.get());
+            });
+            return builder;
+        });
+    }
+
+    private static void awaitUpload(List<String> uploads, String upload) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!uploads.contains(upload) && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private UploadBuilder stubSingleUpload(FileMetadata... results) throws Exception {
+        UploadBuilder uploadBuilder = mock(UploadBuilder.class, RETURNS_SELF);
+        when(files.uploadBuilder("/file")).thenReturn(uploadBuilder);
+        var stubbing = when(uploadBuilder.uploadAndFinish(any(InputStream.class), anyLong()));
+        for (FileMetadata result : results) {
+            stubbing = stubbing.thenAnswer(invocation -> {
+                uploads.add("upload " + invocation.<InputStream>getArgument(0).readAllBytes().length);
+                return result;
+            });
+        }
+        return uploadBuilder;
+    }
+
+    private static FileMetadata remoteFile(String contentHash) {
+        return FileMetadata.newBuilder("file", "id:file", new Date(1000), new Date(2000), "0123456789", 42)
+                .withPathLower("/file")
+                .withPathDisplay("/file")
+                .withContentHash(contentHash)
+                .build();
+    }
+
+    private UploadSetting uploadSetting(int chunkWorkers) {
+        UploadSetting uploadSetting = mock(UploadSetting.class);
+        when(uploadSetting.getReadMode()).thenReturn(UploadSetting.ReadMode.CHANNEL);
+        when(uploadSetting.getChunkWorkers()).thenReturn(chunkWorkers);
+        when(uploadSetting.getSingleThreshold()).thenReturn((long) FileRequest.CHUNK_SIZE);
+        when(uploadSetting.getJournalDir()).thenReturn(tempDir.resolve("journal").toString());
+        return uploadSetting;
+    }
+
+    private Path createFile(long size) throws IOException {
+        Path file = tempDir.resolve("file");
+        Files.write(file, new byte[(int) size]);
+        return file;
+    }
+
+    @Test
+    void testGetCorrectOffsetOfAppendError() {
+        UploadSessionAppendErrorException e = new UploadSessionAppendErrorException("2/files/upload_session/append_v2", "request-id", null,
+                UploadSessionAppendError.incorrectOffset(new UploadSessionOffsetError(8388608)));
+
+        assertEquals(8388608, FileRequest.getCorrectOffset(e));
+    }
+
+    @Test
+    void testGetCorrectOffsetOfFinishError() {
+        UploadSessionFinishErrorException e = new UploadSessionFinishErrorException("2/files/upload_session/finish", "request-id", null,
+                UploadSessionFinishError.lookupFailed(UploadSessionLookupError.incorrectOffset(new UploadSessionOffsetError(4194304))));
+
+        assertEquals(4194304, FileRequest.getCorrectOffset(e));
+    }
+
+    @Test
+    void testGetCorrectOffsetOfOtherError() {
+        UploadSessionAppendErrorException e = new UploadSessionAppendErrorException("2/files/upload_session/append_v2", "request-id", null,
+                UploadSessionAppendError.NOT_FOUND);
+
+        assertEquals(-1, FileRequest.getCorrectOffset(e));
+    }
+
+    @Test
+    void testSourceIsThrottledWhenBandwidthLimiterIsSet() {
+        IChunkSource source = mock(IChunkSource.class);
+        IBandwidthLimiter bandwidthLimiter = mock(IBandwidthLimiter.class);
+
+        assertSame(source, FileRequest.throttle(source, null));
+        assertInstanceOf(ThrottledChunkSource.class, FileRequest.throttle(source, bandwidthLimiter));
+    }
+
+    @Test
+    void testMemoryBudgetIsReservedBeforeWaitingForLimit(@TempDir Path directory) throws Exception {
+        Path localFile = Files.writeString(directory.resolve("file"), "content");
+        DbxClientV2 dbxClient = mock(DbxClientV2.class, RETURNS_DEEP_STUBS);
+        IMemoryBudget memoryBudget = mock(IMemoryBudget.class);
+        IConcurrencyLimiter concurrencyLimiter = mock(IConcurrencyLimiter.class);
+        when(memoryBudget.acquire(anyLong())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(concurrencyLimiter.execute(any(), any(), any())).thenAnswer(invocation -> invocation.<IRetryPolicy.Call<?>>getArgument(1).call());
+        FileRequest request = FileRequest.createInsert(dbxClient, "/file", localFile.toFile());
+        request.setMemoryBudget(memoryBudget);
+        request.setConcurrencyLimiter(concurrencyLimiter);
+
+        request.execute();
+
+        InOrder inOrder = inOrder(memoryBudget, concurrencyLimiter);
+        inOrder.verify(memoryBudget).acquire(7);
+        inOrder.verify(concurrencyLimiter).execute(eq(IConcurrencyLimiter.Operation.UPLOAD), any(), any());
+        inOrder.verify(memoryBudget).release(7);
+    }
+
+    @Test
+    void testKeptSessionIsNotStartedOverWhenFinishFailsWithOtherThanLookupError() throws Exception {
+        Path localFile = createFile(FileRequest.CHUNK_SIZE + 1);
+        when(finishUploader.finish()).thenThrow(new UploadSessionFinishErrorException("2/files/upload_session/finish", "request-id", null,
+                UploadSessionFinishError.path(WriteError.INSUFFICIENT_SPACE)));
+        FileRequest request = FileRequest.createInsert(dbxClient, "/file", localFile.toFile());
+
+        assertThrows(UploadSessionFinishErrorException.class, request::execute);
+        assertThrows(UploadSessionFinishErrorException.class, request::execute);
+
+        verify(files, times(1)).uploadSessionStart();
+        assertEquals(List.of("start 4194304", "append 4194304 1", "finish 4194305", "finish 4194305"), uploads);
+    }
+
+    @Test
+    void testKeptSessionIsStartedOverWhenItIsNotFound() throws Exception {
+        Path localFile = createFile(FileRequest.CHUNK_SIZE + 1);
+        when(finishUploader.finish())
+                .thenThrow(new UploadSessionFinishErrorException("2/files/upload_session/finish", "request-id", null,
+                        UploadSessionFinishError.path(WriteError.INSUFFICIENT_SPACE)))
+                .thenThrow(new UploadSessionFinishErrorException("2/files/upload_session/finish", "request-id", null,
+                        UploadSessionFinishError.lookupFailed(UploadSessionLookupError.NOT_FOUND)))
+                .thenReturn(remoteFile(null));
+        FileRequest request = FileRequest.createInsert(dbxClient, "/file", localFile.toFile());
+
+        assertThrows(UploadSessionFinishErrorException.class, request::execute);
+        FileMetadata result = request.execute();
+
+        assertNotNull(result);
+        verify(files, times(2)).uploadSessionStart();
+    }
+
+    @Test
+    void testIsSessionLost() {
+        assertTrue(FileRequest.isSessionLost(new UploadSessionAppendErrorException("2/files/upload_session/append_v2", "request-id", null,
+                UploadSessionAppendError.NOT_FOUND)));
+        assertTrue(FileRequest.isSessionLost(new UploadSessionFinishErrorException("2/files/upload_session/finish", "request-id", null,
+                UploadSessionFinishError.lookupFailed(UploadSessionLookupError.CLOSED))));
+        assertFalse(FileRequest.isSessionLost(new UploadSessionFinishErrorException("2/files/upload_session/finish", "request-id", null,
+                UploadSessionFinishError.TOO_MANY_WRITE_OPERATIONS)));
+        assertFalse(FileRequest.isSessionLost(new UploadSessionFinishErrorException("2/files/upload_session/finish", "request-id", null,
+                UploadSessionFinishError.path(WriteError.conflict(WriteConflictError.FILE)))));
+    }
+
+    @Test
+    void testResumeFromJournal() throws Exception {
+        Path localFile = createFile(2L * FileRequest.CHUNK_SIZE + 1);
+        UploadJournal journal = new UploadJournal(tempDir.resolve("journal"));
+        journal.save(localFile.toFile(), "/file", new UploadJournal.Entry("journal-session-id", FileRequest.CHUNK_SIZE, System.currentTimeMillis()));
+        FileRequest request = FileRequest.createInsert(dbxClient, "/file", localFile.toFile());
+        request.setUploadSetting(uploadSetting(1));
+
+        request.execute();
+
+        verify(files, never()).uploadSessionStart();
+        verify(files, times(2)).uploadSessionAppendV2(argThat(cursor -> "journal-session-id".equals(cursor.getSessionId())));
+        assertEquals(List.of("append 4194304 4194304", "append 8388608 1", "finish 8388609"), uploads);
+        assertTrue(journal.find(localFile.toFile(), "/file").isEmpty());
+    }
+
+    @Test
+    void testJournalIsWrittenWhileUploadingAndRemovedAfterCommit() throws Exception {
+        Path localFile = createFile(FileRequest.CHUNK_SIZE + 1);
+        UploadJournal journal = new UploadJournal(tempDir.resolve("journal"));
+        when(finishUploader.finish()).thenAnswer(invocation -> {
+            UploadJournal.Entry entry = journal.find(localFile.toFile(), "/file").orElseThrow();
+            assertEquals("session-id", entry.sessionId());
+            assertEquals(FileRequest.CHUNK_SIZE + 1, entry.offset());
+            return remoteFile(null);
+        });
+        FileRequest request = FileRequest.createInsert(dbxClient, "/file", localFile.toFile());
+        request.setUploadSetting(uploadSetting(1));
+
+        request.execute();
+
+        assertTrue(journal.find(localFile.toFile(), "/file").isEmpty());
+    }
+
+    @Test
+    void testResumeFromJournalStartsOverWhenSessionExpired() throws Exception {
+        Path localFile = createFile(2L * FileRequest.CHUNK_SIZE + 1);
+        UploadJournal journal = new UploadJournal(tempDir.resolve("journal"));
+        journal.save(localFile.toFile(), "/file", new UploadJournal.Entry("journal-session-id", FileRequest.CHUNK_SIZE, System.currentTimeMillis()));
+        when(files.uploadSessionAppendV2(any()))
+                .thenThrow(new UploadSessionAppendErrorException("2/files/upload_session/append_v2", "request-id", null,
+                        UploadSessionAppendError.NOT_FOUND))
+                .thenAnswer(invocation -> appendUploader(invocation.getArgument(0), false));
+        FileRequest request = FileRequest.createInsert(dbxClient, "/file", localFile.toFile());
+        request.setUploadSetting(uploadSetting(1));
+
+        request.execute();
+
+        verify(files).uploadSessionStart();
+        assertEquals(List.of("start 4194304", "append 4194304 4194304", "append 8388608 1", "finish 8388609"), uploads);
+        assertTrue(journal.find(localFile.toFile(), "/file").isEmpty());
+    }
+
+    @Test
+    void testConcurrentUpload() throws Exception {
+        Path localFile = createFile(3L * FileRequest.CHUNK_SIZE + 1);
+        // the first chunk is appended after the second one
+        stubConcurrentSession(offset -> {
+            if (offset == 0) {
+                awaitUpload(uploads, "append 4194304 4194304");
+            }
+        });
+        FileRequest request = FileRequest.createInsert(dbxClient, "/file", localFile.toFile());
+        request.setUploadSetting(uploadSetting(2));
+
+        request.execute();
+
+        assertEquals(6, uploads.size());
+        assertEquals("start concurrent 0", uploads.getFirst());
+        assertTrue(uploads.indexOf("append 4194304 4194304") < uploads.indexOf("append 0 4194304"));
+        assertTrue(uploads.contains("append 8388608 4194304"));
+        assertEquals(List.of("append 12582912 1 close", "finish 12582913"), uploads.subList(4, 6));
+        verify(files, never()).uploadSessionStart();
+    }
+
+    @Test
+    void testConcurrentUploadFailsOnFailedChunkAndCancelsOtherChunks() throws Exception {
+        Path localFile = createFile(4L * FileRequest.CHUNK_SIZE + 1);
+        stubConcurrentSession(offset -> {
+            if (offset == 0) {
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+                } catch (InterruptedException e) {
+                    uploads.add("interrupted 0");
+                    throw e;
+                }
+            } else if (offset == FileRequest.CHUNK_SIZE) {
+                throw new UploadSessionAppendErrorException("2/files/upload_session/append_v2", "request-id", null,
+                        UploadSessionAppendError.NOT_FOUND);
+            }
+        });
+        FileRequest request = FileRequest.createInsert(dbxClient, "/file", localFile.toFile());
+        request.setUploadSetting(uploadSetting(2));
+
+        assertThrows(UploadSessionAppendErrorException.class, request::execute);
+
+        awaitUpload(uploads, "interrupted 0");
+        assertTrue(uploads.contains("interrupted 0"));
+        assertTrue(uploads.stream().noneMatch(upload -> upload.endsWith("close")));
+        verify(files, never()).uploadSessionFinish(any(), any());
+    }
+
+    @Test
+    void testMismatchingFileIsUploadedAgainOverItsCommittedRevision() throws Exception {
+        Path localFile = Files.writeString(tempDir.resolve("file"), "content");
+        FileMetadata mismatching = remoteFile("mismatching-hash");
+        FileMetadata matching = remoteFile(ContentHashUtils.contentHash(localFile));
+        UploadBuilder uploadBuilder = stubSingleUpload(mismatching, matching);
+        UploadSetting uploadSetting = uploadSetting(1);
+        when(uploadSetting.isVerify()).thenReturn(true);
+        FileRequest request = FileRequest.createInsert(dbxClient, "/file", localFile.toFile());
+        request.setUploadSetting(uploadSetting);
+
+        FileMetadata result = request.execute();
+
+        assertSame(matching, result);
+        assertEquals(List.of("upload 7", "upload 7"), uploads);
+        InOrder inOrder = inOrder(uploadBuilder);
+        inOrder.verify(uploadBuilder).withMode(WriteMode.ADD);
+        inOrder.verify(uploadBuilder).withMode(WriteMode.update(mismatching.getRev()));
+    }
+
+    @Test
+    void testContentMismatchIsThrownWhenFileDoesNotMatchAfterVerifyRetries() throws Exception {
+        Path localFile = Files.writeString(tempDir.resolve("file"), "content");
+        stubSingleUpload(remoteFile("mismatching-hash"), remoteFile("mismatching-hash"), remoteFile("mismatching-hash"));
+        UploadSetting uploadSetting = uploadSetting(1);
+        when(uploadSetting.isVerify()).thenReturn(true);
+        FileRequest request = FileRequest.createInsert(dbxClient, "/file", localFile.toFile());
+        request.setUploadSetting(uploadSetting);
+
+        assertThrows(ContentMismatchException.class, request::execute);
+
+        assertEquals(FileRequest.VERIFY_RETRIES + 1, uploads.size());
+    }
+
+    @Test
+    void testFileIsNotVerifiedWhenVerificationIsDisabled() throws Exception {
+        Path localFile = Files.writeString(tempDir.resolve("file"), "content");
+        FileMetadata mismatching = remoteFile("mismatching-hash");
+        stubSingleUpload(mismatching);
+        FileRequest request = FileRequest.createInsert(dbxClient, "/file", localFile.toFile());
+        request.setUploadSetting(uploadSetting(1));
+
+        assertSame(mismatching, request.execute());
+        assertEquals(List.of("upload 7"), uploads);
+    }
+
+    @Test
+    void testFileUpToThresholdIsUploadedWithOneRequest() throws Exception {
+        Path localFile = createFile(FileRequest.CHUNK_SIZE);
+        FileMetadata uploaded = remoteFile(null);
+        stubSingleUpload(uploaded);
+        FileRequest request = FileRequest.createInsert(dbxClient, "/file", localFile.toFile());
+        request.setUploadSetting(uploadSetting(1));
+
+        assertSame(uploaded, request.execute());
+
+        assertEquals(List.of("upload 4194304"), uploads);
+        verify(files, never()).uploadSessionStart();
+    }
+
+    @Test
+    void testFileAboveThresholdIsUploadedWithUploadSession() throws Exception {
+        Path localFile = createFile(FileRequest.CHUNK_SIZE + 1);
+        FileRequest request = FileRequest.createInsert(dbxClient, "/file", localFile.toFile());
+        request.setUploadSetting(uploadSetting(1));
+
+        request.execute();
+
+        assertEquals(List.of("start 4194304", "append 4194304 1", "finish 4194305"), uploads);
+        verify(files, never()).uploadBuilder(any());
+    }
+
+    @Test
+    void testEmptyFileIsUploadedWithOneRequest() throws Exception {
+        Path localFile = createFile(0);
+        FileMetadata uploaded = remoteFile(null);
+        stubSingleUpload(uploaded);
+        FileRequest request = FileRequest.createInsert(dbxClient, "/file", localFile.toFile());
+
+        assertSame(uploaded, request.execute());
+
+        assertEquals(List.of("upload 0"), uploads);
+    }
+
+    @Test
+    void testEmptyFileIsUploadedWithOneRequestWhenThresholdIsNotPositive() throws Exception {
+        Path localFile = createFile(0);
+        FileMetadata uploaded = remoteFile(null);
+        stubSingleUpload(uploaded);
+        UploadSetting uploadSetting = uploadSetting(1);
+        when(uploadSetting.getSingleThreshold()).thenReturn(-1L);
+        FileRequest request = FileRequest.createInsert(dbxClient, "/file", localFile.toFile());
+        request.setUploadSetting(uploadSetting);
+
+        // empty file used to fail on "No chunk found" when it was uploaded with upload session
+        assertSame(uploaded, request.execute());
+
+        assertEquals(List.of("upload 0"), uploads);
+        verify(files, never()).uploadSessionStart();
+    }
+}
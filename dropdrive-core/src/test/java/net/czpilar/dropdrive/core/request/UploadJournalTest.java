@@ -0,0 +1,94 @@
+package net.czpilar.dropdrive.core.request;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author David Pilar (david@czpilar.net)
+ */
+class UploadJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File localFile;
+    private UploadJournal journal;
+
+    @BeforeEach
+    void before() throws IOException {
+        localFile = Files.writeString(tempDir.resolve("test-file.txt"), "Some test file data to store.").toFile();
+        journal = new UploadJournal(tempDir.resolve("journal"));
+    }
+
+    @Test
+    void testFindWhereNoEntryExists() {
+        Optional<UploadJournal.Entry> result = journal.find(localFile, "/remote/test-file.txt");
+
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void testSaveAndFind() {
+        UploadJournal.Entry entry = new UploadJournal.Entry("session-id", 4194304, System.currentTimeMillis());
+
+        journal.save(localFile, "/remote/test-file.txt", entry);
+        Optional<UploadJournal.Entry> result = journal.find(localFile, "/remote/test-file.txt");
+
+        assertTrue(result.isPresent());
+        assertEquals(entry, result.get());
+        assertTrue(journal.find(localFile, "/remote/other-file.txt").isEmpty());
+    }
+
+    @Test
+    void testFindWhereLocalFileWasChanged() throws IOException {
+        journal.save(localFile, "/remote/test-file.txt", new UploadJournal.Entry("session-id", 10, System.currentTimeMillis()));
+        Files.writeString(localFile.toPath(), "Changed test file data.");
+
+        Optional<UploadJournal.Entry> result = journal.find(localFile, "/remote/test-file.txt");
+
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void testFindWhereSessionExpired() {
+        long created = System.currentTimeMillis() - UploadJournal.SESSION_EXPIRATION - 1;
+        journal.save(localFile, "/remote/test-file.txt", new UploadJournal.Entry("session-id", 10, created));
+
+        Optional<UploadJournal.Entry> result = journal.find(localFile, "/remote/test-file.txt");
+
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void testRemove() {
+        journal.save(localFile, "/remote/test-file.txt", new UploadJournal.Entry("session-id", 10, System.currentTimeMillis()));
+
+        journal.remove(localFile, "/remote/test-file.txt");
+
+        assertTrue(journal.find(localFile, "/remote/test-file.txt").isEmpty());
+    }
+
+    @Test
+    void testSaveFailureLeavesNoTempFile() throws IOException {
+        Path journalDir = tempDir.resolve("journal");
+        Path journalFile = journalDir.resolve(DigestUtils.sha256Hex(localFile.getAbsolutePath() + "|/remote/test-file.txt") + ".properties");
+        Files.createDirectories(journalFile);
+        Files.writeString(journalFile.resolve("blocker"), "non-empty directory cannot be replaced");
+
+        journal.save(localFile, "/remote/test-file.txt", new UploadJournal.Entry("session-id", 10, System.currentTimeMillis()));
+
+        try (var files = Files.list(journalDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package net.czpilar.dropdrive.core.request;
+
+import net.czpilar.dropdrive.core.request.UploadScheduler.Lane;
+import net.czpilar.dropdrive.core.request.UploadScheduler.Policy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author David Pilar (david@czpilar.net)
+ */
+class UploadSchedulerTest {
+
+    @TempDir
+    private Path dir;
+
+    private final AtomicLong time = new AtomicLong();
+    private final List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+    private String createFile(String name, int size) throws IOException {
+        return Files.write(dir.resolve(name), new byte[size]).toString();
+    }
+
+    private Thread upload(UploadScheduler scheduler, String name, Lane lane, long size) throws InterruptedException {
+        int waiting = scheduler.getWaiting();
+        Thread thread = Thread.ofVirtual().start(() -> {
+            try (UploadScheduler.Permit _ = scheduler.acquire(lane, size)) {
+                order.add(name);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (scheduler.getWaiting() == waiting && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(waiting + 1, scheduler.getWaiting());
+        return thread;
+    }
+
+    private List<String> run(UploadScheduler.Permit blocking, List<Thread> threads) throws InterruptedException {
+        blocking.close();
+        for (Thread thread : threads) {
+            assertTrue(thread.join(Duration.ofSeconds(10)));
+        }
+        return order;
+    }
+
+    @Test
+    void testOrderByPolicy() throws IOException {
+        String large = createFile("large", 300);
+        String small = createFile("small", 100);
+        String medium = createFile("medium", 200);
+        List<String> filenames = List.of(large, small, medium);
+
+        assertEquals(List.of(0, 1, 2), new UploadScheduler(Policy.FIFO, 0, 0).order(filenames));
+        assertEquals(List.of(1, 2, 0), new UploadScheduler(Policy.SMALLEST_FIRST, 0, 0).order(filenames));
+        assertEquals(List.of(0, 2, 1), new UploadScheduler(Policy.LARGEST_FIRST, 0, 0).order(filenames));
+    }
+
+    @Test
+    void testSchedulerWithoutSlotsDoesNotLimitUploads() throws InterruptedException {
+        UploadScheduler scheduler = new UploadScheduler(Policy.FIFO, 0, 0);
+
+        try (UploadScheduler.Permit _ = scheduler.acquire(Lane.BULK, 100);
+             UploadScheduler.Permit _ = scheduler.acquire(Lane.BULK, 100)) {
+            assertEquals(0, scheduler.getWaiting());
+        }
+    }
+
+    @Test
+    void testInteractiveLaneIsServedBeforeBulkLane() throws InterruptedException {
+        UploadScheduler scheduler = new UploadScheduler(Policy.SMALLEST_FIRST, 1, 0, time::get);
+        UploadScheduler.Permit blocking = scheduler.acquire(Lane.BULK, 100);
+
+        List<Thread> threads = List.of(
+                upload(scheduler, "bulk", Lane.BULK, 1),
+                upload(scheduler, "interactive", Lane.INTERACTIVE, 1000));
+
+        assertEquals(List.of("interactive", "bulk"), run(blocking, threads));
+    }
+
+    @Test
+    void testLaneIsOrderedByPolicy() throws InterruptedException {
+        UploadScheduler scheduler = new UploadScheduler(Policy.SMALLEST_FIRST, 1, 0, time::get);
+        UploadScheduler.Permit blocking = scheduler.acquire(Lane.BULK, 100);
+
+        List<Thread> threads = List.of(
+                upload(scheduler, "large", Lane.BULK, 1000),
+                upload(scheduler, "small", Lane.BULK, 10),
+                upload(scheduler, "medium", Lane.BULK, 100));
+
+        assertEquals(List.of("small", "medium", "large"), run(blocking, threads));
+    }
+
+    @Test
+    void testStarvedUploadIsServedFirst() throws InterruptedException {
+        UploadScheduler scheduler = new UploadScheduler(Policy.SMALLEST_FIRST, 1, 1000, time::get);
+        UploadScheduler.Permit blocking = scheduler.acquire(Lane.BULK, 100);
+
+        Thread bulk = upload(scheduler, "bulk", Lane.BULK, 1000);
+        time.addAndGet(1000);
+        Thread interactive = upload(scheduler, "interactive", Lane.INTERACTIVE, 1);
+
+        assertEquals(List.of("bulk", "interactive"), run(blocking, List.of(bulk, interactive)));
+    }
+
+    @Test
+    void testLaneIsBoundToCall() {
+        assertEquals(Lane.BULK, UploadScheduler.getLane());
+        assertEquals(Lane.INTERACTIVE, UploadScheduler.callInLane(Lane.INTERACTIVE, UploadScheduler::getLane));
+        assertEquals(Lane.BULK, UploadScheduler.getLane());
+    }
+}
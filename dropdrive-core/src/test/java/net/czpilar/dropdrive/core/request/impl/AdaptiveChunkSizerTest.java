@@ -0,0 +1,78 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author David Pilar (david@czpilar.net)
+ */
+class AdaptiveChunkSizerTest {
+
+    private static final long MIN = 4;
+    private static final long MAX = 64;
+    private static final long TARGET = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void testStartsWithMinimalChunkSize() {
+        AdaptiveChunkSizer sizer = new AdaptiveChunkSizer(MIN, MAX, TARGET);
+
+        assertEquals(MIN, sizer.nextChunkSize());
+    }
+
+    @Test
+    void testGrowsAtMostTwiceOnFastUpload() {
+        AdaptiveChunkSizer sizer = new AdaptiveChunkSizer(MIN, MAX, TARGET);
+
+        sizer.chunkUploaded(MIN, 1);
+
+        assertEquals(2 * MIN, sizer.nextChunkSize());
+    }
+
+    @Test
+    void testGrowsUpToMaximalChunkSize() {
+        AdaptiveChunkSizer sizer = new AdaptiveChunkSizer(MIN, MAX, TARGET);
+
+        for (int i = 0; i < 10; i++) {
+            sizer.chunkUploaded(sizer.nextChunkSize(), 1);
+        }
+
+        assertEquals(MAX, sizer.nextChunkSize());
+    }
+
+    @Test
+    void testShrinksOnSlowUpload() {
+        AdaptiveChunkSizer sizer = new AdaptiveChunkSizer(MIN, MAX, TARGET);
+        for (int i = 0; i < 10; i++) {
+            sizer.chunkUploaded(sizer.nextChunkSize(), TARGET / 100);
+        }
+        assertEquals(MAX, sizer.nextChunkSize());
+
+        for (int i = 0; i < 20; i++) {
+            sizer.chunkUploaded(sizer.nextChunkSize(), 4 * TARGET);
+        }
+
+        assertEquals(MIN, sizer.nextChunkSize());
+    }
+
+    @Test
+    void testHalvesOnFailureAndKeepsMultipleOfMinimalChunkSize() {
+        AdaptiveChunkSizer sizer = new AdaptiveChunkSizer(MIN, 30, TARGET);
+        for (int i = 0; i < 10; i++) {
+            sizer.chunkUploaded(sizer.nextChunkSize(), 1);
+        }
+        assertEquals(28, sizer.nextChunkSize());
+
+        sizer.chunkFailed();
+
+        assertEquals(12, sizer.nextChunkSize());
+
+        sizer.chunkFailed();
+        sizer.chunkFailed();
+        sizer.chunkFailed();
+
+        assertEquals(MIN, sizer.nextChunkSize());
+    }
+}
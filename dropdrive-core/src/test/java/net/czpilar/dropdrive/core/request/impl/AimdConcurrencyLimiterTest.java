@@ -0,0 +1,246 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import com.dropbox.core.DbxApiException;
+import com.dropbox.core.DbxException;
+import com.dropbox.core.RateLimitException;
+import com.dropbox.core.ServerException;
+import net.czpilar.dropdrive.core.request.IConcurrencyLimiter.Operation;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author David Pilar (david@czpilar.net)
+ */
+class AimdConcurrencyLimiterTest {
+
+    private final AtomicLong time = new AtomicLong();
+
+    private AimdConcurrencyLimiter createLimiter(int initial, int max) {
+        return new AimdConcurrencyLimiter(initial, 1, max, max, max, max, 0.5, 2.0, time::get);
+    }
+
+    private String respond(AimdConcurrencyLimiter limiter, Operation operation, long latency) throws IOException, DbxException {
+        return limiter.execute(operation, () -> {
+            time.addAndGet(latency);
+            return "result";
+        });
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void testLimitGrowsAdditivelyWhileLatencyIsHealthy() throws IOException, DbxException {
+        AimdConcurrencyLimiter limiter = createLimiter(2, 4);
+
+        assertEquals("result", respond(limiter, Operation.APPEND, 100));
+        assertEquals(2, limiter.getLimit(Operation.APPEND));
+        respond(limiter, Operation.APPEND, 100);
+        assertEquals(2, limiter.getLimit(Operation.APPEND));
+        respond(limiter, Operation.APPEND, 100);
+        assertEquals(3, limiter.getLimit(Operation.APPEND));
+
+        for (int i = 0; i < 20; i++) {
+            respond(limiter, Operation.APPEND, 100);
+        }
+        assertEquals(4, limiter.getLimit(Operation.APPEND));
+    }
+
+    @Test
+    void testLimitDoesNotGrowWhenLatencyExceedsTolerance() throws IOException, DbxException {
+        AimdConcurrencyLimiter limiter = createLimiter(2, 4);
+
+        respond(limiter, Operation.APPEND, 100);
+        respond(limiter, Operation.APPEND, 100);
+        for (int i = 0; i < 3; i++) {
+            respond(limiter, Operation.APPEND, 1000);
+        }
+
+        assertEquals(2, limiter.getLimit(Operation.APPEND));
+    }
+
+    @Test
+    void testLimitIsCutMultiplicativelyOnThrottling() {
+        AimdConcurrencyLimiter limiter = createLimiter(8, 16);
+        RateLimitException e = mock(RateLimitException.class);
+
+        assertSame(e, assertThrows(RateLimitException.class, () -> limiter.execute(Operation.COMMIT, () -> {
+            throw e;
+        })));
+        assertEquals(4, limiter.getLimit(Operation.COMMIT));
+
+        assertThrows(RateLimitException.class, () -> limiter.execute(Operation.COMMIT, () -> {
+            throw e;
+        }));
+        assertEquals(2, limiter.getLimit(Operation.COMMIT));
+
+        for (int i = 0; i < 5; i++) {
+            assertThrows(RateLimitException.class, () -> limiter.execute(Operation.COMMIT, () -> {
+                throw e;
+            }));
+        }
+        assertEquals(1, limiter.getLimit(Operation.COMMIT));
+    }
+
+    @Test
+    void testLimitIsCutOnceForConcurrentlyThrottledRequests() {
+        AimdConcurrencyLimiter limiter = createLimiter(4, 16);
+        RateLimitException e = mock(RateLimitException.class);
+
+        assertThrows(RateLimitException.class, () -> limiter.execute(Operation.APPEND, () -> {
+            assertThrows(RateLimitException.class, () -> limiter.execute(Operation.APPEND, () -> {
+                throw e;
+            }));
+            throw e;
+        }));
+
+        assertEquals(2, limiter.getLimit(Operation.APPEND));
+    }
+
+    @Test
+    void testLimitIsKeptOnOtherFailures() {
+        AimdConcurrencyLimiter limiter = createLimiter(4, 16);
+
+        assertThrows(DbxApiException.class, () -> limiter.execute(Operation.APPEND, () -> {
+            throw mock(DbxApiException.class);
+        }));
+        assertThrows(IOException.class, () -> limiter.execute(Operation.APPEND, () -> {
+            throw new IOException("test");
+        }));
+
+        assertEquals(4, limiter.getLimit(Operation.APPEND));
+    }
+
+    @Test
+    void testLimitIsCutWhenServerFails() {
+        AimdConcurrencyLimiter limiter = createLimiter(4, 16);
+
+        assertThrows(ServerException.class, () -> limiter.execute(Operation.APPEND, () -> {
+            throw mock(ServerException.class);
+        }));
+
+        assertEquals(2, limiter.getLimit(Operation.APPEND));
+    }
+
+    @Test
+    void testOperationsHaveSeparateLimits() {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(4, 1, 16, 2, 8, 8, 0.5, 2.0, time::get);
+
+        assertThrows(RateLimitException.class, () -> limiter.execute(Operation.COMMIT, () -> {
+            throw mock(RateLimitException.class);
+        }));
+
+        assertEquals(4, limiter.getLimit(Operation.APPEND));
+        assertEquals(1, limiter.getLimit(Operation.COMMIT));
+        assertEquals(4, limiter.getLimit(Operation.METADATA));
+        assertEquals(4, limiter.getLimit(Operation.UPLOAD));
+    }
+
+    @Test
+    void testTimeSpentOutsideOfRequestIsNotCountedToLatency() throws IOException, DbxException {
+        AimdConcurrencyLimiter limiter = createLimiter(1, 4);
+        respond(limiter, Operation.APPEND, 100);
+
+        for (int i = 0; i < 4; i++) {
+            limiter.execute(Operation.APPEND, () -> time.addAndGet(1000), () -> 900);
+        }
+
+        assertEquals(3, limiter.getLimit(Operation.APPEND));
+    }
+
+    @Test
+    void testLimitDoesNotGrowWhenLatencyIncludesTimeSpentOutsideOfRequest() throws IOException, DbxException {
+        AimdConcurrencyLimiter limiter = createLimiter(1, 4);
+        respond(limiter, Operation.APPEND, 100);
+
+        for (int i = 0; i < 4; i++) {
+            limiter.execute(Operation.APPEND, () -> time.addAndGet(1000));
+        }
+
+        assertEquals(2, limiter.getLimit(Operation.APPEND));
+    }
+
+    @Test
+    void testLimitsStartAtDefaultInitialLimit() {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter();
+
+        assertEquals(AimdConcurrencyLimiter.DEFAULT_INITIAL, limiter.getLimit(Operation.APPEND));
+        assertEquals(AimdConcurrencyLimiter.DEFAULT_COMMIT_MAX, limiter.getLimit(Operation.COMMIT));
+    }
+
+    @Test
+    void testLimitsStartAtMaximumWithoutInitialLimit() {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(0, 1, 16, 2, 8, 12, 0.5, 2.0, time::get);
+
+        assertEquals(16, limiter.getLimit(Operation.APPEND));
+        assertEquals(2, limiter.getLimit(Operation.COMMIT));
+        assertEquals(8, limiter.getLimit(Operation.METADATA));
+        assertEquals(12, limiter.getLimit(Operation.UPLOAD));
+    }
+
+    @Test
+    void testOperationWithoutMaxIsNotLimited() throws IOException, DbxException {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(4, 1, 0, 2, 8, 8, 0.5, 2.0, time::get);
+
+        assertEquals("result", respond(limiter, Operation.APPEND, 100));
+        assertEquals(0, limiter.getLimit(Operation.APPEND));
+    }
+
+    @Test
+    void testRequestWaitsWhileLimitIsReached() throws Exception {
+        AimdConcurrencyLimiter limiter = createLimiter(1, 1);
+        CountDownLatch executing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        Thread first = Thread.ofVirtual().start(() -> {
+            try {
+                limiter.execute(Operation.APPEND, () -> {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    executing.countDown();
+                    await(release);
+                    inFlight.decrementAndGet();
+                    return null;
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        await(executing);
+
+        Thread second = Thread.ofVirtual().start(() -> {
+            try {
+                limiter.execute(Operation.APPEND, () -> {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    inFlight.decrementAndGet();
+                    return null;
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertFalse(second.join(Duration.ofMillis(100)));
+
+        release.countDown();
+        first.join();
+        second.join();
+
+        assertEquals(1, maxInFlight.get());
+    }
+}
@@ -0,0 +1,161 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import com.dropbox.core.DbxApiException;
+import com.dropbox.core.DbxException;
+import com.dropbox.core.InvalidAccessTokenException;
+import com.dropbox.core.RateLimitException;
+import com.dropbox.core.RetryException;
+import com.dropbox.core.ServerException;
+import com.dropbox.core.v2.files.CreateFolderError;
+import com.dropbox.core.v2.files.CreateFolderErrorException;
+import com.dropbox.core.v2.files.UploadSessionFinishError;
+import com.dropbox.core.v2.files.UploadSessionFinishErrorException;
+import com.dropbox.core.v2.files.UploadSessionLookupError;
+import com.dropbox.core.v2.files.WriteError;
+import net.czpilar.dropdrive.core.exception.CircuitBreakerOpenException;
+import net.czpilar.dropdrive.core.request.IRetryPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author David Pilar (david@czpilar.net)
+ */
+class BackoffRetryPolicyTest {
+
+    private static final long DELAY = 100;
+    private static final long MAX_DELAY = 1000;
+
+    private final List<Long> sleeps = new ArrayList<>();
+    private final AtomicLong time = new AtomicLong();
+
+    private BackoffRetryPolicy createPolicy(int circuitThreshold) {
+        return new BackoffRetryPolicy(DELAY, MAX_DELAY, circuitThreshold, 5000, sleeps::add, time::get);
+    }
+
+    private static IRetryPolicy.Call<String> failing(AtomicInteger calls, int failures, DbxException e) {
+        return () -> {
+            if (calls.incrementAndGet() <= failures) {
+                throw e;
+            }
+            return "result";
+        };
+    }
+
+    @Test
+    void testSuccessfulCallIsNotRetried() throws IOException, DbxException {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals("result", createPolicy(0).execute("test", 3, failing(calls, 0, null)));
+
+        assertEquals(1, calls.get());
+        assertTrue(sleeps.isEmpty());
+    }
+
+    @Test
+    void testRetryableErrorIsRetriedWithExponentialBackoff() throws IOException, DbxException {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals("result", createPolicy(0).execute("test", 5, failing(calls, 5, mock(ServerException.class))));
+
+        assertEquals(6, calls.get());
+        assertEquals(5, sleeps.size());
+        for (int i = 0; i < sleeps.size(); i++) {
+            long backoff = Math.min(MAX_DELAY, DELAY << i);
+            assertTrue(sleeps.get(i) >= backoff / 2 && sleeps.get(i) <= backoff, "Unexpected delay " + sleeps.get(i));
+        }
+    }
+
+    @Test
+    void testRetryableErrorIsThrownWhenRetriesAreExceeded() {
+        AtomicInteger calls = new AtomicInteger();
+        ServerException e = mock(ServerException.class);
+
+        assertSame(e, assertThrows(ServerException.class, () -> createPolicy(0).execute("test", 2, failing(calls, 10, e))));
+
+        assertEquals(3, calls.get());
+        assertEquals(2, sleeps.size());
+    }
+
+    @Test
+    void testFatalErrorIsNotRetried() {
+        AtomicInteger calls = new AtomicInteger();
+        InvalidAccessTokenException e = mock(InvalidAccessTokenException.class);
+
+        assertSame(e, assertThrows(InvalidAccessTokenException.class, () -> createPolicy(0).execute("test", 3, failing(calls, 1, e))));
+
+        assertEquals(1, calls.get());
+        assertTrue(sleeps.isEmpty());
+    }
+
+    @Test
+    void testRouteErrorIsRetryableOnlyForTooManyWriteOperations() {
+        UploadSessionFinishErrorException tooManyWrites = new UploadSessionFinishErrorException("2/files/upload_session/finish", "request-id", null,
+                UploadSessionFinishError.TOO_MANY_WRITE_OPERATIONS);
+        UploadSessionFinishErrorException notFound = new UploadSessionFinishErrorException("2/files/upload_session/finish", "request-id", null,
+                UploadSessionFinishError.lookupFailed(UploadSessionLookupError.NOT_FOUND));
+
+        BackoffRetryPolicy policy = createPolicy(0);
+
+        assertTrue(policy.isRetryable(tooManyWrites));
+        assertFalse(policy.isRetryable(notFound));
+    }
+
+    @Test
+    void testRateLimitBackoffIsHonored() throws IOException, DbxException {
+        AtomicInteger calls = new AtomicInteger();
+        RateLimitException e = mock(RateLimitException.class);
+        when(e.getBackoffMillis()).thenReturn(3000L);
+
+        assertEquals("result", createPolicy(0).execute("test", 3, failing(calls, 1, e)));
+
+        assertEquals(1, sleeps.size());
+        assertTrue(sleeps.getFirst() >= 3000 && sleeps.getFirst() <= 3000 + DELAY, "Unexpected delay " + sleeps.getFirst());
+    }
+
+    @Test
+    void testCircuitBreakerOpensAfterFailuresInRow() throws IOException, DbxException {
+        BackoffRetryPolicy policy = createPolicy(3);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(ServerException.class, () -> policy.execute("test", 2, failing(calls, 3, mock(ServerException.class))));
+        assertThrows(CircuitBreakerOpenException.class, () -> policy.execute("test", 2, () -> "result"));
+
+        time.addAndGet(5000);
+
+        assertEquals("result", policy.execute("test", 2, () -> "result"));
+    }
+
+    @Test
+    void testCircuitBreakerIsResetBySuccess() throws IOException, DbxException {
+        BackoffRetryPolicy policy = createPolicy(3);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals("result", policy.execute("test", 2, failing(calls, 2, mock(ServerException.class))));
+        calls.set(0);
+        assertEquals("result", policy.execute("test", 2, failing(calls, 2, mock(ServerException.class))));
+    }
+
+    @Test
+    void testThrottlingErrors() {
+        DbxApiException tooManyRequests = mock(DbxApiException.class);
+        when(tooManyRequests.getMessage()).thenReturn("Exception in 2/files/get_metadata: too_many_requests");
+        CreateFolderErrorException tooManyWrites = new CreateFolderErrorException("2/files/create_folder_v2", "request-id", null,
+                CreateFolderError.path(WriteError.TOO_MANY_WRITE_OPERATIONS));
+
+        assertTrue(BackoffRetryPolicy.isThrottling(mock(RateLimitException.class)));
+        assertTrue(BackoffRetryPolicy.isThrottling(mock(RetryException.class)));
+        assertTrue(BackoffRetryPolicy.isThrottling(mock(ServerException.class)));
+        assertTrue(BackoffRetryPolicy.isThrottling(tooManyWrites));
+        assertFalse(BackoffRetryPolicy.isThrottling(tooManyRequests));
+        assertFalse(BackoffRetryPolicy.isThrottling(mock(DbxApiException.class)));
+    }
+}
@@ -0,0 +1,51 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author David Pilar (david@czpilar.net)
+ */
+class BudgetedChunkSourceTest {
+
+    private Path testFile;
+
+    @BeforeEach
+    void before() throws IOException {
+        testFile = Files.createTempFile("dropdrive-budgeted-", ".txt");
+        Files.writeString(testFile, "0123456789", StandardCharsets.UTF_8);
+    }
+
+    @AfterEach
+    void after() throws IOException {
+        Files.deleteIfExists(testFile);
+    }
+
+    @Test
+    void testChunkReservesBudgetUntilClosed() throws IOException {
+        ChunkMemoryBudget budget = new ChunkMemoryBudget(100);
+        try (BudgetedChunkSource source = new BudgetedChunkSource(new FileChannelChunkSource(testFile), budget)) {
+            InputStream first = source.openChunk(0, 4);
+            InputStream second = source.openChunk(4, 6);
+            assertEquals(10, budget.getUsed());
+
+            assertEquals("0123", new String(first.readAllBytes(), StandardCharsets.UTF_8));
+            first.close();
+            first.close();
+            assertEquals(6, budget.getUsed());
+
+            assertEquals("456789", new String(second.readAllBytes(), StandardCharsets.UTF_8));
+            second.close();
+            assertEquals(0, budget.getUsed());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author David Pilar (david@czpilar.net)
+ */
+class ChunkMemoryBudgetTest {
+
+    private final List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+    private Thread acquire(ChunkMemoryBudget budget, String name, long bytes) throws InterruptedException {
+        int waiting = budget.getWaiting();
+        Thread thread = Thread.ofVirtual().start(() -> {
+            try {
+                budget.acquire(bytes);
+                order.add(name);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (budget.getWaiting() == waiting && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(waiting + 1, budget.getWaiting());
+        return thread;
+    }
+
+    @Test
+    void testUnlimitedBudgetDoesNotBlock() throws InterruptedException {
+        ChunkMemoryBudget budget = new ChunkMemoryBudget(0);
+
+        assertEquals(100, budget.acquire(100));
+        assertEquals(200, budget.acquire(200));
+        assertEquals(300, budget.getUsed());
+        budget.release(100);
+
+        assertEquals(200, budget.getUsed());
+        assertEquals(300, budget.getPeak());
+        assertEquals(0, budget.getWaits());
+    }
+
+    @Test
+    void testRequestLargerThanBudgetReservesWholeBudget() throws InterruptedException {
+        ChunkMemoryBudget budget = new ChunkMemoryBudget(100);
+
+        assertEquals(100, budget.acquire(1000));
+        assertEquals(100, budget.getUsed());
+    }
+
+    @Test
+    void testRequestWaitsWhileBudgetIsUsedUp() throws InterruptedException {
+        ChunkMemoryBudget budget = new ChunkMemoryBudget(100);
+        assertEquals(80, budget.acquire(80));
+
+        Thread thread = acquire(budget, "waiting", 50);
+        assertFalse(thread.join(Duration.ofMillis(50)));
+
+        budget.release(80);
+
+        assertTrue(thread.join(Duration.ofSeconds(10)));
+        assertEquals(List.of("waiting"), order);
+        assertEquals(50, budget.getUsed());
+        assertEquals(80, budget.getPeak());
+        assertEquals(1, budget.getWaits());
+        assertEquals(0, budget.getWaiting());
+    }
+
+    @Test
+    void testRequestsAreGrantedInOrder() throws InterruptedException {
+        ChunkMemoryBudget budget = new ChunkMemoryBudget(100);
+        budget.acquire(80);
+
+        Thread large = acquire(budget, "large", 50);
+        Thread small = acquire(budget, "small", 10);
+        assertFalse(small.join(Duration.ofMillis(50)));
+
+        budget.release(80);
+
+        assertTrue(large.join(Duration.ofSeconds(10)));
+        assertTrue(small.join(Duration.ofSeconds(10)));
+        assertEquals(List.of("large", "small"), order);
+        assertEquals(60, budget.getUsed());
+    }
+}
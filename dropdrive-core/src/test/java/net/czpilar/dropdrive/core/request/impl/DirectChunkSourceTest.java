@@ -0,0 +1,97 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import net.czpilar.dropdrive.core.request.ChunkBufferPool;
+import net.czpilar.dropdrive.core.request.IChunkSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author David Pilar (david@czpilar.net)
+ */
+class DirectChunkSourceTest {
+
+    private static final int SIZE = 10000;
+
+    private Path testFile;
+    private byte[] content;
+
+    @BeforeEach
+    void before() throws IOException {
+        testFile = Files.createTempFile("dropdrive-direct-", ".bin");
+        content = new byte[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            content[i] = (byte) i;
+        }
+        Files.write(testFile, content);
+    }
+
+    @AfterEach
+    void after() throws IOException {
+        Files.deleteIfExists(testFile);
+    }
+
+    @Test
+    void testSize() throws IOException {
+        try (IChunkSource source = DirectChunkSource.open(testFile)) {
+            assertEquals(SIZE, source.size());
+        }
+    }
+
+    @Test
+    void testOpenUnalignedChunk() throws IOException {
+        try (IChunkSource source = DirectChunkSource.open(testFile);
+             InputStream stream = source.openChunk(4000, 5000)) {
+            assertArrayEquals(Arrays.copyOfRange(content, 4000, 9000), stream.readAllBytes());
+        }
+    }
+
+    @Test
+    void testOpenLastChunk() throws IOException {
+        try (IChunkSource source = DirectChunkSource.open(testFile);
+             InputStream stream = source.openChunk(8192, SIZE - 8192)) {
+            assertArrayEquals(Arrays.copyOfRange(content, 8192, SIZE), stream.readAllBytes());
+        }
+    }
+
+    @Test
+    void testReadChunk() throws IOException {
+        try (IChunkSource source = DirectChunkSource.open(testFile);
+             Arena arena = Arena.ofConfined()) {
+            MemorySegment segment = arena.allocate(3000);
+            source.readChunk(7000, segment);
+            assertArrayEquals(Arrays.copyOfRange(content, 7000, SIZE), segment.toArray(ValueLayout.JAVA_BYTE));
+        }
+    }
+
+    @Test
+    void testReadAlignedChunkIntoAlignedSegment() throws IOException {
+        try (ChunkBufferPool bufferPool = new ChunkBufferPool(Long.MAX_VALUE);
+             IChunkSource source = DirectChunkSource.open(testFile, bufferPool);
+             Arena arena = Arena.ofConfined()) {
+            MemorySegment segment = arena.allocate(SIZE - 4096, ChunkBufferPool.ALIGNMENT);
+            source.readChunk(4096, segment);
+            assertArrayEquals(Arrays.copyOfRange(content, 4096, SIZE), segment.toArray(ValueLayout.JAVA_BYTE));
+        }
+    }
+
+    @Test
+    void testReadChunkBeyondEndOfFile() throws IOException {
+        try (IChunkSource source = DirectChunkSource.open(testFile);
+             Arena arena = Arena.ofConfined()) {
+            assertThrows(EOFException.class, () -> source.readChunk(9000, arena.allocate(2000)));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author David Pilar (david@czpilar.net)
+ */
+class FileChannelChunkSourceTest {
+
+    private Path testFile;
+
+    @BeforeEach
+    void before() throws IOException {
+        testFile = Files.createTempFile("dropdrive-chunk-source-", ".txt");
+        Files.writeString(testFile, "0123456789", StandardCharsets.UTF_8);
+    }
+
+    @AfterEach
+    void after() throws IOException {
+        Files.deleteIfExists(testFile);
+    }
+
+    @Test
+    void testSize() throws IOException {
+        try (FileChannelChunkSource source = new FileChannelChunkSource(testFile)) {
+            assertEquals(10, source.size());
+        }
+    }
+
+    @Test
+    void testOpenChunk() throws IOException {
+        try (FileChannelChunkSource source = new FileChannelChunkSource(testFile);
+             InputStream stream = source.openChunk(3, 4)) {
+            assertEquals("3456", new String(stream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testOpenChunkRepeatedly() throws IOException {
+        try (FileChannelChunkSource source = new FileChannelChunkSource(testFile)) {
+            try (InputStream stream = source.openChunk(5, 5)) {
+                assertEquals("56789", new String(stream.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            try (InputStream stream = source.openChunk(5, 5)) {
+                assertEquals('5', stream.read());
+                assertEquals(4, stream.available());
+            }
+        }
+    }
+
+    @Test
+    void testReadChunk() throws IOException {
+        try (FileChannelChunkSource source = new FileChannelChunkSource(testFile);
+             Arena arena = Arena.ofConfined()) {
+            MemorySegment segment = arena.allocate(4);
+            source.readChunk(3, segment);
+            assertEquals("3456", new String(segment.toArray(ValueLayout.JAVA_BYTE), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testReadChunkBeyondEndOfFile() throws IOException {
+        try (FileChannelChunkSource source = new FileChannelChunkSource(testFile);
+             Arena arena = Arena.ofConfined()) {
+            assertThrows(EOFException.class, () -> source.readChunk(8, arena.allocate(4)));
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import net.czpilar.dropdrive.core.request.ChunkBufferPool;
+import net.czpilar.dropdrive.core.request.IChunkSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author David Pilar (david@czpilar.net)
+ */
+class ReadAheadChunkSourceTest {
+
+    private Path testFile;
+
+    @BeforeEach
+    void before() throws IOException {
+        testFile = Files.createTempFile("dropdrive-read-ahead-", ".txt");
+        Files.writeString(testFile, "0123456789", StandardCharsets.UTF_8);
+    }
+
+    @AfterEach
+    void after() throws IOException {
+        Files.deleteIfExists(testFile);
+    }
+
+    private String read(ReadAheadChunkSource source, long offset, long length) throws IOException {
+        try (InputStream stream = source.openChunk(offset, length)) {
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void testSequentialChunks() throws IOException {
+        try (ReadAheadChunkSource source = new ReadAheadChunkSource(new FileChannelChunkSource(testFile), 2)) {
+            assertEquals(10, source.size());
+            assertEquals("0123", read(source, 0, 4));
+            assertEquals("4567", read(source, 4, 4));
+            assertEquals("89", read(source, 8, 2));
+        }
+    }
+
+    @Test
+    void testRepeatedChunk() throws IOException {
+        try (ReadAheadChunkSource source = new ReadAheadChunkSource(new FileChannelChunkSource(testFile), 1)) {
+            assertEquals("0123", read(source, 0, 4));
+            assertEquals("0123", read(source, 0, 4));
+            assertEquals("4567", read(source, 4, 4));
+        }
+    }
+
+    @Test
+    void testChangedChunkSize() throws IOException {
+        try (ReadAheadChunkSource source = new ReadAheadChunkSource(new FileChannelChunkSource(testFile), 2)) {
+            assertEquals("01", read(source, 0, 2));
+            assertEquals("23456", read(source, 2, 5));
+            assertEquals("789", read(source, 7, 3));
+        }
+    }
+
+    @Test
+    void testBuffersReserveMemoryBudget() throws IOException {
+        ChunkMemoryBudget budget = new ChunkMemoryBudget(100);
+        try (ReadAheadChunkSource source = new ReadAheadChunkSource(new FileChannelChunkSource(testFile), 2, budget)) {
+            assertEquals("0123", read(source, 0, 4));
+            assertEquals("4567", read(source, 4, 4));
+            assertEquals("89", read(source, 8, 2));
+        }
+
+        assertEquals(0, budget.getUsed());
+        assertTrue(budget.getPeak() >= 4 && budget.getPeak() <= 10, "Unexpected peak " + budget.getPeak());
+    }
+
+    @Test
+    void testBuffersAreReusedFromSharedPool() throws IOException {
+        try (ChunkBufferPool pool = new ChunkBufferPool(Long.MAX_VALUE)) {
+            for (int i = 0; i < 2; i++) {
+                try (ReadAheadChunkSource source = new ReadAheadChunkSource(new FileChannelChunkSource(testFile), 1, null, pool)) {
+                    assertEquals("01234", read(source, 0, 5));
+                    assertEquals("56789", read(source, 5, 5));
+                }
+            }
+
+            assertEquals(4, pool.getAllocations() + pool.getReuses());
+            assertTrue(pool.getReuses() >= 2, "Buffers of the first source were not reused");
+            assertEquals(pool.getAllocated(), pool.getPooled());
+        }
+    }
+
+    private static void awaitUsed(ChunkMemoryBudget budget, long max) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (budget.getUsed() > max && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(budget.getUsed() <= max, "Unexpected used budget " + budget.getUsed());
+    }
+
+    @Test
+    void testBufferOfChunkReleasedWhileReadIsRecycledByReadTask() throws Exception {
+        ChunkMemoryBudget budget = new ChunkMemoryBudget(100);
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        IChunkSource delegate = new FileChannelChunkSource(testFile) {
+            @Override
+            public void readChunk(long offset, MemorySegment target) throws IOException {
+                if (offset == 4) {
+                    reading.countDown();
+                    try {
+                        proceed.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.readChunk(offset, target);
+            }
+        };
+        try (ReadAheadChunkSource source = new ReadAheadChunkSource(delegate, 1, budget);
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            assertEquals("0123", read(source, 0, 4));
+            assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+            // chunk read ahead at offset 4 does not match changed chunk size and is released while being read
+            Future<String> next = executor.submit(() -> read(source, 0, 2));
+            awaitUsed(budget, 4);
+            proceed.countDown();
+
+            assertEquals("01", next.get(5, TimeUnit.SECONDS));
+            // only current chunk and chunk read ahead after it are held
+            awaitUsed(budget, 4);
+        }
+
+        assertEquals(0, budget.getUsed());
+    }
+}
@@ -0,0 +1,47 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import net.czpilar.dropdrive.core.request.IBandwidthLimiter;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author David Pilar (david@czpilar.net)
+ */
+class ThrottledInputStreamTest {
+
+    @Test
+    void testReadBytesAreAcquiredInBlocks() throws IOException, InterruptedException {
+        IBandwidthLimiter bandwidthLimiter = mock(IBandwidthLimiter.class);
+        byte[] data = new byte[ThrottledInputStream.MAX_READ + 100];
+
+        byte[] buffer = new byte[data.length];
+
+        try (InputStream stream = new ThrottledInputStream(new ByteArrayInputStream(data), bandwidthLimiter)) {
+            assertEquals(ThrottledInputStream.MAX_READ, stream.read(buffer, 0, buffer.length));
+            assertEquals(100, stream.read(buffer, ThrottledInputStream.MAX_READ, 100));
+            assertEquals(-1, stream.read(buffer, 0, buffer.length));
+        }
+
+        verify(bandwidthLimiter).acquire(ThrottledInputStream.MAX_READ);
+        verify(bandwidthLimiter).acquire(100);
+        verifyNoMoreInteractions(bandwidthLimiter);
+    }
+
+    @Test
+    void testInterruptedWaitingThrowsException() throws InterruptedException {
+        IBandwidthLimiter bandwidthLimiter = mock(IBandwidthLimiter.class);
+        doThrow(InterruptedException.class).when(bandwidthLimiter).acquire(anyLong());
+
+        InputStream stream = new ThrottledInputStream(new ByteArrayInputStream(new byte[10]), bandwidthLimiter);
+
+        assertThrows(InterruptedIOException.class, stream::read);
+        assertTrue(Thread.interrupted());
+    }
+}
@@ -0,0 +1,134 @@
+package net.czpilar.dropdrive.core.request.impl;
+
+import net.czpilar.dropdrive.core.exception.DropDriveException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author David Pilar (david@czpilar.net)
+ */
+class TokenBucketBandwidthLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    private TokenBucketBandwidthLimiter createLimiter(long limit, long burst, String schedule, String time) {
+        Clock clock = Clock.fixed(Instant.parse("2026-01-01T" + time + ":00Z"), ZoneOffset.UTC);
+        return new TokenBucketBandwidthLimiter(limit, burst, schedule, clock, nanoTime::get);
+    }
+
+    @Test
+    void testUnlimitedBandwidthDoesNotWait() {
+        TokenBucketBandwidthLimiter limiter = createLimiter(0, 0, "", "12:00");
+
+        assertEquals(0, limiter.reserve(Long.MAX_VALUE / 2));
+        assertEquals(0, limiter.getLimit());
+        assertFalse(limiter.isLimited());
+    }
+
+    @Test
+    void testLimitSetAtRuntimeAppliesToNextAcquire() throws InterruptedException {
+        TokenBucketBandwidthLimiter limiter = createLimiter(0, 0, "", "12:00");
+        limiter.acquire(Long.MAX_VALUE / 2);
+
+        limiter.setLimit(1000);
+
+        assertTrue(limiter.isLimited());
+        assertEquals(0, limiter.reserve(1000));
+        assertEquals(SECOND, limiter.reserve(1000));
+    }
+
+    @Test
+    void testBandwidthIsLimitedByDefaultLimitOrSchedule() {
+        assertTrue(createLimiter(1000, 0, "", "12:00").isLimited());
+        assertTrue(createLimiter(0, 0, "08:00-10:00=1000", "12:00").isLimited());
+        assertFalse(createLimiter(0, 0, "08:00-10:00=0", "12:00").isLimited());
+    }
+
+    @Test
+    void testBurstIsAllowedAndExceedingBytesWait() {
+        TokenBucketBandwidthLimiter limiter = createLimiter(1000, 500, "", "12:00");
+
+        assertEquals(0, limiter.reserve(500));
+        assertEquals(SECOND / 2, limiter.reserve(500));
+        assertEquals(SECOND, limiter.reserve(500));
+    }
+
+    @Test
+    void testBucketIsRefilledUpToBurst() {
+        TokenBucketBandwidthLimiter limiter = createLimiter(1000, 0, "", "12:00");
+
+        assertEquals(0, limiter.reserve(1000));
+        nanoTime.addAndGet(10 * SECOND);
+        assertEquals(0, limiter.reserve(1000));
+        assertEquals(SECOND / 10, limiter.reserve(100));
+    }
+
+    @Test
+    void testAverageRateStaysAtLimit() {
+        TokenBucketBandwidthLimiter limiter = createLimiter(1000000, 65536, "", "12:00");
+
+        long uploaded = 0;
+        while (uploaded < 100000000) {
+            nanoTime.addAndGet(limiter.reserve(65536));
+            uploaded += 65536;
+        }
+
+        double rate = uploaded * (double) SECOND / nanoTime.get();
+        assertEquals(1000000, rate, 1000000 * 0.01);
+    }
+
+    @Test
+    void testLimitCanBeChangedAtRuntime() {
+        TokenBucketBandwidthLimiter limiter = createLimiter(1000, 1000, "", "12:00");
+
+        assertEquals(0, limiter.reserve(1000));
+        limiter.setLimit(2000);
+
+        assertEquals(2000, limiter.getLimit());
+        assertEquals(SECOND / 2, limiter.reserve(1000));
+    }
+
+    @Test
+    void testScheduledLimitIsApplied() {
+        TokenBucketBandwidthLimiter limiter = createLimiter(1000, 0, "08:00-18:00=500, 18:00-20:00=0", "12:00");
+
+        assertEquals(500, limiter.getLimit());
+    }
+
+    @Test
+    void testScheduledUnlimitedWindowIsApplied() {
+        TokenBucketBandwidthLimiter limiter = createLimiter(1000, 0, "08:00-18:00=500,18:00-20:00=0", "19:00");
+
+        assertEquals(0, limiter.getLimit());
+    }
+
+    @Test
+    void testScheduledWindowOverMidnightIsApplied() {
+        TokenBucketBandwidthLimiter limiter = createLimiter(1000, 0, "22:00-06:00=300", "01:30");
+
+        assertEquals(300, limiter.getLimit());
+    }
+
+    @Test
+    void testDefaultLimitIsAppliedOutsideOfSchedule() {
+        TokenBucketBandwidthLimiter limiter = createLimiter(1000, 0, "08:00-18:00=500", "18:00");
+
+        assertEquals(1000, limiter.getLimit());
+    }
+
+    @Test
+    void testInvalidScheduleThrowsException() {
+        assertThrows(DropDriveException.class, () -> createLimiter(1000, 0, "08:00=500", "12:00"));
+        assertThrows(DropDriveException.class, () -> createLimiter(1000, 0, "8am-18:00=500", "12:00"));
+        assertThrows(DropDriveException.class, () -> createLimiter(1000, 0, "08:00-18:00=fast", "12:00"));
+    }
+}
@@ -7,6 +7,7 @@ import com.dropbox.core.v2.files.FileMetadata;
 import com.dropbox.core.v2.files.FolderMetadata;
 import com.dropbox.core.v2.files.Metadata;
 import net.czpilar.dropdrive.core.exception.FileHandleException;
+import net.czpilar.dropdrive.core.request.impl.AimdConcurrencyLimiter;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -34,6 +35,7 @@ class AbstractFileServiceTest {
         autoCloseable = MockitoAnnotations.openMocks(this);
 
         when(service.getDbxClient()).thenReturn(dbxClient);
+        when(service.getConcurrencyLimiter()).thenReturn(new AimdConcurrencyLimiter());
         when(dbxClient.files()).thenReturn(files);
     }
 
@@ -111,6 +113,7 @@ class AbstractFileServiceTest {
         assertNull(result);
 
         verify(service).getDbxClient();
+        verify(service).getConcurrencyLimiter();
         verify(service).findFolder("filename", parent);
         verify(service).getPath("filename", parent);
         verify(dbxClient).files();
@@ -134,6 +137,7 @@ class AbstractFileServiceTest {
         assertNull(result);
 
         verify(service).getDbxClient();
+        verify(service).getConcurrencyLimiter();
         verify(service).findFolder("filename", parent);
         verify(service).getPath("filename", parent);
         verify(dbxClient).files();
@@ -159,6 +163,7 @@ class AbstractFileServiceTest {
         assertEquals(entry, result);
 
         verify(service).getDbxClient();
+        verify(service).getConcurrencyLimiter();
         verify(service).findFolder("filename", parent);
         verify(service).getPath("filename", parent);
         verify(dbxClient).files();
@@ -180,6 +185,7 @@ class AbstractFileServiceTest {
         assertThrows(FileHandleException.class, () -> service.findFolder("filename", parent));
 
         verify(service).getDbxClient();
+        verify(service).getConcurrencyLimiter();
         verify(service).findFolder("filename", parent);
         verify(service).getPath("filename", parent);
         verify(dbxClient).files();
@@ -202,6 +208,7 @@ class AbstractFileServiceTest {
         assertNull(result);
 
         verify(service).getDbxClient();
+        verify(service).getConcurrencyLimiter();
         verify(service).findFile("filename", parent);
         verify(service).getPath("filename", parent);
         verify(dbxClient).files();
@@ -225,6 +232,7 @@ class AbstractFileServiceTest {
         assertNull(result);
 
         verify(service).getDbxClient();
+        verify(service).getConcurrencyLimiter();
         verify(service).findFile("filename", parent);
         verify(service).getPath("filename", parent);
         verify(dbxClient).files();
@@ -250,6 +258,7 @@ class AbstractFileServiceTest {
         assertEquals(entry, result);
 
         verify(service).getDbxClient();
+        verify(service).getConcurrencyLimiter();
         verify(service).findFile("filename", parent);
         verify(service).getPath("filename", parent);
         verify(dbxClient).files();
@@ -271,6 +280,7 @@ class AbstractFileServiceTest {
         assertThrows(FileHandleException.class, () -> service.findFile("filename", parent));
 
         verify(service).getDbxClient();
+        verify(service).getConcurrencyLimiter();
         verify(service).findFile("filename", parent);
         verify(service).getPath("filename", parent);
         verify(dbxClient).files();
@@ -0,0 +1,166 @@
+package net.czpilar.dropdrive.core.service.impl;
+
+import com.dropbox.core.v2.files.FolderMetadata;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author David Pilar (david@czpilar.net)
+ */
+class DirectoryCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private static Function<String, FolderMetadata> counting(AtomicInteger loads, FolderMetadata directory) {
+        return _ -> {
+            loads.incrementAndGet();
+            return directory;
+        };
+    }
+
+    private void advance(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    void testFoundDirectoryIsCachedForTtl() {
+        DirectoryCache cache = new DirectoryCache(10, 1000, 100, now::get);
+        FolderMetadata directory = mock(FolderMetadata.class);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertSame(directory, cache.find("/Backups/2026", counting(loads, directory)));
+        advance(999);
+        assertSame(directory, cache.find("/backups/2026", counting(loads, directory)));
+        assertEquals(1, loads.get());
+
+        advance(1);
+        assertSame(directory, cache.find("/backups/2026", counting(loads, directory)));
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void testMissingDirectoryIsCachedForMissTtl() {
+        DirectoryCache cache = new DirectoryCache(10, 1000, 100, now::get);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(cache.find("/missing", counting(loads, null)));
+        advance(50);
+        assertNull(cache.find("/missing", counting(loads, null)));
+        assertEquals(1, loads.get());
+
+        advance(50);
+        assertNull(cache.find("/missing", counting(loads, null)));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testMissingDirectoryIsNotCachedWithZeroMissTtl() {
+        DirectoryCache cache = new DirectoryCache(10, 1000, 0, now::get);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.find("/missing", counting(loads, null));
+        cache.find("/missing", counting(loads, null));
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    void testLeastRecentlyUsedPathIsEvicted() {
+        DirectoryCache cache = new DirectoryCache(2, 1000, 100, now::get);
+        FolderMetadata directory = mock(FolderMetadata.class);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.find("/a", counting(loads, directory));
+        cache.find("/b", counting(loads, directory));
+        cache.find("/a", counting(loads, directory));
+        cache.find("/c", counting(loads, directory));
+        assertEquals(3, loads.get());
+        assertEquals(2, cache.getSize());
+
+        cache.find("/a", counting(loads, directory));
+        assertEquals(3, loads.get());
+        cache.find("/b", counting(loads, directory));
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void testGetCountsOnlyHits() {
+        DirectoryCache cache = new DirectoryCache(10, 1000, 100, now::get);
+        FolderMetadata directory = mock(FolderMetadata.class);
+
+        assertNull(cache.get("/a"));
+        cache.put("/a", directory);
+        assertSame(directory, cache.get("/a"));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    void testPutReplacesCachedMiss() {
+        DirectoryCache cache = new DirectoryCache(10, 1000, 100, now::get);
+        FolderMetadata directory = mock(FolderMetadata.class);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(cache.find("/created", counting(loads, null)));
+        cache.put("/created", directory);
+
+        assertSame(directory, cache.find("/created", counting(loads, null)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testInvalidateRemovesPathAndDescendants() {
+        DirectoryCache cache = new DirectoryCache(10, 1000, 100, now::get);
+        FolderMetadata directory = mock(FolderMetadata.class);
+        cache.put("/a", directory);
+        cache.put("/a/b", directory);
+        cache.put("/ab", directory);
+
+        cache.invalidate("/A");
+
+        assertEquals(1, cache.getSize());
+        AtomicInteger loads = new AtomicInteger();
+        assertSame(directory, cache.find("/ab", counting(loads, null)));
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    void testResultOfLookupIsNotCachedWhenCacheChangedDuringLookup() {
+        DirectoryCache cache = new DirectoryCache(10, 1000, 100, now::get);
+        FolderMetadata directory = mock(FolderMetadata.class);
+
+        assertNull(cache.find("/a", _ -> {
+            cache.put("/a", directory);
+            return null;
+        }));
+
+        AtomicInteger loads = new AtomicInteger();
+        assertSame(directory, cache.find("/a", counting(loads, null)));
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    void testDisabledCacheAlwaysLoads() {
+        DirectoryCache cache = new DirectoryCache(0, 1000, 100, now::get);
+        FolderMetadata directory = mock(FolderMetadata.class);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.put("/a", directory);
+        cache.find("/a", counting(loads, directory));
+        cache.find("/a", counting(loads, directory));
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.getSize());
+    }
+}
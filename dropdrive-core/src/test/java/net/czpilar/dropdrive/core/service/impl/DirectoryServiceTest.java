@@ -2,16 +2,19 @@ package net.czpilar.dropdrive.core.service.impl;
 
 import com.dropbox.core.DbxException;
 import com.dropbox.core.v2.DbxClientV2;
-import com.dropbox.core.v2.files.CreateFolderResult;
-import com.dropbox.core.v2.files.DbxUserFilesRequests;
-import com.dropbox.core.v2.files.FolderMetadata;
+import com.dropbox.core.v2.files.*;
 import net.czpilar.dropdrive.core.exception.DirectoryHandleException;
+import net.czpilar.dropdrive.core.request.impl.AimdConcurrencyLimiter;
+import net.czpilar.dropdrive.core.service.IDirectoryCache;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.List;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -31,6 +34,9 @@ class DirectoryServiceTest {
     @Mock
     private DbxUserFilesRequests files;
 
+    @Mock
+    private IDirectoryCache directoryCache;
+
     private AutoCloseable autoCloseable;
 
     @BeforeEach
@@ -38,6 +44,8 @@ class DirectoryServiceTest {
         autoCloseable = MockitoAnnotations.openMocks(this);
 
         when(serviceMock.getDbxClient()).thenReturn(dbxClient);
+        when(serviceMock.getConcurrencyLimiter()).thenReturn(new AimdConcurrencyLimiter());
+        when(serviceMock.getDirectoryCache()).thenReturn(directoryCache);
         when(dbxClient.files()).thenReturn(files);
     }
 
@@ -70,9 +78,12 @@ class DirectoryServiceTest {
         verify(serviceMock).createOneDirectory(dirname, null);
         verify(serviceMock).getPath(dirname, null);
         verify(serviceMock).getDbxClient();
+        verify(serviceMock).getConcurrencyLimiter();
+        verify(serviceMock).getDirectoryCache();
         verify(dbxClient).files();
         verify(files).createFolderV2(dirname);
         verify(createFolderResult).getMetadata();
+        verify(directoryCache).put(dirname, directory);
 
         verifyNoMoreInteractions(serviceMock);
         verifyNoMoreInteractions(dbxClient);
@@ -100,9 +111,12 @@ class DirectoryServiceTest {
         verify(serviceMock).createOneDirectory(dirname, parentDir);
         verify(serviceMock).getPath(dirname, parentDir);
         verify(serviceMock).getDbxClient();
+        verify(serviceMock).getConcurrencyLimiter();
+        verify(serviceMock).getDirectoryCache();
         verify(dbxClient).files();
         verify(files).createFolderV2(dirname);
         verify(createFolderResult).getMetadata();
+        verify(directoryCache).put(dirname, directory);
 
         verifyNoMoreInteractions(serviceMock);
         verifyNoMoreInteractions(dbxClient);
@@ -124,6 +138,7 @@ class DirectoryServiceTest {
         verify(serviceMock).createOneDirectory(dirname, null);
         verify(serviceMock).getPath(dirname, null);
         verify(serviceMock).getDbxClient();
+        verify(serviceMock).getConcurrencyLimiter();
         verify(dbxClient).files();
         verify(files).createFolderV2(dirname);
 
@@ -132,6 +147,82 @@ class DirectoryServiceTest {
         verifyNoInteractions(directory);
     }
 
+    @Test
+    void testCreateOneDirectoryWhereDirectoryWasCreatedMeanwhile() throws DbxException {
+        String dirname = "/test-dirname";
+        FolderMetadata directory = mock(FolderMetadata.class);
+        CreateFolderErrorException e = new CreateFolderErrorException("2/files/create_folder_v2", "request-id", null,
+                CreateFolderError.path(WriteError.conflict(WriteConflictError.FOLDER)));
+
+        when(serviceMock.createOneDirectory(anyString(), any())).thenCallRealMethod();
+        when(serviceMock.getPath(anyString(), any())).thenReturn(dirname);
+        when(serviceMock.findFolder(anyString(), any())).thenReturn(directory);
+        when(files.createFolderV2(anyString())).thenThrow(e);
+
+        FolderMetadata result = serviceMock.createOneDirectory(dirname, null);
+
+        assertEquals(directory, result);
+
+        verify(serviceMock).createOneDirectory(dirname, null);
+        verify(serviceMock).getPath(dirname, null);
+        verify(serviceMock).getDbxClient();
+        verify(serviceMock).getConcurrencyLimiter();
+        verify(serviceMock).getDirectoryCache();
+        verify(serviceMock).findFolder(dirname, null);
+        verify(dbxClient).files();
+        verify(files).createFolderV2(dirname);
+        verify(directoryCache).invalidate(dirname);
+
+        verifyNoMoreInteractions(serviceMock);
+        verifyNoMoreInteractions(dbxClient);
+        verifyNoMoreInteractions(directoryCache);
+        verifyNoInteractions(directory);
+    }
+
+    @Test
+    void testCreateOneDirectoryWhereConflictingEntryIsNotDirectory() throws DbxException {
+        String dirname = "/test-dirname";
+        CreateFolderErrorException e = new CreateFolderErrorException("2/files/create_folder_v2", "request-id", null,
+                CreateFolderError.path(WriteError.conflict(WriteConflictError.FILE)));
+
+        when(serviceMock.createOneDirectory(anyString(), any())).thenCallRealMethod();
+        when(serviceMock.getPath(anyString(), any())).thenReturn(dirname);
+        when(serviceMock.findFolder(anyString(), any())).thenReturn(null);
+        when(files.createFolderV2(anyString())).thenThrow(e);
+
+        assertThrows(DirectoryHandleException.class, () -> serviceMock.createOneDirectory(dirname, null));
+
+        verify(directoryCache).invalidate(dirname);
+        verify(serviceMock).findFolder(dirname, null);
+        verifyNoMoreInteractions(directoryCache);
+    }
+
+    @Test
+    void testFindFolderIsServedFromCache() {
+        String dirname = "test-dirname";
+        FolderMetadata parentDir = mock(FolderMetadata.class);
+        FolderMetadata directory = mock(FolderMetadata.class);
+
+        when(serviceMock.findFolder(anyString(), any(FolderMetadata.class))).thenCallRealMethod();
+        when(serviceMock.getPath(anyString(), any(FolderMetadata.class))).thenReturn("/parent/test-dirname");
+        when(directoryCache.find(anyString(), any())).thenReturn(directory);
+
+        FolderMetadata result = serviceMock.findFolder(dirname, parentDir);
+
+        assertEquals(directory, result);
+
+        verify(serviceMock).findFolder(dirname, parentDir);
+        verify(serviceMock).getPath(dirname, parentDir);
+        verify(serviceMock).getDirectoryCache();
+        verify(directoryCache).find(eq("/parent/test-dirname"), any());
+
+        verifyNoMoreInteractions(serviceMock);
+        verifyNoMoreInteractions(directoryCache);
+        verifyNoInteractions(dbxClient);
+        verifyNoInteractions(parentDir);
+        verifyNoInteractions(directory);
+    }
+
     @Test
     void testFindOrCreateOneDirectoryWhereDirectoryIsFound() {
         FolderMetadata parentDir = mock(FolderMetadata.class);
@@ -311,33 +402,239 @@ class DirectoryServiceTest {
     }
 
     @Test
-    void testFindOrCreateDirectoryWithPathnameAndParentWhereDirnameIsNullAndNextPathnameIsNull() {
-        when(serviceMock.findOrCreateDirectory(anyString(), any(FolderMetadata.class))).thenCallRealMethod();
+    void testFindOrCreateDirectoryWithPathnameAndParentWherePathnameIsNull() {
+        when(serviceMock.findOrCreateDirectory(any(), any())).thenCallRealMethod();
 
         FolderMetadata result = serviceMock.findOrCreateDirectory(null, null);
 
         assertNull(result);
 
         verify(serviceMock).findOrCreateDirectory(null, null);
+        verify(serviceMock).findOrCreateDirectoryByLevels(null, null);
 
         verifyNoMoreInteractions(serviceMock);
     }
 
     @Test
     void testFindOrCreateDirectoryWithPathnameAndParentWherePathnameHasOneDir() {
-        String pathname = "test-dirname";
+        String pathname = "/test-dirname/";
         FolderMetadata parentDir = mock(FolderMetadata.class);
         FolderMetadata directory = mock(FolderMetadata.class);
 
         when(serviceMock.findOrCreateDirectory(anyString(), any(FolderMetadata.class))).thenCallRealMethod();
-        when(serviceMock.findOrCreateOneDirectory(anyString(), any(FolderMetadata.class))).thenReturn(directory);
+        when(serviceMock.findOrCreateDirectoryByLevels(anyString(), any(FolderMetadata.class))).thenReturn(directory);
 
         FolderMetadata result = serviceMock.findOrCreateDirectory(pathname, parentDir);
 
-        assertNotNull(result);
         assertEquals(directory, result);
 
         verify(serviceMock).findOrCreateDirectory(pathname, parentDir);
+        verify(serviceMock).findOrCreateDirectoryByLevels(pathname, parentDir);
+
+        verifyNoMoreInteractions(serviceMock);
+
+        verifyNoInteractions(directory);
+        verifyNoInteractions(parentDir);
+    }
+
+    @Test
+    void testFindOrCreateDirectoryWithPathnameAndParentWhereWholeDirectoryIsFoundOrCreated() {
+        String pathname = "\\test-dirname1\\\\ test-dirname2 /test-dirname3/";
+        FolderMetadata parentDir = mock(FolderMetadata.class);
+        FolderMetadata directory = mock(FolderMetadata.class);
+
+        when(serviceMock.findOrCreateDirectory(anyString(), any(FolderMetadata.class))).thenCallRealMethod();
+        when(serviceMock.findOrCreateWholeDirectory(anyString(), any(FolderMetadata.class))).thenReturn(directory);
+
+        FolderMetadata result = serviceMock.findOrCreateDirectory(pathname, parentDir);
+
+        assertEquals(directory, result);
+
+        verify(serviceMock).findOrCreateDirectory(pathname, parentDir);
+        verify(serviceMock).findOrCreateWholeDirectory("test-dirname1/test-dirname2/test-dirname3", parentDir);
+
+        verifyNoMoreInteractions(serviceMock);
+
+        verifyNoInteractions(directory);
+        verifyNoInteractions(parentDir);
+    }
+
+    @Test
+    void testFindOrCreateDirectoryWithPathnameAndParentWhereWholeDirectoryCannotBeCreated() {
+        String pathname = "test-dirname1/test-dirname2";
+        FolderMetadata parentDir = mock(FolderMetadata.class);
+        FolderMetadata directory = mock(FolderMetadata.class);
+
+        when(serviceMock.findOrCreateDirectory(anyString(), any(FolderMetadata.class))).thenCallRealMethod();
+        when(serviceMock.findOrCreateWholeDirectory(anyString(), any(FolderMetadata.class))).thenReturn(null);
+        when(serviceMock.findOrCreateDirectoryByLevels(anyString(), any(FolderMetadata.class))).thenReturn(directory);
+
+        FolderMetadata result = serviceMock.findOrCreateDirectory(pathname, parentDir);
+
+        assertEquals(directory, result);
+
+        verify(serviceMock).findOrCreateDirectory(pathname, parentDir);
+        verify(serviceMock).findOrCreateWholeDirectory(pathname, parentDir);
+        verify(serviceMock).findOrCreateDirectoryByLevels(pathname, parentDir);
+
+        verifyNoMoreInteractions(serviceMock);
+
+        verifyNoInteractions(directory);
+        verifyNoInteractions(parentDir);
+    }
+
+    @Test
+    void testFindOrCreateWholeDirectoryWhereDirectoryIsCached() {
+        String pathname = "test-dirname1/test-dirname2";
+        FolderMetadata directory = mock(FolderMetadata.class);
+
+        when(serviceMock.findOrCreateWholeDirectory(anyString(), any())).thenCallRealMethod();
+        when(serviceMock.getPath(anyString(), any())).thenReturn("/" + pathname);
+        when(directoryCache.get(anyString())).thenReturn(directory);
+
+        FolderMetadata result = serviceMock.findOrCreateWholeDirectory(pathname, null);
+
+        assertEquals(directory, result);
+
+        verify(serviceMock).findOrCreateWholeDirectory(pathname, null);
+        verify(serviceMock).getPath(pathname, null);
+        verify(serviceMock).getDirectoryCache();
+        verify(directoryCache).get("/" + pathname);
+
+        verifyNoMoreInteractions(serviceMock);
+        verifyNoMoreInteractions(directoryCache);
+        verifyNoInteractions(dbxClient);
+    }
+
+    @Test
+    void testFindOrCreateWholeDirectoryWhereDirectoryIsCreatedWithoutLookingItUp() throws DbxException {
+        String pathname = "test-dirname1/test-dirname2";
+        FolderMetadata directory = mock(FolderMetadata.class);
+        CreateFolderResult createFolderResult = mock(CreateFolderResult.class);
+        when(createFolderResult.getMetadata()).thenReturn(directory);
+
+        when(serviceMock.findOrCreateWholeDirectory(anyString(), any())).thenCallRealMethod();
+        when(serviceMock.getPath(anyString(), any())).thenReturn("/" + pathname);
+        when(files.createFolderV2(anyString())).thenReturn(createFolderResult);
+
+        FolderMetadata result = serviceMock.findOrCreateWholeDirectory(pathname, null);
+
+        assertEquals(directory, result);
+
+        verify(files).createFolderV2("/" + pathname);
+        verify(files, never()).getMetadata(anyString());
+        verify(serviceMock, never()).findFolder(anyString(), any());
+        verify(directoryCache).get("/" + pathname);
+        verify(directoryCache).put("/" + pathname, directory);
+
+        verifyNoMoreInteractions(directoryCache);
+    }
+
+    @Test
+    void testFindOrCreateWholeDirectoryWhereDirectoryExists() throws DbxException {
+        String pathname = "test-dirname1/test-dirname2";
+        FolderMetadata directory = mock(FolderMetadata.class);
+        CreateFolderErrorException e = new CreateFolderErrorException("2/files/create_folder_v2", "request-id", null,
+                CreateFolderError.path(WriteError.conflict(WriteConflictError.FOLDER)));
+
+        when(serviceMock.findOrCreateWholeDirectory(anyString(), any())).thenCallRealMethod();
+        when(serviceMock.getPath(anyString(), any())).thenReturn("/" + pathname);
+        when(serviceMock.findFolder(anyString(), any())).thenReturn(directory);
+        when(files.createFolderV2(anyString())).thenThrow(e);
+
+        FolderMetadata result = serviceMock.findOrCreateWholeDirectory(pathname, null);
+
+        assertEquals(directory, result);
+
+        verify(files).createFolderV2("/" + pathname);
+        verify(serviceMock).findFolder(pathname, null);
+        verify(serviceMock, never()).findOrCreateDirectoryByLevels(anyString(), any());
+        verify(directoryCache).get("/" + pathname);
+        verify(directoryCache).invalidate("/" + pathname);
+
+        verifyNoMoreInteractions(directoryCache);
+    }
+
+    @Test
+    void testFindOrCreateWholeDirectoryWhereFileIsOnPath() throws DbxException {
+        String pathname = "test-dirname1/test-dirname2";
+        CreateFolderErrorException e = new CreateFolderErrorException("2/files/create_folder_v2", "request-id", null,
+                CreateFolderError.path(WriteError.conflict(WriteConflictError.FILE)));
+
+        when(serviceMock.findOrCreateWholeDirectory(anyString(), any())).thenCallRealMethod();
+        when(serviceMock.getPath(anyString(), any())).thenReturn("/" + pathname);
+        when(files.createFolderV2(anyString())).thenThrow(e);
+
+        assertNull(serviceMock.findOrCreateWholeDirectory(pathname, null));
+
+        verify(files).createFolderV2("/" + pathname);
+        verify(serviceMock, never()).findFolder(anyString(), any());
+        verify(directoryCache).get("/" + pathname);
+
+        verifyNoMoreInteractions(directoryCache);
+    }
+
+    @Test
+    void testFindOrCreateWholeDirectoryWhereDirectoryIsCachedAsMissing() throws DbxException {
+        String pathname = "test-dirname1/test-dirname2";
+        FolderMetadata directory = mock(FolderMetadata.class);
+        CreateFolderResult createFolderResult = mock(CreateFolderResult.class);
+        when(createFolderResult.getMetadata()).thenReturn(directory);
+
+        when(serviceMock.findOrCreateWholeDirectory(anyString(), any())).thenCallRealMethod();
+        when(serviceMock.getPath(anyString(), any())).thenReturn("/" + pathname);
+        when(files.createFolderV2(anyString())).thenReturn(createFolderResult);
+
+        assertEquals(directory, serviceMock.findOrCreateWholeDirectory(pathname, null));
+
+        verify(files).createFolderV2("/" + pathname);
+        verify(directoryCache, never()).find(anyString(), any());
+    }
+
+    @Test
+    void testFindOrCreateWholeDirectoryWhereDbxExceptionWasThrown() throws DbxException {
+        String pathname = "test-dirname1/test-dirname2";
+
+        when(serviceMock.findOrCreateWholeDirectory(anyString(), any())).thenCallRealMethod();
+        when(serviceMock.getPath(anyString(), any())).thenReturn("/" + pathname);
+        when(files.createFolderV2(anyString())).thenThrow(DbxException.class);
+
+        assertThrows(DirectoryHandleException.class, () -> serviceMock.findOrCreateWholeDirectory(pathname, null));
+
+        verify(files).createFolderV2("/" + pathname);
+        verify(directoryCache).get("/" + pathname);
+
+        verifyNoMoreInteractions(directoryCache);
+    }
+
+    @Test
+    void testFindOrCreateDirectoryByLevelsWhereDirnameIsNullAndNextPathnameIsNull() {
+        when(serviceMock.findOrCreateDirectoryByLevels(anyString(), any(FolderMetadata.class))).thenCallRealMethod();
+
+        FolderMetadata result = serviceMock.findOrCreateDirectoryByLevels(null, null);
+
+        assertNull(result);
+
+        verify(serviceMock).findOrCreateDirectoryByLevels(null, null);
+
+        verifyNoMoreInteractions(serviceMock);
+    }
+
+    @Test
+    void testFindOrCreateDirectoryByLevelsWherePathnameHasOneDir() {
+        String pathname = "test-dirname";
+        FolderMetadata parentDir = mock(FolderMetadata.class);
+        FolderMetadata directory = mock(FolderMetadata.class);
+
+        when(serviceMock.findOrCreateDirectoryByLevels(anyString(), any(FolderMetadata.class))).thenCallRealMethod();
+        when(serviceMock.findOrCreateOneDirectory(anyString(), any(FolderMetadata.class))).thenReturn(directory);
+
+        FolderMetadata result = serviceMock.findOrCreateDirectoryByLevels(pathname, parentDir);
+
+        assertNotNull(result);
+        assertEquals(directory, result);
+
+        verify(serviceMock).findOrCreateDirectoryByLevels(pathname, parentDir);
         verify(serviceMock).findOrCreateOneDirectory(pathname, parentDir);
 
         verifyNoMoreInteractions(serviceMock);
@@ -347,7 +644,7 @@ class DirectoryServiceTest {
     }
 
     @Test
-    void testFindOrCreateDirectoryWithPathnameAndParentWherePathnameHasMoreDirs() {
+    void testFindOrCreateDirectoryByLevelsWherePathnameHasMoreDirs() {
         String dirname1 = "test-dirname1";
         String dirname2 = "test-dirname2";
         String dirname3 = "test-dirname3";
@@ -357,17 +654,17 @@ class DirectoryServiceTest {
         FolderMetadata directory2 = mock(FolderMetadata.class);
         FolderMetadata directory3 = mock(FolderMetadata.class);
 
-        when(serviceMock.findOrCreateDirectory(anyString(), any(FolderMetadata.class))).thenCallRealMethod();
+        when(serviceMock.findOrCreateDirectoryByLevels(anyString(), any(FolderMetadata.class))).thenCallRealMethod();
         when(serviceMock.findOrCreateOneDirectory(anyString(), any(FolderMetadata.class))).thenReturn(directory1, directory2, directory3);
 
-        FolderMetadata result = serviceMock.findOrCreateDirectory(pathname, parentDir);
+        FolderMetadata result = serviceMock.findOrCreateDirectoryByLevels(pathname, parentDir);
 
         assertNotNull(result);
         assertEquals(directory3, result);
 
-        verify(serviceMock).findOrCreateDirectory(pathname, parentDir);
-        verify(serviceMock).findOrCreateDirectory(dirname2 + "/" + dirname3, directory1);
-        verify(serviceMock).findOrCreateDirectory(dirname3, directory2);
+        verify(serviceMock).findOrCreateDirectoryByLevels(pathname, parentDir);
+        verify(serviceMock).findOrCreateDirectoryByLevels(dirname2 + "/" + dirname3, directory1);
+        verify(serviceMock).findOrCreateDirectoryByLevels(dirname3, directory2);
         verify(serviceMock).findOrCreateOneDirectory(dirname1, parentDir);
         verify(serviceMock).findOrCreateOneDirectory(dirname2, directory1);
         verify(serviceMock).findOrCreateOneDirectory(dirname3, directory2);
@@ -379,4 +676,188 @@ class DirectoryServiceTest {
         verifyNoInteractions(directory3);
         verifyNoInteractions(parentDir);
     }
+
+    @Test
+    void testFindOrCreateDirectoriesWithPathnames() {
+        List<String> pathnames = List.of("test-dirname");
+        Map<String, FolderMetadata> directories = Map.of("test-dirname", mock(FolderMetadata.class));
+
+        when(serviceMock.findOrCreateDirectories(anyCollection())).thenCallRealMethod();
+        when(serviceMock.findOrCreateDirectories(anyCollection(), any())).thenReturn(directories);
+
+        assertEquals(directories, serviceMock.findOrCreateDirectories(pathnames));
+
+        verify(serviceMock).findOrCreateDirectories(pathnames);
+        verify(serviceMock).findOrCreateDirectories(pathnames, null);
+
+        verifyNoMoreInteractions(serviceMock);
+    }
+
+    @Test
+    void testFindOrCreateDirectoriesWhereDirectoriesAreCachedOrCreated() throws DbxException {
+        FolderMetadata parentDir = new FolderMetadata("parent", "id:parent", "/parent", "/Parent", null, null, null, null, null);
+        FolderMetadata cached = mock(FolderMetadata.class);
+        FolderMetadata created1 = mock(FolderMetadata.class);
+        FolderMetadata created2 = mock(FolderMetadata.class);
+        List<String> pathnames = List.of("a\\b", "cached", "/a/b/", "c", "");
+
+        when(serviceMock.findOrCreateDirectories(anyCollection(), any())).thenCallRealMethod();
+        when(serviceMock.getPath(anyString(), any())).thenCallRealMethod();
+        when(directoryCache.get("/Parent/cached")).thenReturn(cached);
+        when(files.createFolderBatch(anyList())).thenReturn(CreateFolderBatchLaunch.complete(new CreateFolderBatchResult(List.of(
+                CreateFolderBatchResultEntry.success(new CreateFolderEntryResult(created1)),
+                CreateFolderBatchResultEntry.success(new CreateFolderEntryResult(created2))))));
+
+        Map<String, FolderMetadata> result = serviceMock.findOrCreateDirectories(pathnames, parentDir);
+
+        assertEquals(pathnames, List.copyOf(result.keySet()));
+        assertEquals(created1, result.get("a\\b"));
+        assertEquals(cached, result.get("cached"));
+        assertEquals(created1, result.get("/a/b/"));
+        assertEquals(created2, result.get("c"));
+        assertEquals(parentDir, result.get(""));
+
+        verify(files).createFolderBatch(List.of("/Parent/a/b", "/Parent/c"));
+        verify(directoryCache).put("/Parent/a/b", created1);
+        verify(directoryCache).put("/Parent/c", created2);
+        verify(serviceMock, never()).findOrCreateDirectoryByLevels(anyString(), any());
+    }
+
+    @Test
+    void testFindOrCreateDirectoriesWhereBatchIsPolled() throws DbxException {
+        FolderMetadata created = mock(FolderMetadata.class);
+        CreateFolderBatchResult batchResult = new CreateFolderBatchResult(List.of(
+                CreateFolderBatchResultEntry.success(new CreateFolderEntryResult(created))));
+
+        when(serviceMock.findOrCreateDirectories(anyCollection(), any())).thenCallRealMethod();
+        when(serviceMock.getPath(anyString(), any())).thenCallRealMethod();
+        when(files.createFolderBatch(anyList())).thenReturn(CreateFolderBatchLaunch.asyncJobId("job-id"));
+        when(files.createFolderBatchCheck(anyString())).thenReturn(CreateFolderBatchJobStatus.IN_PROGRESS,
+                CreateFolderBatchJobStatus.complete(batchResult));
+
+        Map<String, FolderMetadata> result = serviceMock.findOrCreateDirectories(List.of("a"), null);
+
+        assertEquals(Map.of("a", created), result);
+
+        verify(files).createFolderBatch(List.of("/a"));
+        verify(files, times(2)).createFolderBatchCheck("job-id");
+    }
+
+    @Test
+    void testFindOrCreateDirectoriesWhereBatchFailed() throws DbxException {
+        when(serviceMock.findOrCreateDirectories(anyCollection(), any())).thenCallRealMethod();
+        when(serviceMock.getPath(anyString(), any())).thenCallRealMethod();
+        when(files.createFolderBatch(anyList())).thenReturn(CreateFolderBatchLaunch.asyncJobId("job-id"));
+        when(files.createFolderBatchCheck(anyString())).thenReturn(CreateFolderBatchJobStatus.failed(CreateFolderBatchError.TOO_MANY_FILES));
+
+        assertThrows(DirectoryHandleException.class, () -> serviceMock.findOrCreateDirectories(List.of("a"), null));
+
+        verify(files).createFolderBatchCheck("job-id");
+    }
+
+    @Test
+    void testFindOrCreateDirectoriesWhereDirectoriesExistOrCannotBeCreatedInBatch() throws DbxException {
+        FolderMetadata existing = mock(FolderMetadata.class);
+        FolderMetadata created = mock(FolderMetadata.class);
+
+        when(serviceMock.findOrCreateDirectories(anyCollection(), any())).thenCallRealMethod();
+        when(serviceMock.getPath(anyString(), any())).thenCallRealMethod();
+        when(serviceMock.findExistingDirectories(anyCollection())).thenReturn(Map.of("/a", existing));
+        when(serviceMock.findOrCreateDirectoryByLevels(anyString(), any())).thenReturn(created);
+        when(files.createFolderBatch(anyList())).thenReturn(CreateFolderBatchLaunch.complete(new CreateFolderBatchResult(List.of(
+                CreateFolderBatchResultEntry.failure(CreateFolderEntryError.path(WriteError.conflict(WriteConflictError.FOLDER))),
+                CreateFolderBatchResultEntry.failure(CreateFolderEntryError.path(WriteError.conflict(WriteConflictError.FILE_ANCESTOR)))))));
+
+        Map<String, FolderMetadata> result = serviceMock.findOrCreateDirectories(List.of("a", "b/c"), null);
+
+        assertEquals(existing, result.get("a"));
+        assertEquals(created, result.get("b/c"));
+
+        verify(serviceMock).findExistingDirectories(List.of("/a"));
+        verify(serviceMock, never()).findFolder(anyString(), any());
+        verify(serviceMock).findOrCreateDirectoryByLevels("b/c", null);
+        verify(serviceMock, never()).findOrCreateDirectoryByLevels(eq("a"), any());
+        verify(files, never()).getMetadata(anyString());
+    }
+
+    @Test
+    void testFindOrCreateDirectoriesWhereExistingDirectoryIsNotFoundInListing() throws DbxException {
+        FolderMetadata created = mock(FolderMetadata.class);
+
+        when(serviceMock.findOrCreateDirectories(anyCollection(), any())).thenCallRealMethod();
+        when(serviceMock.getPath(anyString(), any())).thenCallRealMethod();
+        when(serviceMock.findExistingDirectories(anyCollection())).thenReturn(Map.of());
+        when(serviceMock.findOrCreateDirectoryByLevels(anyString(), any())).thenReturn(created);
+        when(files.createFolderBatch(anyList())).thenReturn(CreateFolderBatchLaunch.complete(new CreateFolderBatchResult(List.of(
+                CreateFolderBatchResultEntry.failure(CreateFolderEntryError.path(WriteError.conflict(WriteConflictError.FOLDER)))))));
+
+        Map<String, FolderMetadata> result = serviceMock.findOrCreateDirectories(List.of("a"), null);
+
+        assertEquals(created, result.get("a"));
+
+        verify(serviceMock).findOrCreateDirectoryByLevels("a", null);
+    }
+
+    @Test
+    void testFindExistingDirectoriesListsCommonParentOnceAndStopsWhenAllAreFound() throws DbxException {
+        FolderMetadata dir1 = new FolderMetadata("b", "id:b", "/parent/a/b", "/Parent/a/b", null, null, null, null, null);
+        FolderMetadata dir2 = new FolderMetadata("c", "id:c", "/parent/c", "/Parent/c", null, null, null, null, null);
+        FolderMetadata other = new FolderMetadata("d", "id:d", "/parent/d", "/Parent/d", null, null, null, null, null);
+        FileMetadata file = mock(FileMetadata.class);
+        when(file.getPathLower()).thenReturn("/parent/c");
+        ListFolderBuilder listFolderBuilder = mock(ListFolderBuilder.class);
+
+        when(serviceMock.findExistingDirectories(anyCollection())).thenCallRealMethod();
+        when(serviceMock.listFolderContinue(anyString())).thenCallRealMethod();
+        when(files.listFolderBuilder(anyString())).thenReturn(listFolderBuilder);
+        when(listFolderBuilder.withRecursive(anyBoolean())).thenReturn(listFolderBuilder);
+        when(listFolderBuilder.start()).thenReturn(new ListFolderResult(List.of(other, file, dir1), "cursor-1", true));
+        when(files.listFolderContinue(anyString())).thenReturn(new ListFolderResult(List.of(dir2), "cursor-2", true));
+
+        Map<String, FolderMetadata> result = serviceMock.findExistingDirectories(List.of("/Parent/A/b", "/parent/c"));
+
+        assertEquals(Map.of("/Parent/A/b", dir1, "/parent/c", dir2), result);
+
+        verify(files).listFolderBuilder("/Parent");
+        verify(listFolderBuilder).withRecursive(true);
+        verify(files).listFolderContinue("cursor-1");
+        verify(directoryCache).put("/Parent/A/b", dir1);
+        verify(directoryCache).put("/parent/c", dir2);
+
+        verifyNoMoreInteractions(files);
+        verifyNoMoreInteractions(directoryCache);
+    }
+
+    @Test
+    void testFindExistingDirectoriesOfRootDirectoriesListsRoot() throws DbxException {
+        FolderMetadata dir = new FolderMetadata("a", "id:a", "/a", "/A", null, null, null, null, null);
+        ListFolderBuilder listFolderBuilder = mock(ListFolderBuilder.class);
+
+        when(serviceMock.findExistingDirectories(anyCollection())).thenCallRealMethod();
+        when(files.listFolderBuilder(anyString())).thenReturn(listFolderBuilder);
+        when(listFolderBuilder.withRecursive(anyBoolean())).thenReturn(listFolderBuilder);
+        when(listFolderBuilder.start()).thenReturn(new ListFolderResult(List.of(dir), "cursor-1", false));
+
+        Map<String, FolderMetadata> result = serviceMock.findExistingDirectories(List.of("/a", "/b/c"));
+
+        assertEquals(Map.of("/a", dir), result);
+
+        verify(files).listFolderBuilder("");
+        verify(files, never()).listFolderContinue(anyString());
+    }
+
+    @Test
+    void testFindExistingDirectoriesWhereListingFails() throws DbxException {
+        ListFolderBuilder listFolderBuilder = mock(ListFolderBuilder.class);
+
+        when(serviceMock.findExistingDirectories(anyCollection())).thenCallRealMethod();
+        when(files.listFolderBuilder(anyString())).thenReturn(listFolderBuilder);
+        when(listFolderBuilder.withRecursive(anyBoolean())).thenReturn(listFolderBuilder);
+        when(listFolderBuilder.start()).thenThrow(DbxException.class);
+
+        assertTrue(serviceMock.findExistingDirectories(List.of("/a/b")).isEmpty());
+
+        verify(files).listFolderBuilder("/a");
+        verifyNoInteractions(directoryCache);
+    }
 }
@@ -5,16 +5,32 @@ import com.dropbox.core.v2.DbxClientV2;
 import com.dropbox.core.v2.files.DbxUserFilesRequests;
 import com.dropbox.core.v2.files.FileMetadata;
 import com.dropbox.core.v2.files.FolderMetadata;
+import com.dropbox.core.v2.files.ListFolderBuilder;
+import com.dropbox.core.v2.files.ListFolderContinueError;
+import com.dropbox.core.v2.files.ListFolderContinueErrorException;
+import com.dropbox.core.v2.files.ListFolderResult;
 import com.dropbox.core.v2.files.Metadata;
 import net.czpilar.dropdrive.core.credential.IDropDriveCredential;
 import net.czpilar.dropdrive.core.exception.FileHandleException;
 import net.czpilar.dropdrive.core.listener.IFileUploadProgressListener;
+import net.czpilar.dropdrive.core.request.BatchFileRequest;
+import net.czpilar.dropdrive.core.request.ChunkBufferPool;
+import net.czpilar.dropdrive.core.request.ChunkScheduler;
 import net.czpilar.dropdrive.core.request.FileRequest;
+import net.czpilar.dropdrive.core.request.IBandwidthLimiter;
+import net.czpilar.dropdrive.core.request.IConcurrencyLimiter;
+import net.czpilar.dropdrive.core.request.IMemoryBudget;
+import net.czpilar.dropdrive.core.request.IRetryPolicy;
+import net.czpilar.dropdrive.core.request.UploadScheduler;
+import net.czpilar.dropdrive.core.request.impl.AimdConcurrencyLimiter;
+import net.czpilar.dropdrive.core.request.impl.BackoffRetryPolicy;
 import net.czpilar.dropdrive.core.service.IDirectoryService;
+import net.czpilar.dropdrive.core.setting.UploadSetting;
 import net.czpilar.dropdrive.core.util.EqualUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.MockitoAnnotations;
@@ -22,10 +38,19 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -37,6 +62,10 @@ class FileServiceTest {
 
     private final FileService service = new FileService(3);
 
+    private final IRetryPolicy retryPolicy = new BackoffRetryPolicy(0, 0, 0, 0);
+
+    private final UploadScheduler uploadScheduler = new UploadScheduler(UploadScheduler.Policy.FIFO, 0, 0);
+
     @Mock
     private FileService serviceMock;
 
@@ -49,12 +78,31 @@ class FileServiceTest {
     @Mock
     private IDropDriveCredential dropDriveCredential;
 
+    @Mock
+    private UploadSetting uploadSetting;
+
+    @Mock
+    private IBandwidthLimiter bandwidthLimiter;
+
+    @Mock
+    private IMemoryBudget memoryBudget;
+
+    @Mock
+    private ChunkBufferPool chunkBufferPool;
+
+    @Mock
+    private IConcurrencyLimiter concurrencyLimiter;
+
+    @Mock
+    private ChunkScheduler chunkScheduler;
+
     private AutoCloseable autoCloseable;
 
     private MockedStatic<DbxClientV2> dbxClientV2MockedStatic;
     private MockedStatic<DbxUserFilesRequests> dbxUserFilesRequestsMockedStatic;
     private MockedStatic<EqualUtils> equalUtilsMockedStatic;
     private MockedStatic<FileRequest> fileRequestMockedStatic;
+    private MockedStatic<BatchFileRequest> batchFileRequestMockedStatic;
 
     @BeforeEach
     void before() {
@@ -62,13 +110,30 @@ class FileServiceTest {
         service.setDbxClient(dbxClient);
         service.setDropDriveCredential(dropDriveCredential);
         service.setDirectoryService(directoryService);
+        service.setUploadSetting(uploadSetting);
+        service.setBandwidthLimiter(bandwidthLimiter);
+        service.setMemoryBudget(memoryBudget);
+        service.setChunkBufferPool(chunkBufferPool);
+        service.setRetryPolicy(retryPolicy);
+        service.setConcurrencyLimiter(concurrencyLimiter);
+        service.setChunkScheduler(chunkScheduler);
+        service.setUploadScheduler(uploadScheduler);
 
         when(serviceMock.getDirectoryService()).thenReturn(directoryService);
+        when(serviceMock.getUploadSetting()).thenReturn(uploadSetting);
+        when(serviceMock.getBandwidthLimiter()).thenReturn(bandwidthLimiter);
+        when(serviceMock.getMemoryBudget()).thenReturn(memoryBudget);
+        when(serviceMock.getChunkBufferPool()).thenReturn(chunkBufferPool);
+        when(serviceMock.getRetryPolicy()).thenReturn(retryPolicy);
+        when(serviceMock.getConcurrencyLimiter()).thenReturn(concurrencyLimiter);
+        when(serviceMock.getChunkScheduler()).thenReturn(chunkScheduler);
+        when(serviceMock.getUploadScheduler()).thenReturn(uploadScheduler);
 
         dbxClientV2MockedStatic = mockStatic(DbxClientV2.class);
         dbxUserFilesRequestsMockedStatic = mockStatic(DbxUserFilesRequests.class);
         equalUtilsMockedStatic = mockStatic(EqualUtils.class);
         fileRequestMockedStatic = mockStatic(FileRequest.class);
+        batchFileRequestMockedStatic = mockStatic(BatchFileRequest.class);
     }
 
     @AfterEach
@@ -78,6 +143,7 @@ class FileServiceTest {
         dbxUserFilesRequestsMockedStatic.close();
         equalUtilsMockedStatic.close();
         fileRequestMockedStatic.close();
+        batchFileRequestMockedStatic.close();
     }
 
     @Test
@@ -140,6 +206,21 @@ class FileServiceTest {
         verify(serviceMock).findFile(filename, null);
         verify(insert).execute();
         verify(insert).setProgressListener(any(IFileUploadProgressListener.class));
+        verify(insert).setUploadSetting(uploadSetting);
+        verify(insert).setBandwidthLimiter(bandwidthLimiter);
+        verify(serviceMock).getBandwidthLimiter();
+        verify(insert).setMemoryBudget(memoryBudget);
+        verify(serviceMock).getMemoryBudget();
+        verify(insert).setChunkBufferPool(chunkBufferPool);
+        verify(serviceMock).getChunkBufferPool();
+        verify(insert).setRetryPolicy(retryPolicy);
+        verify(serviceMock, times(2)).getRetryPolicy();
+        verify(insert).setConcurrencyLimiter(concurrencyLimiter);
+        verify(serviceMock).getConcurrencyLimiter();
+        verify(insert).setChunkScheduler(chunkScheduler);
+        verify(serviceMock).getChunkScheduler();
+        verify(serviceMock).getUploadScheduler();
+        verify(serviceMock).getUploadSetting();
         verify(file).getRev();
 
         verifyNoMoreInteractions(serviceMock);
@@ -173,6 +254,21 @@ class FileServiceTest {
         verify(serviceMock).findFile(filename, parentDir);
         verify(insert).execute();
         verify(insert).setProgressListener(any(IFileUploadProgressListener.class));
+        verify(insert).setUploadSetting(uploadSetting);
+        verify(insert).setBandwidthLimiter(bandwidthLimiter);
+        verify(serviceMock).getBandwidthLimiter();
+        verify(insert).setMemoryBudget(memoryBudget);
+        verify(serviceMock).getMemoryBudget();
+        verify(insert).setChunkBufferPool(chunkBufferPool);
+        verify(serviceMock).getChunkBufferPool();
+        verify(insert).setRetryPolicy(retryPolicy);
+        verify(serviceMock, times(2)).getRetryPolicy();
+        verify(insert).setConcurrencyLimiter(concurrencyLimiter);
+        verify(serviceMock).getConcurrencyLimiter();
+        verify(insert).setChunkScheduler(chunkScheduler);
+        verify(serviceMock).getChunkScheduler();
+        verify(serviceMock).getUploadScheduler();
+        verify(serviceMock).getUploadSetting();
         verify(file).getRev();
 
         verifyNoMoreInteractions(serviceMock);
@@ -203,6 +299,21 @@ class FileServiceTest {
         verify(serviceMock).getRetries();
         verify(insert).execute();
         verify(insert).setProgressListener(any(IFileUploadProgressListener.class));
+        verify(insert).setUploadSetting(uploadSetting);
+        verify(insert).setBandwidthLimiter(bandwidthLimiter);
+        verify(serviceMock).getBandwidthLimiter();
+        verify(insert).setMemoryBudget(memoryBudget);
+        verify(serviceMock).getMemoryBudget();
+        verify(insert).setChunkBufferPool(chunkBufferPool);
+        verify(serviceMock).getChunkBufferPool();
+        verify(insert).setRetryPolicy(retryPolicy);
+        verify(serviceMock, times(2)).getRetryPolicy();
+        verify(insert).setConcurrencyLimiter(concurrencyLimiter);
+        verify(serviceMock).getConcurrencyLimiter();
+        verify(insert).setChunkScheduler(chunkScheduler);
+        verify(serviceMock).getChunkScheduler();
+        verify(serviceMock).getUploadScheduler();
+        verify(serviceMock).getUploadSetting();
 
         verifyNoMoreInteractions(serviceMock);
         verifyNoMoreInteractions(dbxClient);
@@ -219,7 +330,7 @@ class FileServiceTest {
         when(serviceMock.uploadFile(anyString(), any(FolderMetadata.class))).thenCallRealMethod();
         when(serviceMock.getDbxClient()).thenReturn(dbxClient);
         when(serviceMock.findFile(anyString(), any(FolderMetadata.class))).thenReturn(file);
-        when(EqualUtils.notEquals(any(FileMetadata.class), any(Path.class))).thenReturn(true);
+        when(EqualUtils.notEquals(any(FileMetadata.class), any(Path.class), any())).thenReturn(true);
         when(FileRequest.createUpdate(any(DbxClientV2.class), any(FileMetadata.class), any(File.class))).thenReturn(update);
         when(update.execute()).thenReturn(file);
 
@@ -233,6 +344,21 @@ class FileServiceTest {
         verify(serviceMock).findFile(filename, parentDir);
         verify(update).execute();
         verify(update).setProgressListener(any(IFileUploadProgressListener.class));
+        verify(update).setUploadSetting(uploadSetting);
+        verify(update).setBandwidthLimiter(bandwidthLimiter);
+        verify(serviceMock).getBandwidthLimiter();
+        verify(update).setMemoryBudget(memoryBudget);
+        verify(serviceMock).getMemoryBudget();
+        verify(update).setChunkBufferPool(chunkBufferPool);
+        verify(serviceMock).getChunkBufferPool();
+        verify(update).setRetryPolicy(retryPolicy);
+        verify(serviceMock, times(2)).getRetryPolicy();
+        verify(update).setConcurrencyLimiter(concurrencyLimiter);
+        verify(serviceMock).getConcurrencyLimiter();
+        verify(update).setChunkScheduler(chunkScheduler);
+        verify(serviceMock).getChunkScheduler();
+        verify(serviceMock).getUploadScheduler();
+        verify(serviceMock, times(2)).getUploadSetting();
         verify(file).getRev();
 
         verifyNoMoreInteractions(serviceMock);
@@ -251,7 +377,7 @@ class FileServiceTest {
 
         when(serviceMock.uploadFile(anyString(), (FolderMetadata) any())).thenCallRealMethod();
         when(serviceMock.findFile(anyString(), any())).thenReturn(file);
-        when(EqualUtils.notEquals(any(), any())).thenReturn(false);
+        when(EqualUtils.notEquals(any(), any(), any())).thenReturn(false);
 
         FileMetadata result = serviceMock.uploadFile(filename, parentDir);
 
@@ -260,6 +386,7 @@ class FileServiceTest {
 
         verify(serviceMock).uploadFile(filename, parentDir);
         verify(serviceMock).findFile(filename, parentDir);
+        verify(serviceMock).getUploadSetting();
         verify(file).getRev();
 
         verifyNoMoreInteractions(serviceMock);
@@ -307,6 +434,21 @@ class FileServiceTest {
         verify(serviceMock).getRetries();
         verify(insert, times(2)).execute();
         verify(insert).setProgressListener(any(IFileUploadProgressListener.class));
+        verify(insert).setUploadSetting(uploadSetting);
+        verify(insert).setBandwidthLimiter(bandwidthLimiter);
+        verify(serviceMock).getBandwidthLimiter();
+        verify(insert).setMemoryBudget(memoryBudget);
+        verify(serviceMock).getMemoryBudget();
+        verify(insert).setChunkBufferPool(chunkBufferPool);
+        verify(serviceMock).getChunkBufferPool();
+        verify(insert).setRetryPolicy(retryPolicy);
+        verify(serviceMock, times(2)).getRetryPolicy();
+        verify(insert).setConcurrencyLimiter(concurrencyLimiter);
+        verify(serviceMock).getConcurrencyLimiter();
+        verify(insert).setChunkScheduler(chunkScheduler);
+        verify(serviceMock).getChunkScheduler();
+        verify(serviceMock).getUploadScheduler();
+        verify(serviceMock).getUploadSetting();
         verify(file).getRev();
 
         verifyNoMoreInteractions(serviceMock);
@@ -339,9 +481,24 @@ class FileServiceTest {
         verify(serviceMock).uploadFile(filename, parentDir);
         verify(serviceMock).getDbxClient();
         verify(serviceMock).findFile(filename, parentDir);
-        verify(serviceMock, times(4)).getRetries();
+        verify(serviceMock).getRetries();
         verify(insert, times(4)).execute();
         verify(insert).setProgressListener(any(IFileUploadProgressListener.class));
+        verify(insert).setUploadSetting(uploadSetting);
+        verify(insert).setBandwidthLimiter(bandwidthLimiter);
+        verify(serviceMock).getBandwidthLimiter();
+        verify(insert).setMemoryBudget(memoryBudget);
+        verify(serviceMock).getMemoryBudget();
+        verify(insert).setChunkBufferPool(chunkBufferPool);
+        verify(serviceMock).getChunkBufferPool();
+        verify(insert).setRetryPolicy(retryPolicy);
+        verify(serviceMock, times(2)).getRetryPolicy();
+        verify(insert).setConcurrencyLimiter(concurrencyLimiter);
+        verify(serviceMock).getConcurrencyLimiter();
+        verify(insert).setChunkScheduler(chunkScheduler);
+        verify(serviceMock).getChunkScheduler();
+        verify(serviceMock).getUploadScheduler();
+        verify(serviceMock).getUploadSetting();
 
         verifyNoMoreInteractions(serviceMock);
         verifyNoMoreInteractions(dbxClient);
@@ -383,6 +540,8 @@ class FileServiceTest {
         assertTrue(result.isEmpty());
 
         verify(serviceMock).uploadFiles(anyList(), any(FolderMetadata.class));
+        verify(serviceMock).getUploadScheduler();
+        verify(serviceMock).getUploadSetting();
         verify(serviceMock).uploadFile("filename1", parent);
         verify(serviceMock).uploadFile("filename2", parent);
 
@@ -406,12 +565,513 @@ class FileServiceTest {
         assertEquals(file2, result.get(1));
 
         verify(serviceMock).uploadFiles(anyList(), any(FolderMetadata.class));
+        verify(serviceMock).getUploadScheduler();
+        verify(serviceMock).getUploadSetting();
+        verify(serviceMock).uploadFile("filename1", parent);
+        verify(serviceMock).uploadFile("filename2", parent);
+
+        verifyNoMoreInteractions(serviceMock);
+    }
+
+    @Test
+    void testUploadFilesConcurrently() {
+        FolderMetadata parent = mock(FolderMetadata.class);
+        FileMetadata file1 = mock(FileMetadata.class);
+        FileMetadata file3 = mock(FileMetadata.class);
+
+        when(serviceMock.uploadFiles(anyList(), any(FolderMetadata.class))).thenCallRealMethod();
+        when(serviceMock.uploadFilesConcurrently(anyList(), any(FolderMetadata.class), anyInt())).thenCallRealMethod();
+        List<UploadScheduler.Lane> lanes = Collections.synchronizedList(new ArrayList<>());
+        List<UploadSetting.ReadMode> readModes = Collections.synchronizedList(new ArrayList<>());
+        when(serviceMock.uploadFile(anyString(), any(FolderMetadata.class))).thenAnswer(invocation -> {
+            lanes.add(UploadScheduler.getLane());
+            readModes.add(UploadSetting.getBoundReadMode());
+            return switch (invocation.<String>getArgument(0)) {
+                case "filename1" -> file1;
+                case "filename3" -> file3;
+                default -> throw new FileHandleException("Unable to upload file.", null);
+            };
+        });
+        when(uploadSetting.getFileWorkers()).thenReturn(2);
+
+        List<FileMetadata> result = UploadScheduler.callInLane(UploadScheduler.Lane.INTERACTIVE,
+                () -> UploadSetting.callWithReadMode(UploadSetting.ReadMode.DIRECT,
+                        () -> serviceMock.uploadFiles(Arrays.asList("filename1", "filename2", "filename3"), parent)));
+
+        assertEquals(Arrays.asList(file1, file3), result);
+        assertEquals(Collections.nCopies(3, UploadScheduler.Lane.INTERACTIVE), lanes);
+        assertEquals(Collections.nCopies(3, UploadSetting.ReadMode.DIRECT), readModes);
+
+        verify(serviceMock).uploadFiles(anyList(), any(FolderMetadata.class));
+        verify(serviceMock).getUploadScheduler();
+        verify(serviceMock).getUploadSetting();
+        verify(serviceMock).uploadFilesConcurrently(anyList(), eq(parent), eq(2));
         verify(serviceMock).uploadFile("filename1", parent);
         verify(serviceMock).uploadFile("filename2", parent);
+        verify(serviceMock).uploadFile("filename3", parent);
 
         verifyNoMoreInteractions(serviceMock);
     }
 
+    @Test
+    void testUploadFilesReturnsFilesInOrderOfFilenames(@TempDir Path directory) throws IOException {
+        FolderMetadata parent = mock(FolderMetadata.class);
+        String large = Files.writeString(directory.resolve("large"), "large content").toString();
+        String small = Files.writeString(directory.resolve("small"), "s").toString();
+        FileMetadata largeFile = mock(FileMetadata.class);
+        FileMetadata smallFile = mock(FileMetadata.class);
+        List<String> uploaded = new ArrayList<>();
+
+        when(serviceMock.uploadFiles(anyList(), any(FolderMetadata.class))).thenCallRealMethod();
+        when(serviceMock.getUploadScheduler()).thenReturn(new UploadScheduler(UploadScheduler.Policy.SMALLEST_FIRST, 0, 0));
+        when(serviceMock.uploadFile(anyString(), any(FolderMetadata.class))).thenAnswer(invocation -> {
+            uploaded.add(invocation.getArgument(0));
+            return invocation.getArgument(0).equals(large) ? largeFile : smallFile;
+        });
+
+        List<FileMetadata> result = serviceMock.uploadFiles(Arrays.asList(large, small), parent);
+
+        assertEquals(List.of(small, large), uploaded);
+        assertEquals(List.of(largeFile, smallFile), result);
+    }
+
+    @Test
+    void testUploadFilesConcurrentlyReturnsFilesInOrderOfFilenamesWhenUploadsFinishOutOfOrder() throws InterruptedException {
+        FolderMetadata parent = mock(FolderMetadata.class);
+        List<String> filenames = List.of("filename1", "filename2", "filename3", "filename4");
+        CountDownLatch lastFinished = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<String> finished = Collections.synchronizedList(new ArrayList<>());
+        Map<String, FileMetadata> uploadedFiles = new HashMap<>();
+        for (String filename : filenames) {
+            FileMetadata file = mock(FileMetadata.class);
+            when(file.getName()).thenReturn(filename);
+            uploadedFiles.put(filename, file);
+        }
+
+        when(serviceMock.uploadFiles(anyList(), any(FolderMetadata.class))).thenCallRealMethod();
+        when(serviceMock.uploadFilesConcurrently(anyList(), any(FolderMetadata.class), anyInt())).thenCallRealMethod();
+        when(serviceMock.uploadFile(anyString(), any(FolderMetadata.class))).thenAnswer(invocation -> {
+            String filename = invocation.getArgument(0);
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                if (filename.equals("filename1")) {
+                    assertTrue(lastFinished.await(10, TimeUnit.SECONDS));
+                }
+                finished.add(filename);
+                if (filename.equals("filename4")) {
+                    lastFinished.countDown();
+                }
+                return uploadedFiles.get(filename);
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+        when(uploadSetting.getFileWorkers()).thenReturn(2);
+
+        List<FileMetadata> result = serviceMock.uploadFiles(filenames, parent);
+
+        assertEquals(filenames, result.stream().map(FileMetadata::getName).toList());
+        assertEquals("filename1", finished.getLast());
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    void testUploadInInteractiveLaneIsServedBeforeWaitingBulkUpload(@TempDir Path directory) throws Exception {
+        UploadScheduler scheduler = new UploadScheduler(UploadScheduler.Policy.SMALLEST_FIRST, 1, 0);
+
+        assertEquals(List.of("interactive", "bulk"), uploadInLaneWhileBulkUploadWaits(scheduler, directory, 0));
+    }
+
+    @Test
+    void testBulkUploadWaitingLongerThanMaxWaitIsServedBeforeInteractiveUpload(@TempDir Path directory) throws Exception {
+        UploadScheduler scheduler = new UploadScheduler(UploadScheduler.Policy.SMALLEST_FIRST, 1, 50);
+
+        assertEquals(List.of("bulk", "interactive"), uploadInLaneWhileBulkUploadWaits(scheduler, directory, 100));
+    }
+
+    // uploads file in interactive lane while the only slot is taken and bulk upload waits, slot is released once both wait
+    private List<String> uploadInLaneWhileBulkUploadWaits(UploadScheduler scheduler, Path directory, long bulkWait) throws Exception {
+        String filename = Files.writeString(directory.resolve("interactive"), "interactive").toString();
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        FileRequest insert = mock(FileRequest.class);
+        when(insert.execute()).thenAnswer(invocation -> {
+            order.add("interactive");
+            return mock(FileMetadata.class);
+        });
+        when(serviceMock.uploadFile(anyString(), (FolderMetadata) any())).thenCallRealMethod();
+        when(serviceMock.getPath(anyString(), any())).thenReturn("/interactive");
+        when(serviceMock.getUploadScheduler()).thenReturn(scheduler);
+        when(FileRequest.createInsert(any(), anyString(), any())).thenReturn(insert);
+
+        UploadScheduler.Permit blocking = scheduler.acquire(UploadScheduler.Lane.BULK, 1);
+        Thread bulk = Thread.ofVirtual().start(() -> {
+            try (UploadScheduler.Permit _ = scheduler.acquire(UploadScheduler.Lane.BULK, 1)) {
+                order.add("bulk");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        awaitWaiting(bulk);
+        Thread.sleep(bulkWait);
+        Thread uploader = Thread.currentThread();
+        Thread releaser = Thread.ofVirtual().start(() -> {
+            awaitWaiting(uploader);
+            blocking.close();
+        });
+
+        UploadScheduler.callInLane(UploadScheduler.Lane.INTERACTIVE, () -> serviceMock.uploadFile(filename, (FolderMetadata) null));
+
+        assertTrue(bulk.join(Duration.ofSeconds(10)));
+        assertTrue(releaser.join(Duration.ofSeconds(10)));
+        return order;
+    }
+
+    private static void awaitWaiting(Thread thread) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (thread.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    @Test
+    void testUploadFilesFindsFilesInFolderIndexInsteadOfLookingThemUp() throws DbxException {
+        DbxUserFilesRequests files = mock(DbxUserFilesRequests.class);
+        FolderMetadata parent = new FolderMetadata("parent", "id:parent", "/parent", "/Parent", null, null, null, null, null);
+        FileMetadata file1 = new FileMetadata("file1", "id:file1", new Date(1000), new Date(2000), "0123456789", 1);
+        FileMetadata file2 = new FileMetadata("file2", "id:file2", new Date(1000), new Date(2000), "0123456789", 2);
+        service.setConcurrencyLimiter(new AimdConcurrencyLimiter());
+        when(dbxClient.files()).thenReturn(files);
+        when(files.listFolder(anyString())).thenReturn(new ListFolderResult(List.of(file1, file2), "cursor", false));
+        when(uploadSetting.getListThreshold()).thenReturn(2);
+
+        List<FileMetadata> result = service.uploadFiles(List.of("local/FILE1", "local/file2"), parent);
+
+        assertEquals(List.of(file1, file2), result);
+
+        verify(files).listFolder("/Parent");
+        verify(files, never()).getMetadata(anyString());
+        verifyNoMoreInteractions(files);
+    }
+
+    @Test
+    void testUploadFilesWithFolderIndex() {
+        FolderMetadata parent = mock(FolderMetadata.class);
+        FileMetadata file1 = mock(FileMetadata.class);
+        when(file1.getName()).thenReturn("FileName1");
+        FolderIndex index = new FolderIndex(parent);
+        index.add(file1);
+
+        when(serviceMock.uploadFiles(anyList(), any(FolderMetadata.class))).thenCallRealMethod();
+        when(serviceMock.findFile(anyString(), any(FolderMetadata.class))).thenCallRealMethod();
+        when(serviceMock.listFolder(any(FolderMetadata.class))).thenReturn(index);
+        when(serviceMock.uploadFile(anyString(), any(FolderMetadata.class)))
+                .thenAnswer(invocation -> serviceMock.findFile(invocation.getArgument(0), parent));
+        when(uploadSetting.getListThreshold()).thenReturn(2);
+
+        List<FileMetadata> result = serviceMock.uploadFiles(Arrays.asList("filename1", "filename2"), parent);
+
+        assertEquals(List.of(file1), result);
+
+        verify(serviceMock).listFolder(parent);
+        verify(serviceMock, never()).getDbxClient();
+    }
+
+    @Test
+    void testUploadFilesWithoutFolderIndexBelowListThreshold() {
+        FolderMetadata parent = mock(FolderMetadata.class);
+
+        when(serviceMock.uploadFiles(anyList(), any(FolderMetadata.class))).thenCallRealMethod();
+        when(uploadSetting.getListThreshold()).thenReturn(3);
+
+        serviceMock.uploadFiles(Arrays.asList("filename1", "filename2"), parent);
+
+        verify(serviceMock, never()).listFolder(any());
+    }
+
+    @Test
+    void testListFolder() throws DbxException {
+        DbxUserFilesRequests files = mock(DbxUserFilesRequests.class);
+        FolderMetadata parent = new FolderMetadata("parent", "id:parent", "/parent", "/Parent", null, null, null, null, null);
+        FolderMetadata folder = mock(FolderMetadata.class);
+        FileMetadata file1 = mock(FileMetadata.class);
+        FileMetadata file2 = mock(FileMetadata.class);
+        when(file1.getName()).thenReturn("file1");
+        when(file2.getName()).thenReturn("file2");
+        when(folder.getName()).thenReturn("folder");
+        service.setConcurrencyLimiter(new AimdConcurrencyLimiter());
+        when(dbxClient.files()).thenReturn(files);
+        when(files.listFolder(anyString())).thenReturn(new ListFolderResult(List.of(file1, folder), "cursor-1", true));
+        when(files.listFolderContinue(anyString())).thenReturn(new ListFolderResult(List.of(file2), "cursor-2", false));
+
+        FolderIndex result = service.listFolder(parent);
+
+        assertNotNull(result);
+        assertTrue(result.isIndexOf(parent));
+        assertEquals(2, result.size());
+        assertEquals(file1, result.findFile("FILE1"));
+        assertEquals(file2, result.findFile("file2"));
+        assertNull(result.findFile("folder"));
+
+        verify(files).listFolder("/Parent");
+        verify(files).listFolderContinue("cursor-1");
+        verifyNoMoreInteractions(files);
+    }
+
+    @Test
+    void testListFolderWhereListingFails() throws DbxException {
+        DbxUserFilesRequests files = mock(DbxUserFilesRequests.class);
+        service.setConcurrencyLimiter(new AimdConcurrencyLimiter());
+        when(dbxClient.files()).thenReturn(files);
+        when(files.listFolder(anyString())).thenThrow(DbxException.class);
+
+        assertNull(service.listFolder(null));
+
+        verify(files).listFolder("");
+    }
+
+    @Test
+    void testUploadFilesWithSnapshot() {
+        FolderMetadata parent = mock(FolderMetadata.class);
+        FolderIndex index = new FolderIndex(parent);
+
+        when(serviceMock.uploadFiles(anyList(), any(FolderMetadata.class))).thenCallRealMethod();
+        when(serviceMock.refreshSnapshot(any(FolderMetadata.class), any(Path.class))).thenReturn(index);
+        when(uploadSetting.getSnapshotDir()).thenReturn("snapshot-dir");
+        when(uploadSetting.getListThreshold()).thenReturn(1);
+
+        serviceMock.uploadFiles(Collections.singletonList("filename1"), parent);
+
+        verify(serviceMock).refreshSnapshot(parent, Path.of("snapshot-dir"));
+        verify(serviceMock, never()).listFolder(any());
+    }
+
+    @Test
+    void testUploadFilesWhereSnapshotFails() {
+        FolderMetadata parent = mock(FolderMetadata.class);
+
+        when(serviceMock.uploadFiles(anyList(), any(FolderMetadata.class))).thenCallRealMethod();
+        when(serviceMock.refreshSnapshot(any(FolderMetadata.class), any(Path.class))).thenReturn(null);
+        when(uploadSetting.getSnapshotDir()).thenReturn("snapshot-dir");
+        when(uploadSetting.getListThreshold()).thenReturn(1);
+
+        serviceMock.uploadFiles(Collections.singletonList("filename1"), parent);
+
+        verify(serviceMock).refreshSnapshot(parent, Path.of("snapshot-dir"));
+        verify(serviceMock).listFolder(parent);
+    }
+
+    @Test
+    void testRefreshSnapshot(@TempDir Path snapshotDir) throws DbxException {
+        DbxUserFilesRequests files = mock(DbxUserFilesRequests.class);
+        ListFolderBuilder builder = mock(ListFolderBuilder.class);
+        FolderMetadata parent = new FolderMetadata("parent", "id:parent", "/parent", "/Parent", null, null, null, null, null);
+        FileMetadata file1 = FileMetadata.newBuilder("file1", "id:file1", new Date(), new Date(), "0123456789", 1)
+                .withPathLower("/parent/file1").withPathDisplay("/Parent/file1").build();
+        FileMetadata file2 = FileMetadata.newBuilder("file2", "id:file2", new Date(), new Date(), "0123456789", 2)
+                .withPathLower("/parent/file2").withPathDisplay("/Parent/file2").build();
+        service.setConcurrencyLimiter(new AimdConcurrencyLimiter());
+        when(dbxClient.files()).thenReturn(files);
+        when(files.listFolderBuilder(anyString())).thenReturn(builder);
+        when(builder.withRecursive(anyBoolean())).thenReturn(builder);
+        when(builder.start()).thenReturn(new ListFolderResult(List.of(file1), "cursor-1", false));
+        when(files.listFolderContinue(anyString())).thenReturn(new ListFolderResult(List.of(file2), "cursor-2", false));
+
+        FolderIndex result = service.refreshSnapshot(parent, snapshotDir);
+
+        assertEquals(1, result.size());
+        assertEquals(file1, result.findFile("file1"));
+
+        result = service.refreshSnapshot(parent, snapshotDir);
+
+        assertTrue(result.isIndexOf(parent));
+        assertEquals(2, result.size());
+        assertEquals(file2, result.findFile("file2"));
+        assertEquals("cursor-2", RemoteSnapshot.load(snapshotDir, parent).getCursor());
+
+        verify(files).listFolderBuilder("/Parent");
+        verify(builder).withRecursive(true);
+        verify(builder).start();
+        verify(files).listFolderContinue("cursor-1");
+        verifyNoMoreInteractions(files, builder);
+    }
+
+    @Test
+    void testRefreshSnapshotWhereCursorIsReset(@TempDir Path snapshotDir) throws DbxException {
+        DbxUserFilesRequests files = mock(DbxUserFilesRequests.class);
+        ListFolderBuilder builder = mock(ListFolderBuilder.class);
+        FolderMetadata parent = new FolderMetadata("parent", "id:parent", "/parent", "/Parent", null, null, null, null, null);
+        FileMetadata file1 = FileMetadata.newBuilder("file1", "id:file1", new Date(), new Date(), "0123456789", 1)
+                .withPathLower("/parent/file1").withPathDisplay("/Parent/file1").build();
+        RemoteSnapshot snapshot = RemoteSnapshot.load(snapshotDir, parent);
+        snapshot.apply(FileMetadata.newBuilder("old", "id:old", new Date(), new Date(), "0123456789", 1)
+                .withPathLower("/parent/old").withPathDisplay("/Parent/old").build());
+        snapshot.setCursor("cursor-1");
+        snapshot.save();
+        service.setConcurrencyLimiter(new AimdConcurrencyLimiter());
+        when(dbxClient.files()).thenReturn(files);
+        when(files.listFolderContinue(anyString()))
+                .thenThrow(new ListFolderContinueErrorException("2/files/list_folder/continue", null, null, ListFolderContinueError.RESET));
+        when(files.listFolderBuilder(anyString())).thenReturn(builder);
+        when(builder.withRecursive(anyBoolean())).thenReturn(builder);
+        when(builder.start()).thenReturn(new ListFolderResult(List.of(file1), "cursor-2", false));
+
+        FolderIndex result = service.refreshSnapshot(parent, snapshotDir);
+
+        assertEquals(1, result.size());
+        assertEquals(file1, result.findFile("file1"));
+        assertNull(result.findFile("old"));
+
+        verify(files).listFolderContinue("cursor-1");
+        verify(files).listFolderBuilder("/Parent");
+    }
+
+    @Test
+    void testRefreshSnapshotWhereListingFails(@TempDir Path snapshotDir) throws DbxException {
+        DbxUserFilesRequests files = mock(DbxUserFilesRequests.class);
+        ListFolderBuilder builder = mock(ListFolderBuilder.class);
+        service.setConcurrencyLimiter(new AimdConcurrencyLimiter());
+        when(dbxClient.files()).thenReturn(files);
+        when(files.listFolderBuilder(anyString())).thenReturn(builder);
+        when(builder.withRecursive(anyBoolean())).thenReturn(builder);
+        when(builder.start()).thenThrow(DbxException.class);
+
+        assertNull(service.refreshSnapshot(null, snapshotDir));
+
+        verify(files).listFolderBuilder("");
+    }
+
+    @Test
+    void testUploadFilesInBatch() throws IOException, DbxException {
+        FolderMetadata parent = mock(FolderMetadata.class);
+        FileMetadata file1 = mock(FileMetadata.class);
+        FileMetadata file2 = mock(FileMetadata.class);
+        FileMetadata file3 = mock(FileMetadata.class);
+        BatchFileRequest batch = mock(BatchFileRequest.class);
+
+        when(serviceMock.uploadFiles(anyList(), any(FolderMetadata.class))).thenCallRealMethod();
+        when(serviceMock.uploadFilesInBatch(anyList(), any(FolderMetadata.class))).thenCallRealMethod();
+        when(serviceMock.getDbxClient()).thenReturn(dbxClient);
+        when(serviceMock.findFile(anyString(), any(FolderMetadata.class))).thenReturn(null);
+        when(serviceMock.getPath(anyString(), any(FolderMetadata.class))).thenAnswer(invocation -> "/" + invocation.getArgument(0));
+        when(serviceMock.uploadFile(anyString(), any(FolderMetadata.class))).thenReturn(file3);
+        when(uploadSetting.getBatchSize()).thenReturn(10);
+        when(uploadSetting.getBatchThreshold()).thenReturn(Long.MAX_VALUE);
+        when(BatchFileRequest.create(any())).thenReturn(batch);
+        when(batch.execute()).thenReturn(Arrays.asList(
+                new BatchFileRequest.Result(new File("filename1"), file1, null),
+                new BatchFileRequest.Result(new File("filename2"), file2, null),
+                new BatchFileRequest.Result(new File("filename3"), null, "failed")));
+
+        List<FileMetadata> result = serviceMock.uploadFiles(Arrays.asList("filename1", "filename2", "filename3"), parent);
+
+        assertEquals(Arrays.asList(file1, file2, file3), result);
+
+        verify(batch).setUploadSetting(uploadSetting);
+        verify(batch).setBandwidthLimiter(bandwidthLimiter);
+        verify(batch).setMemoryBudget(memoryBudget);
+        verify(batch).setChunkBufferPool(chunkBufferPool);
+        verify(batch).setRetryPolicy(retryPolicy);
+        verify(batch).setConcurrencyLimiter(concurrencyLimiter);
+        verify(batch).addInsert("/filename1", new File("filename1"));
+        verify(batch).addInsert("/filename2", new File("filename2"));
+        verify(batch).addInsert("/filename3", new File("filename3"));
+        verify(batch).execute();
+        verify(serviceMock).uploadFile("filename3", parent);
+        verify(serviceMock, never()).uploadFile("filename1", parent);
+        verify(serviceMock, never()).uploadFile("filename2", parent);
+
+        verifyNoMoreInteractions(batch);
+    }
+
+    @Test
+    void testUploadFilesInBatchWithSameNames() throws IOException, DbxException {
+        FolderMetadata parent = mock(FolderMetadata.class);
+        FileMetadata file1 = mock(FileMetadata.class);
+        when(file1.getName()).thenReturn("filename");
+        BatchFileRequest batch = mock(BatchFileRequest.class);
+
+        when(serviceMock.uploadFiles(anyList(), any(FolderMetadata.class))).thenCallRealMethod();
+        when(serviceMock.uploadFilesInBatch(anyList(), any(FolderMetadata.class))).thenCallRealMethod();
+        when(serviceMock.findFile(anyString(), any(FolderMetadata.class))).thenCallRealMethod();
+        when(serviceMock.listFolder(any(FolderMetadata.class))).thenReturn(new FolderIndex(parent));
+        when(serviceMock.getDbxClient()).thenReturn(dbxClient);
+        when(serviceMock.getPath(anyString(), any(FolderMetadata.class))).thenAnswer(invocation -> "/" + invocation.getArgument(0));
+        when(serviceMock.uploadFile(anyString(), any(FolderMetadata.class)))
+                .thenAnswer(invocation -> serviceMock.findFile("FileName", parent));
+        when(uploadSetting.getBatchSize()).thenReturn(10);
+        when(uploadSetting.getBatchThreshold()).thenReturn(Long.MAX_VALUE);
+        when(uploadSetting.getListThreshold()).thenReturn(2);
+        when(BatchFileRequest.create(any())).thenReturn(batch);
+        when(batch.execute()).thenReturn(List.of(new BatchFileRequest.Result(new File("dir1/filename"), file1, null)));
+
+        List<FileMetadata> result = serviceMock.uploadFiles(Arrays.asList("dir1/filename", "dir2/FileName"), parent);
+
+        assertEquals(Arrays.asList(file1, file1), result);
+
+        verify(batch).addInsert("/filename", new File("dir1/filename"));
+        verify(batch, never()).addInsert(eq("/FileName"), any(File.class));
+        verify(serviceMock).uploadFile("dir2/FileName", parent);
+        verify(serviceMock, never()).uploadFile("dir1/filename", parent);
+    }
+
+    @Test
+    void testUploadFilesInBatchWhereBatchFails() throws IOException, DbxException {
+        FolderMetadata parent = mock(FolderMetadata.class);
+        FileMetadata file1 = mock(FileMetadata.class);
+        FileMetadata file2 = mock(FileMetadata.class);
+        BatchFileRequest batch = mock(BatchFileRequest.class);
+
+        when(serviceMock.uploadFiles(anyList(), any(FolderMetadata.class))).thenCallRealMethod();
+        when(serviceMock.uploadFilesInBatch(anyList(), any(FolderMetadata.class))).thenCallRealMethod();
+        when(serviceMock.getDbxClient()).thenReturn(dbxClient);
+        when(serviceMock.findFile(anyString(), any(FolderMetadata.class))).thenReturn(null);
+        when(serviceMock.getPath(anyString(), any(FolderMetadata.class))).thenAnswer(invocation -> "/" + invocation.getArgument(0));
+        when(serviceMock.uploadFile(anyString(), any(FolderMetadata.class))).thenReturn(file1, file2);
+        when(uploadSetting.getBatchSize()).thenReturn(10);
+        when(uploadSetting.getBatchThreshold()).thenReturn(Long.MAX_VALUE);
+        when(BatchFileRequest.create(any())).thenReturn(batch);
+        when(batch.execute()).thenThrow(DbxException.class);
+
+        List<FileMetadata> result = serviceMock.uploadFiles(Arrays.asList("filename1", "filename2"), parent);
+
+        assertEquals(Arrays.asList(file1, file2), result);
+
+        verify(serviceMock).uploadFile("filename1", parent);
+        verify(serviceMock).uploadFile("filename2", parent);
+    }
+
+    @Test
+    void testUploadFilesInBatchWhereBatchFailsWithFileWorkers() throws IOException, DbxException {
+        FolderMetadata parent = mock(FolderMetadata.class);
+        FileMetadata file1 = mock(FileMetadata.class);
+        FileMetadata file2 = mock(FileMetadata.class);
+        BatchFileRequest batch = mock(BatchFileRequest.class);
+
+        when(serviceMock.uploadFiles(anyList(), any(FolderMetadata.class))).thenCallRealMethod();
+        when(serviceMock.uploadFilesInBatch(anyList(), any(FolderMetadata.class))).thenCallRealMethod();
+        when(serviceMock.uploadFilesConcurrently(anyList(), any(FolderMetadata.class), anyInt())).thenCallRealMethod();
+        when(serviceMock.getDbxClient()).thenReturn(dbxClient);
+        when(serviceMock.findFile(anyString(), any(FolderMetadata.class))).thenReturn(null);
+        when(serviceMock.getPath(anyString(), any(FolderMetadata.class))).thenAnswer(invocation -> "/" + invocation.getArgument(0));
+        when(serviceMock.uploadFile(anyString(), any(FolderMetadata.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0).equals("filename1") ? file1 : file2);
+        when(uploadSetting.getBatchSize()).thenReturn(10);
+        when(uploadSetting.getBatchThreshold()).thenReturn(Long.MAX_VALUE);
+        when(uploadSetting.getFileWorkers()).thenReturn(2);
+        when(BatchFileRequest.create(any())).thenReturn(batch);
+        when(batch.execute()).thenThrow(DbxException.class);
+
+        List<FileMetadata> result = serviceMock.uploadFiles(Arrays.asList("filename1", "filename2"), parent);
+
+        assertEquals(Arrays.asList(file1, file2), result);
+
+        verify(serviceMock).uploadFilesConcurrently(Arrays.asList("filename1", "filename2"), parent, 2);
+        verify(serviceMock).uploadFile("filename1", parent);
+        verify(serviceMock).uploadFile("filename2", parent);
+    }
+
     @Test
     void testUploadFileWithStringFilenameAndStringParentDir() {
         String pathname = "test-parent-dir";
@@ -518,4 +1178,29 @@ class FileServiceTest {
         verifyNoInteractions(parent);
     }
 
+    @Test
+    void testUploadFilesWithStringFilenamesInLane() {
+        String parentDir = "test-parent-dir";
+        List<String> filenames = Arrays.asList("test-filename1", "test-filename2");
+        FileMetadata file = mock(FileMetadata.class);
+        List<UploadScheduler.Lane> lanes = new ArrayList<>();
+
+        when(serviceMock.uploadFiles(anyList(), anyString(), any(UploadScheduler.Lane.class))).thenCallRealMethod();
+        when(serviceMock.uploadFiles(anyList(), anyString())).thenAnswer(invocation -> {
+            lanes.add(UploadScheduler.getLane());
+            return List.of(file);
+        });
+
+        List<FileMetadata> result = serviceMock.uploadFiles(filenames, parentDir, UploadScheduler.Lane.INTERACTIVE);
+
+        assertEquals(List.of(file), result);
+        assertEquals(List.of(UploadScheduler.Lane.INTERACTIVE), lanes);
+        assertEquals(UploadScheduler.Lane.BULK, UploadScheduler.getLane());
+
+        verify(serviceMock).uploadFiles(filenames, parentDir, UploadScheduler.Lane.INTERACTIVE);
+        verify(serviceMock).uploadFiles(filenames, parentDir);
+
+        verifyNoMoreInteractions(serviceMock);
+        verifyNoInteractions(file);
+    }
 }
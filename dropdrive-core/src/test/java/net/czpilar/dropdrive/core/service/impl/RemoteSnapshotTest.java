@@ -0,0 +1,142 @@
+package net.czpilar.dropdrive.core.service.impl;
+
+import com.dropbox.core.v2.files.DeletedMetadata;
+import com.dropbox.core.v2.files.FileMetadata;
+import com.dropbox.core.v2.files.FolderMetadata;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author David Pilar (david@czpilar.net)
+ */
+class RemoteSnapshotTest {
+
+    private static final FolderMetadata PARENT =
+            new FolderMetadata("parent", "id:parent", "/parent", "/Parent", null, null, null, null, null);
+
+    @TempDir
+    private Path snapshotDir;
+
+    private static FileMetadata file(String pathDisplay) {
+        String name = pathDisplay.substring(pathDisplay.lastIndexOf('/') + 1);
+        return FileMetadata.newBuilder(name, "id:" + name, new Date(1000), new Date(2000), "0123456789", 42)
+                .withPathLower(pathDisplay.toLowerCase())
+                .withPathDisplay(pathDisplay)
+                .withContentHash("hash-" + name)
+                .build();
+    }
+
+    private static DeletedMetadata deleted(String pathDisplay) {
+        String name = pathDisplay.substring(pathDisplay.lastIndexOf('/') + 1);
+        return new DeletedMetadata(name, pathDisplay.toLowerCase(), pathDisplay, null, null);
+    }
+
+    @Test
+    void testLoadWithoutSnapshot() {
+        RemoteSnapshot snapshot = RemoteSnapshot.load(snapshotDir, PARENT);
+
+        assertNull(snapshot.getCursor());
+        assertEquals(0, snapshot.size());
+        assertEquals("/Parent", snapshot.getPath());
+    }
+
+    @Test
+    void testSaveAndLoad() {
+        RemoteSnapshot snapshot = RemoteSnapshot.load(snapshotDir, PARENT);
+        snapshot.apply(file("/Parent/File1"));
+        snapshot.apply(file("/Parent/Sub/File2"));
+        snapshot.setCursor("cursor-1");
+        snapshot.save();
+
+        RemoteSnapshot result = RemoteSnapshot.load(snapshotDir, PARENT);
+
+        assertEquals("cursor-1", result.getCursor());
+        assertEquals(2, result.size());
+        assertEquals(file("/Parent/File1"), result.index().findFile("file1"));
+    }
+
+    @Test
+    void testSaveWithoutCursor() throws IOException {
+        RemoteSnapshot snapshot = RemoteSnapshot.load(snapshotDir, PARENT);
+        snapshot.apply(file("/Parent/File1"));
+        snapshot.save();
+
+        try (var files = Files.list(snapshotDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testLoadOfOtherDirectory() {
+        RemoteSnapshot snapshot = RemoteSnapshot.load(snapshotDir, PARENT);
+        snapshot.apply(file("/Parent/File1"));
+        snapshot.setCursor("cursor-1");
+        snapshot.save();
+
+        RemoteSnapshot result = RemoteSnapshot.load(snapshotDir, null);
+
+        assertNull(result.getCursor());
+        assertEquals(0, result.size());
+        assertEquals("", result.getPath());
+    }
+
+    @Test
+    void testLoadOfCorruptSnapshot() throws IOException {
+        RemoteSnapshot snapshot = RemoteSnapshot.load(snapshotDir, PARENT);
+        snapshot.setCursor("cursor-1");
+        snapshot.save();
+        try (var files = Files.list(snapshotDir)) {
+            Files.writeString(files.findFirst().orElseThrow(), "corrupt");
+        }
+
+        RemoteSnapshot result = RemoteSnapshot.load(snapshotDir, PARENT);
+
+        assertNull(result.getCursor());
+        assertEquals(0, result.size());
+    }
+
+    @Test
+    void testApplyDeletedDirectory() {
+        RemoteSnapshot snapshot = RemoteSnapshot.load(snapshotDir, PARENT);
+        snapshot.apply(file("/Parent/Sub"));
+        snapshot.apply(file("/Parent/Sub/File1"));
+        snapshot.apply(file("/Parent/Sub/Deep/File2"));
+        snapshot.apply(file("/Parent/Sub2/File3"));
+
+        snapshot.apply(deleted("/Parent/Sub"));
+
+        assertEquals(1, snapshot.size());
+    }
+
+    @Test
+    void testApplyFolderReplacesFile() {
+        RemoteSnapshot snapshot = RemoteSnapshot.load(snapshotDir, PARENT);
+        snapshot.apply(file("/Parent/Sub"));
+
+        snapshot.apply(new FolderMetadata("Sub", "id:sub", "/parent/sub", "/Parent/Sub", null, null, null, null, null));
+
+        assertEquals(0, snapshot.size());
+    }
+
+    @Test
+    void testIndexHoldsOnlyFilesDirectlyInDirectory() {
+        RemoteSnapshot snapshot = RemoteSnapshot.load(snapshotDir, PARENT);
+        snapshot.apply(file("/Parent/File1"));
+        snapshot.apply(file("/Parent/Sub/File2"));
+        snapshot.apply(file("/Parent2/File3"));
+
+        FolderIndex result = snapshot.index();
+
+        assertTrue(result.isIndexOf(PARENT));
+        assertEquals(1, result.size());
+        assertNotNull(result.findFile("File1"));
+        assertNull(result.findFile("File2"));
+    }
+}
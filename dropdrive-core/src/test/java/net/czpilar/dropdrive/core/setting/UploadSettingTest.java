@@ -0,0 +1,96 @@
+package net.czpilar.dropdrive.core.setting;
+
+import net.czpilar.dropdrive.core.util.EqualUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * @author David Pilar (david@czpilar.net)
+ */
+class UploadSettingTest {
+
+    @Test
+    void testUploadSetting() {
+        int chunkWorkers = 4;
+        UploadSetting.ReadMode readMode = UploadSetting.ReadMode.MAPPED;
+        boolean chunkAdaptive = true;
+        long chunkAdaptiveTarget = 2000;
+        String journalDir = "test-journal-dir";
+        int batchSize = 500;
+        long batchThreshold = 1048576;
+        long singleThreshold = 262144;
+        int readAhead = 2;
+        EqualUtils.Mode compareMode = EqualUtils.Mode.CONTENT_HASH;
+        int fileWorkers = 8;
+        boolean verify = false;
+        int listThreshold = 100;
+        String snapshotDir = "test-snapshot-dir";
+        UploadSetting setting = new UploadSetting(chunkWorkers, readMode, chunkAdaptive, chunkAdaptiveTarget, journalDir,
+                batchSize, batchThreshold, singleThreshold, readAhead, compareMode, fileWorkers, verify, listThreshold, snapshotDir);
+
+        assertEquals(chunkWorkers, setting.getChunkWorkers());
+        assertEquals(readMode, setting.getReadMode());
+        assertEquals(chunkAdaptive, setting.isChunkAdaptive());
+        assertEquals(chunkAdaptiveTarget, setting.getChunkAdaptiveTarget());
+        assertEquals(journalDir, setting.getJournalDir());
+        assertEquals(batchSize, setting.getBatchSize());
+        assertEquals(batchThreshold, setting.getBatchThreshold());
+        assertEquals(singleThreshold, setting.getSingleThreshold());
+        assertEquals(readAhead, setting.getReadAhead());
+        assertEquals(compareMode, setting.getCompareMode());
+        assertEquals(fileWorkers, setting.getFileWorkers());
+        assertEquals(verify, setting.isVerify());
+        assertEquals(listThreshold, setting.getListThreshold());
+        assertEquals(snapshotDir, setting.getSnapshotDir());
+    }
+
+    @Test
+    void testUploadSettingWithBlankSnapshotDir() {
+        UploadSetting setting = new UploadSetting(1, UploadSetting.ReadMode.CHANNEL, false, 2000, null, 0, 0, 0, 0,
+                EqualUtils.Mode.TIMESTAMP, 1, true, 0, " ");
+
+        assertNull(setting.getSnapshotDir());
+    }
+
+    @Test
+    void testUploadSettingWithBlankJournalDir() {
+        UploadSetting setting = new UploadSetting(1, UploadSetting.ReadMode.CHANNEL, false, 2000, " ", 0, 0, 0, 0,
+                EqualUtils.Mode.TIMESTAMP, 1, true, 0, null);
+
+        assertNull(setting.getJournalDir());
+    }
+
+    @Test
+    void testSetFileWorkers() {
+        UploadSetting setting = new UploadSetting(1, UploadSetting.ReadMode.CHANNEL, false, 2000, null, 0, 0, 0, 0,
+                EqualUtils.Mode.TIMESTAMP, 1, true, 0, null);
+
+        setting.setFileWorkers(4);
+
+        assertEquals(4, setting.getFileWorkers());
+    }
+
+    @Test
+    void testSetReadMode() {
+        UploadSetting setting = new UploadSetting(1, UploadSetting.ReadMode.CHANNEL, false, 2000, null, 0, 0, 0, 0,
+                EqualUtils.Mode.TIMESTAMP, 1, true, 0, null);
+
+        setting.setReadMode(UploadSetting.ReadMode.DIRECT);
+
+        assertEquals(UploadSetting.ReadMode.DIRECT, setting.getReadMode());
+    }
+
+    @Test
+    void testReadModeIsBoundToCall() {
+        UploadSetting setting = new UploadSetting(1, UploadSetting.ReadMode.CHANNEL, false, 2000, null, 0, 0, 0, 0,
+                EqualUtils.Mode.TIMESTAMP, 1, true, 0, null);
+
+        assertNull(UploadSetting.getBoundReadMode());
+        assertEquals(UploadSetting.ReadMode.DIRECT, UploadSetting.callWithReadMode(UploadSetting.ReadMode.DIRECT, setting::getReadMode));
+        assertEquals(UploadSetting.ReadMode.DIRECT, UploadSetting.callWithReadMode(UploadSetting.ReadMode.DIRECT, UploadSetting::getBoundReadMode));
+        assertEquals(UploadSetting.ReadMode.CHANNEL, UploadSetting.callWithReadMode(null, setting::getReadMode));
+        assertEquals(UploadSetting.ReadMode.CHANNEL, setting.getReadMode());
+    }
+}
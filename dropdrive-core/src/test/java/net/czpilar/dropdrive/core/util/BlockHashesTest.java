@@ -0,0 +1,96 @@
+package net.czpilar.dropdrive.core.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author David Pilar (david@czpilar.net)
+ */
+class BlockHashesTest {
+
+    private static final int SIZE = 3 * ContentHashUtils.BLOCK_SIZE + 100;
+
+    private final byte[] data = new byte[SIZE];
+    private final String expected;
+
+    BlockHashesTest() {
+        new Random(13).nextBytes(data);
+        expected = new ContentHasher().update(data, 0, data.length).digest();
+    }
+
+    private void read(BlockHashes hashes, long offset, long length) throws IOException {
+        try (InputStream stream = hashes.hashing(new ByteArrayInputStream(data, (int) offset, (int) length), offset, length)) {
+            stream.readAllBytes();
+        }
+    }
+
+    @Test
+    void testContentHashOfChunksReadInOrder() throws IOException {
+        BlockHashes hashes = new BlockHashes(SIZE);
+        read(hashes, 0, 2L * ContentHashUtils.BLOCK_SIZE);
+        assertNull(hashes.contentHash());
+
+        read(hashes, 2L * ContentHashUtils.BLOCK_SIZE, SIZE - 2L * ContentHashUtils.BLOCK_SIZE);
+
+        assertEquals(expected, hashes.contentHash());
+    }
+
+    @Test
+    void testContentHashOfChunksReadOutOfOrder() throws IOException {
+        BlockHashes hashes = new BlockHashes(SIZE);
+        read(hashes, 3L * ContentHashUtils.BLOCK_SIZE, 100);
+        read(hashes, ContentHashUtils.BLOCK_SIZE, ContentHashUtils.BLOCK_SIZE);
+        read(hashes, 2L * ContentHashUtils.BLOCK_SIZE, ContentHashUtils.BLOCK_SIZE);
+        read(hashes, 0, ContentHashUtils.BLOCK_SIZE);
+
+        assertEquals(expected, hashes.contentHash());
+    }
+
+    @Test
+    void testContentHashOfEmptyFile() {
+        assertEquals(new ContentHasher().digest(), new BlockHashes(0).contentHash());
+    }
+
+    @Test
+    void testChunkNotReadInWholeIsNotHashed() throws IOException {
+        BlockHashes hashes = new BlockHashes(SIZE);
+        read(hashes, 0, 3L * ContentHashUtils.BLOCK_SIZE);
+        try (InputStream stream = hashes.hashing(new ByteArrayInputStream(data, 3 * ContentHashUtils.BLOCK_SIZE, 100),
+                3L * ContentHashUtils.BLOCK_SIZE, 100)) {
+            assertEquals(50, stream.readNBytes(50).length);
+        }
+
+        assertNull(hashes.contentHash());
+    }
+
+    @Test
+    void testUnalignedChunkInvalidatesBlocksUntilTheyAreReadAgain() throws IOException {
+        BlockHashes hashes = new BlockHashes(SIZE);
+        read(hashes, 0, SIZE);
+        assertEquals(expected, hashes.contentHash());
+
+        read(hashes, 100, ContentHashUtils.BLOCK_SIZE);
+        assertNull(hashes.contentHash());
+
+        read(hashes, 0, 2L * ContentHashUtils.BLOCK_SIZE);
+        assertEquals(expected, hashes.contentHash());
+    }
+
+    @Test
+    void testChunkEndingInsideBlockInvalidatesTheBlock() throws IOException {
+        BlockHashes hashes = new BlockHashes(SIZE);
+        read(hashes, 0, SIZE);
+
+        read(hashes, 0, ContentHashUtils.BLOCK_SIZE + 100);
+        assertNull(hashes.contentHash());
+
+        read(hashes, ContentHashUtils.BLOCK_SIZE, ContentHashUtils.BLOCK_SIZE);
+        assertEquals(expected, hashes.contentHash());
+    }
+}
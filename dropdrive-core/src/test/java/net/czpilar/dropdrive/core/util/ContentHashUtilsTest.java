@@ -0,0 +1,77 @@
+package net.czpilar.dropdrive.core.util;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author David Pilar (david@czpilar.net)
+ */
+class ContentHashUtilsTest {
+
+    private Path testFile;
+
+    @BeforeEach
+    void before() throws IOException {
+        testFile = Files.createTempFile("dropdrive-content-hash-", ".bin");
+    }
+
+    @AfterEach
+    void after() throws IOException {
+        Files.deleteIfExists(testFile);
+    }
+
+    @Test
+    void testContentHashOfEmptyFile() throws IOException {
+        assertEquals(DigestUtils.sha256Hex(new byte[0]), ContentHashUtils.contentHash(testFile));
+    }
+
+    @Test
+    void testContentHashOfOneBlock() throws IOException {
+        byte[] data = "Some test file data to store.".getBytes();
+        Files.write(testFile, data);
+
+        assertEquals(DigestUtils.sha256Hex(DigestUtils.sha256(data)), ContentHashUtils.contentHash(testFile));
+    }
+
+    @Test
+    void testContentHashOfMoreBlocks() throws IOException {
+        byte[] data = new byte[ContentHashUtils.BLOCK_SIZE + 10];
+        Arrays.fill(data, (byte) 7);
+        Files.write(testFile, data);
+
+        byte[] first = DigestUtils.sha256(Arrays.copyOfRange(data, 0, ContentHashUtils.BLOCK_SIZE));
+        byte[] second = DigestUtils.sha256(Arrays.copyOfRange(data, ContentHashUtils.BLOCK_SIZE, data.length));
+        byte[] blocks = new byte[first.length + second.length];
+        System.arraycopy(first, 0, blocks, 0, first.length);
+        System.arraycopy(second, 0, blocks, first.length, second.length);
+
+        assertEquals(DigestUtils.sha256Hex(blocks), ContentHashUtils.contentHash(testFile));
+    }
+
+    @Test
+    void testContentHashOfBlocksHashedInParallel() throws IOException {
+        byte[] data = new byte[5 * ContentHashUtils.BLOCK_SIZE + 1000];
+        new Random(42).nextBytes(data);
+        Files.write(testFile, data);
+
+        String expected = new ContentHasher().update(data, 0, data.length).digest();
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            assertEquals(expected, ContentHashUtils.contentHash(testFile, pool));
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(expected, ContentHashUtils.contentHash(testFile));
+    }
+}
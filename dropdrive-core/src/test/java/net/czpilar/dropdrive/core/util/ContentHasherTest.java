@@ -0,0 +1,90 @@
+package net.czpilar.dropdrive.core.util;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * @author David Pilar (david@czpilar.net)
+ */
+class ContentHasherTest {
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = new byte[first.length + second.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    @Test
+    void testDigestOfEmptyContent() {
+        assertEquals(DigestUtils.sha256Hex(new byte[0]), new ContentHasher().digest());
+    }
+
+    @Test
+    void testDigestOfOneBlock() {
+        byte[] data = "Some test file data to store.".getBytes();
+
+        assertEquals(DigestUtils.sha256Hex(DigestUtils.sha256(data)), new ContentHasher().update(data, 0, data.length).digest());
+    }
+
+    @Test
+    void testDigestOfChunksCrossingBlocks() {
+        byte[] data = new byte[2 * ContentHashUtils.BLOCK_SIZE + 10];
+        new Random(7).nextBytes(data);
+        byte[] first = DigestUtils.sha256(Arrays.copyOfRange(data, 0, ContentHashUtils.BLOCK_SIZE));
+        byte[] second = DigestUtils.sha256(Arrays.copyOfRange(data, ContentHashUtils.BLOCK_SIZE, 2 * ContentHashUtils.BLOCK_SIZE));
+        byte[] third = DigestUtils.sha256(Arrays.copyOfRange(data, 2 * ContentHashUtils.BLOCK_SIZE, data.length));
+        String expected = DigestUtils.sha256Hex(concat(concat(first, second), third));
+
+        ContentHasher hasher = new ContentHasher();
+        int chunk = 3000001;
+        for (int offset = 0; offset < data.length; offset += chunk) {
+            hasher.update(data, offset, Math.min(chunk, data.length - offset));
+        }
+
+        assertEquals(data.length, hasher.getLength());
+        assertEquals(expected, hasher.digest());
+    }
+
+    @Test
+    void testBlockHashesOfCompleteBlocks() {
+        byte[] data = new byte[ContentHashUtils.BLOCK_SIZE + 10];
+        new Random(11).nextBytes(data);
+
+        ContentHasher hasher = new ContentHasher().update(data, 0, data.length);
+
+        assertEquals(1, hasher.getBlockHashes().size());
+        assertArrayEquals(DigestUtils.sha256(Arrays.copyOf(data, ContentHashUtils.BLOCK_SIZE)), hasher.getBlockHashes().get(0));
+        assertEquals(10, hasher.getBlockLength());
+
+        hasher.completeBlock();
+
+        assertEquals(2, hasher.getBlockHashes().size());
+        assertEquals(0, hasher.getBlockLength());
+    }
+
+    @Test
+    void testUpdateConsumesBufferAndSegment() {
+        byte[] data = "0123456789".getBytes();
+        ByteBuffer buffer = ByteBuffer.wrap(data, 0, 4);
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment segment = arena.allocate(6);
+            segment.copyFrom(MemorySegment.ofArray(data).asSlice(4, 6));
+
+            String result = new ContentHasher().update(buffer).update(segment).digest();
+
+            assertFalse(buffer.hasRemaining());
+            assertEquals(DigestUtils.sha256Hex(DigestUtils.sha256(data)), result);
+        }
+    }
+}
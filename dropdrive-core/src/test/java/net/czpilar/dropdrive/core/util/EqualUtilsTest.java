@@ -116,6 +116,72 @@ class EqualUtilsTest {
         assertTrue(result);
     }
 
+    @Test
+    void testEqualsWithContentHashWhereContentHashIsEqualAndRemoteLastModifiedIsLower() throws IOException {
+        Path path = Paths.get(testFile.getPath());
+        FileMetadata file = FileMetadata.newBuilder("icon", "id", new Date(path.toFile().lastModified() - 1000),
+                        new Date(path.toFile().lastModified() - 1000), "123456789ab", path.toFile().length())
+                .withContentHash(ContentHashUtils.contentHash(path))
+                .build();
+
+        boolean result = EqualUtils.equals(file, path, EqualUtils.Mode.CONTENT_HASH);
+
+        assertTrue(result);
+    }
+
+    @Test
+    void testEqualsWithContentHashWhereContentHashIsNotEqualAndRemoteLastModifiedIsLower() {
+        Path path = Paths.get(testFile.getPath());
+        FileMetadata file = FileMetadata.newBuilder("icon", "id", new Date(path.toFile().lastModified() - 1000),
+                        new Date(path.toFile().lastModified() - 1000), "123456789ab", path.toFile().length())
+                .withContentHash("0000000000000000000000000000000000000000000000000000000000000000")
+                .build();
+
+        boolean result = EqualUtils.equals(file, path, EqualUtils.Mode.CONTENT_HASH);
+
+        assertFalse(result);
+    }
+
+    @Test
+    void testEqualsWithContentHashWhereLengthIsNotEqual() throws IOException {
+        Path path = Paths.get(testFile.getPath());
+        FileMetadata file = FileMetadata.newBuilder("icon", "id", new Date(path.toFile().lastModified()),
+                        new Date(path.toFile().lastModified()), "123456789ab", path.toFile().length() + 1)
+                .withContentHash(ContentHashUtils.contentHash(path))
+                .build();
+
+        boolean result = EqualUtils.equals(file, path, EqualUtils.Mode.CONTENT_HASH);
+
+        assertFalse(result);
+    }
+
+    @Test
+    void testEqualsWithContentHashWhereRemoteContentHashIsMissing() {
+        Path path = Paths.get(testFile.getPath());
+        FileMetadata file = new FileMetadata("icon", "id", new Date(path.toFile().lastModified()),
+                new Date(path.toFile().lastModified()), "123456789ab", path.toFile().length());
+
+        boolean result = EqualUtils.equals(file, path, EqualUtils.Mode.CONTENT_HASH);
+
+        assertTrue(result);
+    }
+
+    @Test
+    void testEqualsWithContentHashWhereLengthAndLastModifiedAreEqualDoesNotComputeContentHash() {
+        Path path = Paths.get(testFile.getPath());
+        FileMetadata file = FileMetadata.newBuilder("icon", "id", new Date(path.toFile().lastModified()),
+                        new Date(path.toFile().lastModified()), "123456789ab", path.toFile().length())
+                .withContentHash("0000000000000000000000000000000000000000000000000000000000000000")
+                .build();
+
+        try (MockedStatic<ContentHashUtils> contentHashUtilsMockedStatic = Mockito.mockStatic(ContentHashUtils.class)) {
+            boolean result = EqualUtils.equals(file, path, EqualUtils.Mode.CONTENT_HASH);
+
+            assertTrue(result);
+            contentHashUtilsMockedStatic.verifyNoInteractions();
+        }
+    }
+
     @Test
     void testNotEquals1() {
         try (MockedStatic<EqualUtils> equalUtilsMockedStatic = Mockito.mockStatic(EqualUtils.class)) {